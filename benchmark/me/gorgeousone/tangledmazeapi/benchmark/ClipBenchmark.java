@@ -0,0 +1,188 @@
+package me.gorgeousone.tangledmazeapi.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.bukkit.World;
+
+import me.gorgeousone.tangledmazeapi.clip.Clip;
+import me.gorgeousone.tangledmazeapi.clip.ClipAction;
+import me.gorgeousone.tangledmazeapi.core.Maze;
+import me.gorgeousone.tangledmazeapi.util.Vec2;
+
+/**
+ * A stand-alone benchmark that measures time and allocated memory of Maze.getAddition(), Maze.getDeletion() (sequential and parallel) and the sealing check
+ * for big rectangular clips. It does not need a running server, the clips use a placeholder world.
+ * Before measuring a size, it checks that the parallel merges return the same actions as the sequential ones.
+ * <p>
+ * The benchmarks live in their own source folder, so they are not packaged with the plugin.
+ * <p>
+ * Run it with the Bukkit API on the class path: <code>java me.gorgeousone.tangledmazeapi.benchmark.ClipBenchmark [sizes...]</code>
+ */
+public final class ClipBenchmark {
+	
+	private static final int WARMUP_RUNS = 3;
+	private static final int MEASURED_RUNS = 5;
+	
+	private ClipBenchmark() {}
+	
+	public static void main(String[] args) {
+		
+		int[] sizes = args.length > 0 ? new int[args.length] : new int[] {100, 250, 500, 1000};
+		
+		for(int i = 0; i < args.length; i++)
+			sizes[i] = Integer.parseInt(args[i]);
+		
+		World world = createPlaceholderWorld();
+		
+		System.out.println(String.format("%-8s %-10s %12s %14s", "size", "operation", "ms/run", "MB alloc/run"));
+		
+		for(int size : sizes) {
+			
+			//the other clip overlaps a quarter of the maze so that fill, border and sealing checks all have work to do
+			Maze maze = new Maze(createRectangle(world, 0, 0, size));
+			Clip otherClip = createRectangle(world, size / 2, size / 2, size);
+			List<Vec2> borderOfMaze = new ArrayList<>(maze.getClip().getBorder());
+			
+			checkParallelMerges(maze, otherClip);
+			
+			measure(size, "addition", new Runnable() {
+				@Override
+				public void run() {
+					maze.getAddition(otherClip);
+				}
+			});
+			
+			measure(size, "deletion", new Runnable() {
+				@Override
+				public void run() {
+					maze.getDeletion(otherClip);
+				}
+			});
+			
+			measure(size, "par-add", new Runnable() {
+				@Override
+				public void run() {
+					maze.getAddition(otherClip, ForkJoinPool.commonPool());
+				}
+			});
+			
+			measure(size, "par-delete", new Runnable() {
+				@Override
+				public void run() {
+					maze.getDeletion(otherClip, ForkJoinPool.commonPool());
+				}
+			});
+			
+			//the sealing check that canBeExit(), getAddition() and getDeletion() run for every border location
+			measure(size, "sealing", new Runnable() {
+				@Override
+				public void run() {
+					for(Vec2 border : borderOfMaze)
+						maze.canBeExit(border);
+				}
+			});
+		}
+	}
+	
+	public static Clip createRectangle(World world, int minX, int minZ, int size) {
+		
+		Clip clip = new Clip(world);
+		
+		for(int x = minX; x < minX + size; x++) {
+			for(int z = minZ; z < minZ + size; z++) {
+				
+				clip.addFill(x, z, 64);
+				
+				if(x == minX || z == minZ || x == minX + size - 1 || z == minZ + size - 1)
+					clip.addBorder(x, z);
+			}
+		}
+		
+		return clip;
+	}
+	
+	private static void checkParallelMerges(Maze maze, Clip otherClip) {
+		
+		if(!isEqual(maze.getAddition(otherClip), maze.getAddition(otherClip, ForkJoinPool.commonPool())))
+			throw new IllegalStateException("The parallel addition differs from the sequential one.");
+		
+		if(!isEqual(maze.getDeletion(otherClip), maze.getDeletion(otherClip, ForkJoinPool.commonPool())))
+			throw new IllegalStateException("The parallel deletion differs from the sequential one.");
+	}
+	
+	private static boolean isEqual(ClipAction action, ClipAction other) {
+		
+		if(action == null || other == null)
+			return action == other;
+		
+		return action.getAddedFill().equals(other.getAddedFill()) &&
+			action.getRemovedFill().equals(other.getRemovedFill()) &&
+			action.getAddedBorder().equals(other.getAddedBorder()) &&
+			action.getRemovedBorder().equals(other.getRemovedBorder()) &&
+			action.getRemovedExits().equals(other.getRemovedExits());
+	}
+	
+	private static void measure(int size, String operation, Runnable task) {
+		
+		for(int i = 0; i < WARMUP_RUNS; i++)
+			task.run();
+		
+		long allocatedBefore = allocatedBytes();
+		long timeBefore = System.nanoTime();
+		
+		for(int i = 0; i < MEASURED_RUNS; i++)
+			task.run();
+		
+		double millis = (System.nanoTime() - timeBefore) / 1e6 / MEASURED_RUNS;
+		double megaBytes = (allocatedBytes() - allocatedBefore) / 1024d / 1024d / MEASURED_RUNS;
+		
+		System.out.println(String.format("%-8d %-10s %12.2f %14.2f", size, operation, millis, megaBytes));
+	}
+	
+	//returns the bytes allocated by all live threads, so the workers of a pool running a parallel merge are counted as well.
+	//threads ending during a measurement take their allocations with them, the workers of the common pool stay alive for a minute.
+	//returns -1 on VMs that do not support measuring allocations per thread
+	static long allocatedBytes() {
+		
+		java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		
+		if(!(threadBean instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		
+		long[] allocatedPerThread = ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(threadBean.getAllThreadIds());
+		long allocated = 0;
+		
+		//threads that ended after their ids were listed report -1
+		for(long bytes : allocatedPerThread)
+			allocated += Math.max(0, bytes);
+		
+		return allocated;
+	}
+	
+	static World createPlaceholderWorld() {
+		
+		return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[] {World.class}, new InvocationHandler() {
+			
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				
+				switch(method.getName()) {
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "PlaceholderWorld";
+				default:
+					throw new UnsupportedOperationException("The placeholder world cannot " + method.getName() + "().");
+				}
+			}
+		});
+	}
+}
\ No newline at end of file
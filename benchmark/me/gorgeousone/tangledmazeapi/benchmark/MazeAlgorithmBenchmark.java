@@ -0,0 +1,93 @@
+package me.gorgeousone.tangledmazeapi.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.bukkit.World;
+
+import me.gorgeousone.tangledmazeapi.core.Maze;
+import me.gorgeousone.tangledmazeapi.generation.BuildMap;
+import me.gorgeousone.tangledmazeapi.generation.CellPathGenerator;
+import me.gorgeousone.tangledmazeapi.generation.EllerAlgorithm;
+import me.gorgeousone.tangledmazeapi.generation.GrowingTreeAlgorithm;
+import me.gorgeousone.tangledmazeapi.generation.KruskalAlgorithm;
+import me.gorgeousone.tangledmazeapi.generation.PathGenerator;
+import me.gorgeousone.tangledmazeapi.generation.TiledPathGenerator;
+import me.gorgeousone.tangledmazeapi.generation.WilsonAlgorithm;
+import me.gorgeousone.tangledmazeapi.util.Vec2;
+
+/**
+ * A stand-alone benchmark that measures time and allocated memory of the path generation of big rectangular mazes
+ * with the block based PathGenerator, with each MazeAlgorithm of the CellPathGenerator and with the TiledPathGenerator on the common pool.
+ * Allocations of all threads are counted, so the pool of the TiledPathGenerator is included. Only PathGenerator.generateMazePaths() is measured, the BuildMaps are created beforehand. Throughput is given in lattice cells per millisecond.
+ * <p>
+ * Run it with the Bukkit API on the class path: <code>java me.gorgeousone.tangledmazeapi.benchmark.MazeAlgorithmBenchmark [sizes...]</code>
+ */
+public final class MazeAlgorithmBenchmark {
+	
+	private static final int WARMUP_RUNS = 2;
+	private static final int MEASURED_RUNS = 3;
+	
+	private MazeAlgorithmBenchmark() {}
+	
+	public static void main(String[] args) {
+		
+		int[] sizes = args.length > 0 ? new int[args.length] : new int[] {250, 500, 1000, 2000};
+		
+		for(int i = 0; i < args.length; i++)
+			sizes[i] = Integer.parseInt(args[i]);
+		
+		World world = ClipBenchmark.createPlaceholderWorld();
+		
+		System.out.println(String.format("%-8s %-14s %12s %14s %14s", "size", "algorithm", "ms/run", "cells/ms", "MB alloc/run"));
+		
+		for(int size : sizes) {
+			
+			Maze maze = new Maze(ClipBenchmark.createRectangle(world, 0, 0, size));
+			maze.setPathWidth(1);
+			maze.setWallWidth(1);
+			maze.setPathLength(3);
+			maze.addExit(new Vec2(1, 0));
+			
+			//the block based generator allocates hundreds of megabytes for the biggest mazes
+			if(size <= 1000)
+				measure(maze, "blocks", new PathGenerator());
+			
+			measure(maze, "growing-tree", new CellPathGenerator(new GrowingTreeAlgorithm()));
+			measure(maze, "kruskal", new CellPathGenerator(new KruskalAlgorithm()));
+			measure(maze, "wilson", new CellPathGenerator(new WilsonAlgorithm()));
+			measure(maze, "eller", new CellPathGenerator(new EllerAlgorithm()));
+			measure(maze, "tiled", new TiledPathGenerator(ForkJoinPool.commonPool()));
+		}
+	}
+	
+	private static void measure(Maze maze, String algorithm, PathGenerator generator) {
+		
+		for(int i = 0; i < WARMUP_RUNS; i++)
+			generator.generateMazePaths(new BuildMap(maze));
+		
+		long nanos = 0;
+		long allocatedBytes = 0;
+		
+		for(int i = 0; i < MEASURED_RUNS; i++) {
+			
+			BuildMap buildMap = new BuildMap(maze);
+			
+			long allocatedBefore = ClipBenchmark.allocatedBytes();
+			long timeBefore = System.nanoTime();
+			
+			generator.generateMazePaths(buildMap);
+			
+			nanos += System.nanoTime() - timeBefore;
+			allocatedBytes += ClipBenchmark.allocatedBytes() - allocatedBefore;
+		}
+		
+		int size = maze.getClip().getMaxX() - maze.getClip().getMinX() + 1;
+		int pitch = maze.getPathWidth() + maze.getWallWidth();
+		long cellCount = (long) (size / pitch) * (size / pitch);
+		
+		double millis = nanos / 1e6 / MEASURED_RUNS;
+		double megaBytes = allocatedBytes / 1024d / 1024d / MEASURED_RUNS;
+		
+		System.out.println(String.format("%-8d %-14s %12.2f %14.0f %14.2f", size, algorithm, millis, cellCount / millis, megaBytes));
+	}
+}
\ No newline at end of file
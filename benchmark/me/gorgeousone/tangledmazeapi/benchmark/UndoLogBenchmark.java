@@ -0,0 +1,163 @@
+package me.gorgeousone.tangledmazeapi.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import me.gorgeousone.tangledmazeapi.util.MemoryBlockSink;
+import me.gorgeousone.tangledmazeapi.util.MemoryUndoLog;
+import me.gorgeousone.tangledmazeapi.util.PlacementScheduler;
+
+/**
+ * A stand-alone benchmark that measures time and allocated memory of logging the blocks of square areas into a MemoryUndoLog
+ * and of restoring them from it into a MemoryBlockSink. It does not need a running server, the BlockData are placeholders.
+ * After each restore it checks that every block was written back with the BlockData it was logged with
+ * and that the sink was flushed once for every chunk.
+ * <p>
+ * Run it with the Bukkit API on the class path: <code>java me.gorgeousone.tangledmazeapi.benchmark.UndoLogBenchmark [sizes...]</code>
+ */
+public final class UndoLogBenchmark {
+	
+	private static final int WARMUP_RUNS = 2;
+	private static final int MEASURED_RUNS = 5;
+	
+	//the heights of the blocks logged in each column, like a wall of a maze
+	private static final int MIN_Y = 60;
+	private static final int HEIGHT = 4;
+	
+	private UndoLogBenchmark() {}
+	
+	public static void main(String[] args) {
+		
+		int[] sizes = args.length > 0 ? new int[args.length] : new int[] {100, 250, 500, 1000};
+		
+		for(int i = 0; i < args.length; i++)
+			sizes[i] = Integer.parseInt(args[i]);
+		
+		World world = ClipBenchmark.createPlaceholderWorld();
+		BlockData[] palette = new BlockData[] {
+				createPlaceholderData("minecraft:grass_block[snowy=false]"),
+				createPlaceholderData("minecraft:dirt"),
+				createPlaceholderData("minecraft:stone"),
+				createPlaceholderData("minecraft:oak_log[axis=y]"),
+				createPlaceholderData("minecraft:air")};
+		
+		System.out.println(String.format("%-8s %-10s %12s %14s", "size", "operation", "ms/run", "MB alloc/run"));
+		
+		for(int size : sizes) {
+			
+			MemoryUndoLog undoLog = logArea(size, palette);
+			MemoryBlockSink sink = new MemoryBlockSink();
+			
+			restore(undoLog, world, sink);
+			checkRestoredBlocks(size, palette, sink);
+			
+			measure(size, "log", new Runnable() {
+				@Override
+				public void run() {
+					logArea(size, palette);
+				}
+			});
+			
+			measure(size, "restore", new Runnable() {
+				@Override
+				public void run() {
+					restore(undoLog, world, new MemoryBlockSink());
+				}
+			});
+		}
+	}
+	
+	private static MemoryUndoLog logArea(int size, BlockData[] palette) {
+		
+		MemoryUndoLog undoLog = new MemoryUndoLog();
+		
+		for(int x = 0; x < size; x++) {
+			for(int z = 0; z < size; z++) {
+				for(int y = MIN_Y; y < MIN_Y + HEIGHT; y++)
+					undoLog.add(x, y, z, palette[dataIndex(x, y, z, palette.length)]);
+			}
+		}
+		
+		undoLog.close();
+		return undoLog;
+	}
+	
+	private static void restore(MemoryUndoLog undoLog, World world, MemoryBlockSink sink) {
+		
+		PlacementScheduler.PlacementJob job = undoLog.createRestoreJob(world, sink);
+		
+		while(job.placeNext());
+		
+		job.flush();
+	}
+	
+	private static void checkRestoredBlocks(int size, BlockData[] palette, MemoryBlockSink sink) {
+		
+		int chunksPerSide = (size + 15) / 16;
+		
+		if(sink.getWriteCount() != (long) size * size * HEIGHT || sink.size() != size * size * HEIGHT)
+			throw new IllegalStateException("The restore job wrote " + sink.getWriteCount() + " blocks to " + sink.size() + " locations instead of " + size * size * HEIGHT + ".");
+		
+		if(sink.getFlushCount() != chunksPerSide * chunksPerSide)
+			throw new IllegalStateException("The restore job flushed " + sink.getFlushCount() + " times instead of once for each of the " + chunksPerSide * chunksPerSide + " chunks.");
+		
+		for(int x = 0; x < size; x++) {
+			for(int z = 0; z < size; z++) {
+				for(int y = MIN_Y; y < MIN_Y + HEIGHT; y++) {
+					
+					if(!palette[dataIndex(x, y, z, palette.length)].equals(sink.getBlockData(x, y, z)))
+						throw new IllegalStateException("The restore job wrote " + sink.getBlockData(x, y, z) + " to " + x + ", " + y + ", " + z + ".");
+				}
+			}
+		}
+	}
+	
+	//mixes the palette a bit, so the chunks of the log need more than one bit per block
+	private static int dataIndex(int x, int y, int z, int paletteSize) {
+		return (x * 31 + z * 17 + y) % paletteSize;
+	}
+	
+	private static void measure(int size, String operation, Runnable task) {
+		
+		for(int i = 0; i < WARMUP_RUNS; i++)
+			task.run();
+		
+		long allocatedBefore = ClipBenchmark.allocatedBytes();
+		long timeBefore = System.nanoTime();
+		
+		for(int i = 0; i < MEASURED_RUNS; i++)
+			task.run();
+		
+		double millis = (System.nanoTime() - timeBefore) / 1e6 / MEASURED_RUNS;
+		double megaBytes = (ClipBenchmark.allocatedBytes() - allocatedBefore) / 1024d / 1024d / MEASURED_RUNS;
+		
+		System.out.println(String.format("%-8d %-10s %12.2f %14.2f", size, operation, millis, megaBytes));
+	}
+	
+	//BlockData with nothing but their string, equal to each other if the strings are
+	private static BlockData createPlaceholderData(String data) {
+		
+		return (BlockData) Proxy.newProxyInstance(BlockData.class.getClassLoader(), new Class<?>[] {BlockData.class}, new InvocationHandler() {
+			
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				
+				switch(method.getName()) {
+				case "equals":
+					return args[0] instanceof BlockData && data.equals(((BlockData) args[0]).getAsString());
+				case "hashCode":
+					return data.hashCode();
+				case "getAsString":
+				case "toString":
+					return data;
+				default:
+					throw new UnsupportedOperationException("The placeholder data cannot " + method.getName() + "().");
+				}
+			}
+		});
+	}
+}
\ No newline at end of file
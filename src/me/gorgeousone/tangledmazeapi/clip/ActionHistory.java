@@ -1,31 +1,138 @@
 package me.gorgeousone.tangledmazeapi.clip;
 
-import java.util.Stack;
-
+/**
+ * Keeps the last actions performed on a maze so they can be undone. The actions are stored compactly
+ * in a ring buffer that is bounded by a number of actions and by a number of bytes.
+ * The oldest actions are discarded when one of the bounds is exceeded.
+ */
 public class ActionHistory {
-
-	private Stack<ClipAction> actions;
+	
+	private CompactAction[] actions;
+	private int oldest;
+	private int size;
+	
+	private long memoryBudget;
+	private long memoryUsage;
 	
 	public ActionHistory() {
-		actions = new Stack<>();
+		this(10, 4 * 1024 * 1024);
+	}
+	
+	public ActionHistory(int maxSize, long memoryBudget) {
+		
+		actions = new CompactAction[Math.max(1, maxSize)];
+		this.memoryBudget = Math.max(0, memoryBudget);
 	}
 	
 	public boolean isEmpty() {
-		return actions.isEmpty();
+		return size == 0;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public int getMaxSize() {
+		return actions.length;
+	}
+	
+	/**
+	 * Sets how many actions the history keeps. The oldest actions are discarded if there are too many.
+	 */
+	public void setMaxSize(int maxSize) {
+		
+		CompactAction[] resized = new CompactAction[Math.max(1, maxSize)];
+		
+		while(size > resized.length)
+			discardOldest();
+		
+		for(int i = 0; i < size; i++)
+			resized[i] = actions[indexOf(i)];
+		
+		actions = resized;
+		oldest = 0;
 	}
 	
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+	
+	/**
+	 * Sets how many bytes the history may occupy. The oldest actions are discarded if it occupies more.
+	 */
+	public void setMemoryBudget(long bytes) {
+		
+		memoryBudget = Math.max(0, bytes);
+		
+		while(memoryUsage > memoryBudget)
+			discardOldest();
+	}
+	
+	/**
+	 * Returns the approximate number of bytes the stored actions occupy.
+	 */
+	public long memoryUsage() {
+		return memoryUsage;
+	}
+	
+	/**
+	 * Stores the action. An action that does not fit into the memory budget on its own
+	 * clears the history, because the actions before it cannot be undone without undoing it first.
+	 */
 	public void pushAction(ClipAction action) {
-		actions.push(action);
 		
-		if(actions.size() > 10)
-			actions.remove(0);
+		CompactAction compactAction = new CompactAction(action);
+		
+		if(compactAction.memoryUsage() > memoryBudget) {
+			clear();
+			return;
+		}
+		
+		if(size == actions.length)
+			discardOldest();
+		
+		while(memoryUsage + compactAction.memoryUsage() > memoryBudget)
+			discardOldest();
+		
+		actions[indexOf(size)] = compactAction;
+		memoryUsage += compactAction.memoryUsage();
+		size++;
 	}
 	
 	public ClipAction popLastAction() {
-		return actions.pop();
+		
+		if(isEmpty())
+			throw new IllegalStateException("The history is empty.");
+		
+		int newest = indexOf(size - 1);
+		CompactAction compactAction = actions[newest];
+		
+		actions[newest] = null;
+		memoryUsage -= compactAction.memoryUsage();
+		size--;
+		return compactAction.decode();
 	}
 
 	public void clear() {
-		actions.clear();
+		
+		for(int i = 0; i < size; i++)
+			actions[indexOf(i)] = null;
+		
+		oldest = 0;
+		size = 0;
+		memoryUsage = 0;
+	}
+	
+	private void discardOldest() {
+		
+		memoryUsage -= actions[oldest].memoryUsage();
+		actions[oldest] = null;
+		oldest = (oldest + 1) % actions.length;
+		size--;
+	}
+	
+	//returns the index in the ring buffer of the i-th oldest action
+	private int indexOf(int i) {
+		return (oldest + i) % actions.length;
 	}
 }
\ No newline at end of file
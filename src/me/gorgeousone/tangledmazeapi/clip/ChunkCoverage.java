@@ -0,0 +1,10 @@
+package me.gorgeousone.tangledmazeapi.clip;
+
+/**
+ * Describes how much of a chunk is covered by the fill of a clip.
+ *
+ * @see Clip#getCoverage(int, int)
+ */
+public enum ChunkCoverage {
+	EMPTY, PARTIAL, FULL;
+}
\ No newline at end of file
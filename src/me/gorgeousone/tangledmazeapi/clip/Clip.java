@@ -1,17 +1,24 @@
 package me.gorgeousone.tangledmazeapi.clip;
 
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.AbstractSet;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 
+import me.gorgeousone.tangledmazeapi.util.LongHashSet;
+import me.gorgeousone.tangledmazeapi.util.LongObjectHashMap;
+import me.gorgeousone.tangledmazeapi.util.SurfaceSampler;
 import me.gorgeousone.tangledmazeapi.util.Vec2;
 
 /**
@@ -19,6 +26,15 @@ import me.gorgeousone.tangledmazeapi.util.Vec2;
  * Every location is mapped with one y-axis value.
  * A location can represent the fill of the clips shape and additionally also the border of it.
  * Fill and border can be added (or removed) manually to a clip but there is also a Rectangle and Circle class to create clips with these shapes.
+ * <p>
+ * Internally the fill is kept in a {@link FillStorage}, by default a primitive hash table, and the border as packed longs (see {@link Vec2#pack(int, int)}).
+ * For very large clips a {@link RunLengthFillStorage} can be passed to the constructor instead.
+ * The Vec2 sets returned by the getters are read-only views on this data. Only the border view iterates in x-z-order.
+ * Additionally every chunk touched by the clip is indexed by a {@link ClipChunk} so that chunk queries do not have to search the whole clip.
+ * Together with the bounding box of the fill this tells how much of a chunk the clip covers, which lets merges of clips skip whole regions.
+ * <p>
+ * Fill can be added without a resolved height (see {@link #unresolvedHeight(int)}). These heights are resolved chunk by chunk
+ * on the main thread the first time they are read, or all at once by {@link #resolveHeights()}.
  * 
  * @see me.gorgeousone.tangledmazeapi.clip.shape.Rectangle
  * @see me.gorgeousone.tangledmazeapi.clip.shape.Circle 
@@ -26,46 +42,148 @@ import me.gorgeousone.tangledmazeapi.util.Vec2;
 
 public class Clip {
 	
+	//unresolved heights are stored as this offset plus the height the surface search starts from
+	private static final int UNRESOLVED_OFFSET = 1 << 30;
+	
 	private World world;
-	private Map<Vec2, Integer> fill;
-	private Set<Vec2> border;
+	private FillStorage fill;
+	private LongHashSet border;
+	private LongObjectHashMap<ClipChunk> chunks;
+	
+	//the border sorted in x-z-order until it changes, volatile because clips are read by merges on other threads
+	private volatile long[] sortedBorder;
+	
+	//the bounding box of the fill, only recalculated when fill at its edge has been removed
+	private int minX, minZ, maxX, maxZ;
+	private boolean boundsAreOutdated;
+	
+	private int unresolvedCount;
 	
 	public Clip(World world) {
-
+		this(world, new HashFillStorage());
+	}
+	
+	public Clip(World world, FillStorage fillStorage) {
+		
 		this.world = world;
 		
-		fill = new TreeMap<>();
-		border = new TreeSet<>();
+		fill = fillStorage;
+		border = new LongHashSet();
+		chunks = new LongObjectHashMap<>();
+		boundsAreOutdated = true;
 	}
 	
 	public World getWorld() {
 		return world;
 	}
 	
+	/**
+	 * Returns a view of the fill with the heights of the locations. Heights that have not been resolved yet
+	 * are all resolved when an iterator is created, which has to happen on the main thread then.
+	 */
 	public Set<Entry<Vec2, Integer>> getFillSet() {
-		return fill.entrySet();
+		return new FillEntryView();
 	}
 	
 	public Set<Vec2> getFill() {
-		return fill.keySet();
+		return new FillView();
 	}
 	
 	public Set<Vec2> getFill(Chunk chunk) {
-		return getLocsInChunk((TreeSet<Vec2>) fill.keySet(), chunk);
+		return getLocsInChunk(chunk, false);
 	}
 
 	public void addFill(Vec2 loc, int height) {
-		fill.put(loc, height);
+		addFill(loc.getX(), loc.getZ(), height);
+	}
+	
+	public void addFill(int x, int z, int height) {
+		
+		//the old height only matters for counting unresolved heights
+		boolean wasUnresolved = unresolvedCount > 0 && isUnresolved(fill.getHeight(x, z, 0));
+		boolean isUnresolved = isUnresolved(height);
+		
+		long chunkKey = ClipChunk.keyOf(x, z);
+		ClipChunk chunk;
+		
+		if(fill.put(x, z, height)) {
+			
+			if(!boundsAreOutdated) {
+				minX = Math.min(minX, x);
+				minZ = Math.min(minZ, z);
+				maxX = Math.max(maxX, x);
+				maxZ = Math.max(maxZ, z);
+			}
+			
+			chunk = chunks.get(chunkKey);
+			
+			if(chunk == null) {
+				chunk = new ClipChunk(x >> 4, z >> 4);
+				chunks.put(chunkKey, chunk);
+			}
+			
+			chunk.addFill(ClipChunk.indexOf(x, z));
+			
+		}else if(wasUnresolved != isUnresolved)
+			chunk = chunks.get(chunkKey);
+		
+		else
+			return;
+		
+		if(wasUnresolved != isUnresolved) {
+			
+			int difference = isUnresolved ? 1 : -1;
+			chunk.changeUnresolvedCount(difference);
+			unresolvedCount += difference;
+		}
 	}
 	
 	public void addAllFill(Map<Vec2, Integer> locs) {
-		fill.putAll(locs);
+		
+		fill.ensureCapacity(fill.size() + locs.size());
+		
+		for(Entry<Vec2, Integer> loc : locs.entrySet())
+			addFill(loc.getKey(), loc.getValue());
+	}
+	
+	/**
+	 * Grows the tables of the clip in advance so that the passed numbers of fill and border locations fit without rehashing.
+	 */
+	public void ensureCapacity(int expectedSize, int expectedBorderSize) {
+		
+		fill.ensureCapacity(expectedSize);
+		border.ensureCapacity(expectedBorderSize);
 	}
 	
 	public void removeFill(Vec2 loc) {
-
-		if(fill.remove(loc) != null)
-			removeBorder(loc);
+		removeFill(loc.getX(), loc.getZ());
+	}
+	
+	public void removeFill(int x, int z) {
+		
+		boolean wasUnresolved = unresolvedCount > 0 && isUnresolved(fill.getHeight(x, z, 0));
+		
+		if(!fill.remove(x, z))
+			return;
+		
+		if(border.remove(Vec2.pack(x, z)))
+			sortedBorder = null;
+		
+		long chunkKey = ClipChunk.keyOf(x, z);
+		ClipChunk chunk = chunks.get(chunkKey);
+		
+		chunk.removeFill(ClipChunk.indexOf(x, z));
+		
+		if(wasUnresolved) {
+			chunk.changeUnresolvedCount(-1);
+			unresolvedCount--;
+		}
+		
+		if(chunk.isEmpty())
+			chunks.remove(chunkKey);
+		
+		if(x == minX || x == maxX || z == minZ || z == maxZ)
+			boundsAreOutdated = true;
 	}
 		
 	public void removeFill(Location loc) {
@@ -73,25 +191,55 @@ public class Clip {
 	}
 	
 	public Set<Vec2> getBorder() {
-		return border;
+		return new BorderView();
 	}
 
 	public Set<Vec2> getBorder(Chunk chunk) {
-		return getLocsInChunk((TreeSet<Vec2>) getBorder(), chunk);
+		return getLocsInChunk(chunk, true);
+	}
+	
+	/**
+	 * Returns all border locations as packed longs sorted in x-z-order.
+	 * The array is kept until the border changes, so it must not be changed.
+	 */
+	public long[] getSortedBorder() {
+		
+		long[] sorted = sortedBorder;
+		
+		if(sorted == null) {
+			sorted = border.toSortedArray();
+			sortedBorder = sorted;
+		}
+		
+		return sorted;
 	}
 
 	public void addBorder(Vec2 loc) {
+		addBorder(loc.getX(), loc.getZ());
+	}
+	
+	public void addBorder(int x, int z) {
 		
-		if(fill.containsKey(loc))
-			border.add(loc);
+		if(fill.contains(x, z) && border.add(Vec2.pack(x, z))) {
+			chunks.get(ClipChunk.keyOf(x, z)).addBorder(ClipChunk.indexOf(x, z));
+			sortedBorder = null;
+		}
 	}
 	
 	public void removeBorder(Vec2 loc) {
-		border.remove(loc);
+		removeBorder(loc.getX(), loc.getZ());
+	}
+	
+	public void removeBorder(int x, int z) {
+		
+		if(border.remove(Vec2.pack(x, z))) {
+			chunks.get(ClipChunk.keyOf(x, z)).removeBorder(ClipChunk.indexOf(x, z));
+			sortedBorder = null;
+		}
 	}
 	
 	public void removeBorder(Location loc) {
-		border.remove(new Vec2(loc));
+		removeBorder(new Vec2(loc));
 	}
 	
 	public int size() {
@@ -103,7 +251,86 @@ public class Clip {
 	}
 	
 	public int getHeight(Vec2 loc) {
-		return fill.get(loc);
+		return getHeight(loc.getX(), loc.getZ());
+	}
+	
+	/**
+	 * Returns the height of the location. If it has not been resolved yet, all heights of its chunk are resolved first,
+	 * which has to happen on the main thread.
+	 */
+	public int getHeight(int x, int z) {
+		
+		int height = getStoredHeight(x, z);
+		
+		if(!isUnresolved(height))
+			return height;
+		
+		resolveHeights(x >> 4, z >> 4);
+		return fill.getHeight(x, z, 0);
+	}
+	
+	public int getStoredHeight(Vec2 loc) {
+		return getStoredHeight(loc.getX(), loc.getZ());
+	}
+	
+	/**
+	 * Returns the height as it is stored, which might be unresolved. This can be used to copy heights between clips
+	 * or from other threads without resolving them.
+	 */
+	public int getStoredHeight(int x, int z) {
+		
+		if(!fill.contains(x, z))
+			throw new IllegalArgumentException(new Vec2(x, z) + " is not part of this clip.");
+		
+		return fill.getHeight(x, z, 0);
+	}
+	
+	/**
+	 * Returns a height for fill that is resolved to the nearest surface when it is read for the first time.
+	 * The search for the surface starts at the passed height.
+	 */
+	public static int unresolvedHeight(int startHeight) {
+		return UNRESOLVED_OFFSET + startHeight;
+	}
+	
+	public static boolean isUnresolved(int height) {
+		return height >= UNRESOLVED_OFFSET / 2;
+	}
+	
+	/**
+	 * Returns the height a surface search for the passed height should start at, which is the height itself for resolved heights.
+	 */
+	public static int getStartHeight(int height) {
+		return isUnresolved(height) ? height - UNRESOLVED_OFFSET : height;
+	}
+	
+	public boolean hasUnresolvedHeights() {
+		return unresolvedCount > 0;
+	}
+	
+	/**
+	 * Resolves all heights that have not been resolved yet. This has to be called on the main thread.
+	 */
+	public void resolveHeights() {
+		
+		if(unresolvedCount == 0)
+			return;
+		
+		SurfaceSampler sampler = new SurfaceSampler(getWorld());
+		
+		for(ClipChunk chunk : chunks.values())
+			resolveHeights(chunk, sampler);
+	}
+	
+	/**
+	 * Resolves the heights of the chunk at the passed chunk coordinates. This has to be called on the main thread.
+	 */
+	public void resolveHeights(int chunkX, int chunkZ) {
+		
+		ClipChunk chunk = getChunk(chunkX, chunkZ);
+		
+		if(chunk != null)
+			resolveHeights(chunk, new SurfaceSampler(getWorld()));
 	}
 	
 	public Location getLocation(Vec2 loc) {
@@ -113,9 +340,10 @@ public class Clip {
 	public Set<Location> getBorderBlocks() {
 		
 		Set<Location> blocks = new HashSet<>();
+		LongHashSet.Cursor cursor = border.cursor();
 		
-		for(Vec2 border : getBorder())
-			blocks.add(new Location(getWorld(), border.getX(), getHeight(border), border.getZ()));
+		while(cursor.next())
+			blocks.add(createLocation(cursor.value()));
 		
 		return blocks;
 	}
@@ -123,63 +351,383 @@ public class Clip {
 	public Set<Location> getBorderBlocks(Chunk chunk) {
 		
 		Set<Location> blocks = new HashSet<>();
+		ClipChunk clipChunk = getChunk(chunk.getX(), chunk.getZ());
+		
+		if(clipChunk == null)
+			return blocks;
 		
-		for(Vec2 border : getBorder(chunk))
-			blocks.add(new Location(getWorld(), border.getX(), getHeight(border), border.getZ()));
+		for(int i = clipChunk.nextBorder(0); i != -1; i = clipChunk.nextBorder(i+1))
+			blocks.add(createLocation(Vec2.pack(clipChunk.getX(i), clipChunk.getZ(i))));
 		
 		return blocks;
 	}
+	
+	/**
+	 * Returns the index of fill and border inside the chunk at the passed chunk coordinates or null if the clip does not touch the chunk.
+	 */
+	public ClipChunk getChunk(int chunkX, int chunkZ) {
+		return chunks.get(Vec2.pack(chunkX, chunkZ));
+	}
+	
+	/**
+	 * Returns all chunks the clip touches in no particular order.
+	 */
+	public List<ClipChunk> getChunks() {
+		return chunks.values();
+	}
+	
+	/**
+	 * Returns how much of the chunk at the passed chunk coordinates is covered by the fill of the clip.
+	 */
+	public ChunkCoverage getCoverage(int chunkX, int chunkZ) {
+		
+		ClipChunk chunk = getChunk(chunkX, chunkZ);
+		return chunk == null ? ChunkCoverage.EMPTY : chunk.getCoverage();
+	}
+	
+	/**
+	 * Returns the smallest x of the fill. The bounds of an empty clip are undefined.
+	 */
+	public int getMinX() {
+		updateBounds();
+		return minX;
+	}
+	
+	public int getMinZ() {
+		updateBounds();
+		return minZ;
+	}
+	
+	/**
+	 * Returns the greatest x of the fill (inclusive). The bounds of an empty clip are undefined.
+	 */
+	public int getMaxX() {
+		updateBounds();
+		return maxX;
+	}
+	
+	public int getMaxZ() {
+		updateBounds();
+		return maxZ;
+	}
+	
+	/**
+	 * Returns true if the bounding boxes of both clips, with the passed margin added to this one's box, overlap.
+	 */
+	public boolean boundsIntersect(Clip otherClip, int margin) {
+		
+		if(size() == 0 || otherClip.size() == 0)
+			return false;
+		
+		return
+			getMinX() - margin <= otherClip.getMaxX() && getMaxX() + margin >= otherClip.getMinX() &&
+			getMinZ() - margin <= otherClip.getMaxZ() && getMaxZ() + margin >= otherClip.getMinZ();
+	}
+	
+	/**
+	 * Returns all border locations inside the passed area (inclusive) as packed longs sorted in x-z-order.
+	 */
+	public long[] getBorderWithin(int areaMinX, int areaMinZ, int areaMaxX, int areaMaxZ) {
+		
+		LongHashSet areaBorder = new LongHashSet();
+		
+		int minChunkX = areaMinX >> 4,
+			minChunkZ = areaMinZ >> 4,
+			maxChunkX = areaMaxX >> 4,
+			maxChunkZ = areaMaxZ >> 4;
+		
+		long areaChunkCount = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+		
+		//either look up each chunk of the area or go through the clip's chunks, whatever is less
+		if(areaChunkCount < chunks.size()) {
+			
+			for(int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+				for(int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++)
+					addBorderWithin(getChunk(chunkX, chunkZ), areaBorder, areaMinX, areaMinZ, areaMaxX, areaMaxZ);
+			}
+			
+		}else {
+			
+			for(ClipChunk chunk : chunks.values()) {
+				
+				if(chunk.getX() >= minChunkX && chunk.getX() <= maxChunkX &&
+				   chunk.getZ() >= minChunkZ && chunk.getZ() <= maxChunkZ)
+					addBorderWithin(chunk, areaBorder, areaMinX, areaMinZ, areaMaxX, areaMaxZ);
+			}
+		}
+		
+		return areaBorder.toSortedArray();
+	}
 
 	public boolean isBorderBlock(Block block) {
 		
 		if(block.getWorld() != getWorld())
 			return false;
 		
-		Vec2 blockVec = new Vec2(block);
-		
-		return borderContains(blockVec) && getHeight(blockVec) == block.getY();
+		return borderContains(block.getX(), block.getZ()) && getHeight(block.getX(), block.getZ()) == block.getY();
 	}
 	
 	public boolean contains(Location loc) {
 
 		if(loc.getWorld() != getWorld())
 			return false;
-
-		return contains(new Vec2(loc));
+		
+		return contains(loc.getBlockX(), loc.getBlockZ());
 	}
 	
 	public boolean contains(Vec2 loc) {
-		return fill.containsKey(loc);
+		return contains(loc.getX(), loc.getZ());
+	}
+	
+	public boolean contains(int x, int z) {
+		return fill.contains(x, z);
 	}
 	
 	public boolean borderContains(Location loc) {
-		return borderContains(new Vec2(loc));
+		return borderContains(loc.getBlockX(), loc.getBlockZ());
 	}
 	
 	public boolean borderContains(Vec2 loc) {
-		return border.contains(loc);
+		return borderContains(loc.getX(), loc.getZ());
+	}
+	
+	public boolean borderContains(int x, int z) {
+		return border.contains(Vec2.pack(x, z));
 	}
 	
-	private Set<Vec2> getLocsInChunk(TreeSet<Vec2> set, Chunk chunk) {
+	public FillStorage getFillStorage() {
+		return fill;
+	}
+	
+	/**
+	 * Returns the approximate number of bytes the fill and border tables of this clip occupy.
+	 */
+	public long memoryUsage() {
+		return fill.memoryUsage() + border.memoryUsage() + chunks.memoryUsage() + 96L * chunks.size();
+	}
 	
-		int chunkMinX = chunk.getX() * 16,
-			chunkMinZ = chunk.getZ() * 16,
-			chunkMaxX = chunkMinX + 15,
-			chunkMaxZ = chunkMinZ + 15;
+	private void addBorderWithin(ClipChunk chunk, LongHashSet areaBorder, int areaMinX, int areaMinZ, int areaMaxX, int areaMaxZ) {
 		
-		Vec2 chunkStart = new Vec2(chunkMinX, chunkMinZ);
-		Vec2 chunkEnd   = new Vec2(chunkMaxX, chunkMaxZ);
-					
-		TreeSet<Vec2> subSet = (TreeSet<Vec2>) set.subSet(chunkStart, chunkEnd);
-		TreeSet<Vec2> chunkSet = new TreeSet<>();
+		if(chunk == null)
+			return;
 		
-		for(int iterZ = chunkMinZ; iterZ <= chunkMaxZ; iterZ++) {
+		for(int i = chunk.nextBorder(0); i != -1; i = chunk.nextBorder(i+1)) {
+			
+			int x = chunk.getX(i),
+				z = chunk.getZ(i);
+			
+			if(x >= areaMinX && x <= areaMaxX && z >= areaMinZ && z <= areaMaxZ)
+				areaBorder.add(Vec2.pack(x, z));
+		}
+	}
 	
-			chunkStart.setZ(iterZ);
-			chunkEnd.setZ(iterZ);
-			chunkSet.addAll(subSet.subSet(chunkStart, chunkEnd));
+	private void updateBounds() {
+		
+		if(!boundsAreOutdated)
+			return;
+		
+		minX = minZ = Integer.MAX_VALUE;
+		maxX = maxZ = Integer.MIN_VALUE;
+		
+		for(ClipChunk chunk : chunks.values()) {
+			
+			minX = Math.min(minX, chunk.getMinFillX());
+			minZ = Math.min(minZ, chunk.getMinFillZ());
+			maxX = Math.max(maxX, chunk.getMaxFillX());
+			maxZ = Math.max(maxZ, chunk.getMaxFillZ());
 		}
 		
+		//the bounds of an empty clip stay inverted, so the next added location sets them.
+		//once calculated they are only written again after a change, so threads merging the clip can read them
+		boundsAreOutdated = false;
+	}
+	
+	//all unresolved heights of the chunk are searched in one snapshot of it
+	private void resolveHeights(ClipChunk chunk, SurfaceSampler sampler) {
+		
+		if(chunk.unresolvedCount() == 0)
+			return;
+		
+		long[] locs = new long[chunk.unresolvedCount()];
+		int[] heights = new int[locs.length];
+		int count = 0;
+		
+		for(int i = chunk.nextFill(0); i != -1; i = chunk.nextFill(i+1)) {
+			
+			int x = chunk.getX(i),
+				z = chunk.getZ(i),
+				height = fill.getHeight(x, z, 0);
+			
+			if(isUnresolved(height)) {
+				locs[count] = Vec2.pack(x, z);
+				heights[count] = getStartHeight(height);
+				count++;
+			}
+		}
+		
+		sampler.captureChunk(chunk.getX(), chunk.getZ());
+		sampler.nearestSurfaceYs(locs, heights, 0, count);
+		
+		for(int i = 0; i < count; i++)
+			fill.put(Vec2.unpackX(locs[i]), Vec2.unpackZ(locs[i]), heights[i]);
+		
+		unresolvedCount -= count;
+		chunk.changeUnresolvedCount(-count);
+	}
+	
+	private Location createLocation(long packed) {
+		int x = Vec2.unpackX(packed),
+			z = Vec2.unpackZ(packed);
+		
+		return new Location(getWorld(), x, getHeight(x, z), z);
+	}
+	
+	//returns the locations in x-z-order as the chunk's bits are ordered the same way
+	private Set<Vec2> getLocsInChunk(Chunk chunk, boolean onlyBorder) {
+		
+		ClipChunk clipChunk = getChunk(chunk.getX(), chunk.getZ());
+		
+		if(clipChunk == null)
+			return new LinkedHashSet<>();
+		
+		Set<Vec2> chunkSet = new LinkedHashSet<>(onlyBorder ? clipChunk.borderCount() * 2 : clipChunk.fillCount() * 2);
+		
+		for(int i = next(clipChunk, 0, onlyBorder); i != -1; i = next(clipChunk, i+1, onlyBorder))
+			chunkSet.add(new Vec2(clipChunk.getX(i), clipChunk.getZ(i)));
+		
 		return chunkSet;
 	}
+	
+	private static int next(ClipChunk chunk, int fromIndex, boolean onlyBorder) {
+		return onlyBorder ? chunk.nextBorder(fromIndex) : chunk.nextFill(fromIndex);
+	}
+	
+	private class FillView extends AbstractSet<Vec2> {
+		
+		@Override
+		public int size() {
+			return fill.size();
+		}
+		
+		@Override
+		public boolean contains(Object obj) {
+			return obj instanceof Vec2 && Clip.this.contains((Vec2) obj);
+		}
+		
+		@Override
+		public Iterator<Vec2> iterator() {
+			
+			FillStorage.Cursor cursor = fill.cursor();
+			
+			return new CursorIterator<Vec2>() {
+				
+				@Override
+				protected boolean advance() {
+					return cursor.next();
+				}
+				
+				@Override
+				protected Vec2 current() {
+					return new Vec2(cursor.getX(), cursor.getZ());
+				}
+			};
+		}
+	}
+	
+	private class FillEntryView extends AbstractSet<Entry<Vec2, Integer>> {
+		
+		@Override
+		public int size() {
+			return fill.size();
+		}
+		
+		//the heights are resolved before the cursor is created, so the storage is not changed during the iteration
+		@Override
+		public Iterator<Entry<Vec2, Integer>> iterator() {
+			
+			resolveHeights();
+			FillStorage.Cursor cursor = fill.cursor();
+			
+			return new CursorIterator<Entry<Vec2, Integer>>() {
+				
+				@Override
+				protected boolean advance() {
+					return cursor.next();
+				}
+				
+				@Override
+				protected Entry<Vec2, Integer> current() {
+					return new SimpleImmutableEntry<>(new Vec2(cursor.getX(), cursor.getZ()), cursor.getHeight());
+				}
+			};
+		}
+	}
+	
+	private class BorderView extends AbstractSet<Vec2> {
+		
+		@Override
+		public int size() {
+			return border.size();
+		}
+		
+		@Override
+		public boolean contains(Object obj) {
+			return obj instanceof Vec2 && borderContains((Vec2) obj);
+		}
+		
+		//iterates over the sorted array because Maze relies on the x-z-order when it removes border while iterating,
+		//changes replace the cached array instead of changing it, so the iteration is not affected by them
+		@Override
+		public Iterator<Vec2> iterator() {
+			
+			long[] sortedBorder = getSortedBorder();
+			
+			return new CursorIterator<Vec2>() {
+				
+				int index = -1;
+				
+				@Override
+				protected boolean advance() {
+					return ++index < sortedBorder.length;
+				}
+				
+				@Override
+				protected Vec2 current() {
+					return Vec2.unpack(sortedBorder[index]);
+				}
+			};
+		}
+	}
+	
+	//adapts the cursors of the primitive tables to the Iterator interface
+	private static abstract class CursorIterator<T> implements Iterator<T> {
+		
+		private boolean hasNext;
+		private boolean isAdvanced;
+		
+		protected abstract boolean advance();
+		
+		protected abstract T current();
+		
+		@Override
+		public boolean hasNext() {
+			
+			if(!isAdvanced) {
+				hasNext = advance();
+				isAdvanced = true;
+			}
+			
+			return hasNext;
+		}
+		
+		@Override
+		public T next() {
+			
+			if(!hasNext())
+				throw new NoSuchElementException();
+			
+			isAdvanced = false;
+			return current();
+		}
+	}
 }
\ No newline at end of file
@@ -1,37 +1,46 @@
 package me.gorgeousone.tangledmazeapi.clip;
 
-import java.util.HashSet;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.bukkit.Location;
 
+import me.gorgeousone.tangledmazeapi.util.LongHashSet;
+import me.gorgeousone.tangledmazeapi.util.LongIntHashMap;
+import me.gorgeousone.tangledmazeapi.util.Utils;
 import me.gorgeousone.tangledmazeapi.util.Vec2;
 
-import java.util.HashMap;
-
+/**
+ * A set of changes to a clip that can be processed by a maze (see Maze.processAction()) and undone by inverting it.
+ * The locations are stored as packed longs (see {@link Vec2#pack(int, int)}) in primitive hash tables.
+ * The Vec2 collections returned by the getters are read-only views on them.
+ */
 public class ClipAction {
 	
 	private Clip clip;
 	
-	private Set<Vec2>
+	private LongHashSet
 		addedBorder,
 		removedBorder,
 		removedExits;
-		
-	private Map<Vec2, Integer>
+	
+	private LongIntHashMap
 		addedFill,
 		removedFill;
 	
 	public ClipAction(Clip clip) {
 		
 		this.clip = clip;
-		addedFill     = new HashMap<>();
-		removedFill   = new HashMap<>();
-
-		addedBorder   = new HashSet<>();
-		removedBorder = new HashSet<>();
-		removedExits  = new HashSet<>();
+		addedFill     = new LongIntHashMap();
+		removedFill   = new LongIntHashMap();
+		
+		addedBorder   = new LongHashSet();
+		removedBorder = new LongHashSet();
+		removedExits  = new LongHashSet();
 	}
 	
 	public Clip getClip() {
@@ -39,94 +48,305 @@ public class ClipAction {
 	}
 	
 	public Map<Vec2, Integer> getAddedFill() {
-		return addedFill;
+		return new FillView(addedFill);
 	}
 
 	public Map<Vec2, Integer> getRemovedFill() {
-		return removedFill;
+		return new FillView(removedFill);
 	}
 
 	public Set<Vec2> getAddedBorder() {
-		return addedBorder;
+		return new LocView(addedBorder);
 	}
 	
 	public Set<Vec2> getRemovedBorder() {
-		return removedBorder;
+		return new LocView(removedBorder);
 	}
 	
 	public Set<Vec2> getRemovedExits() {
-		return  removedExits;
+		return new LocView(removedExits);
+	}
+	
+	/**
+	 * Returns the added fill as packed locations sorted in x-z-order.
+	 */
+	public long[] getSortedAddedFill() {
+		return addedFill.sortedKeys();
+	}
+	
+	public long[] getSortedRemovedFill() {
+		return removedFill.sortedKeys();
+	}
+	
+	public long[] getSortedAddedBorder() {
+		return addedBorder.toSortedArray();
+	}
+	
+	public long[] getSortedRemovedBorder() {
+		return removedBorder.toSortedArray();
+	}
+	
+	public long[] getSortedRemovedExits() {
+		return removedExits.toSortedArray();
+	}
+	
+	/**
+	 * Returns the height of the fill added at the packed location or the passed default height if none is added there.
+	 */
+	public int getAddedHeight(long loc, int defaultHeight) {
+		return addedFill.get(loc, defaultHeight);
+	}
+	
+	public int getRemovedHeight(long loc, int defaultHeight) {
+		return removedFill.get(loc, defaultHeight);
+	}
+	
+	/**
+	 * Returns true if the action does not change anything about the clip (yet).
+	 */
+	public boolean isEmpty() {
+		return
+			addedFill.isEmpty() && removedFill.isEmpty() &&
+			addedBorder.isEmpty() && removedBorder.isEmpty() &&
+			removedExits.isEmpty();
 	}
 	
 	public void addFill(Vec2 loc, int height) {
-		addedFill.put(loc, height);
+		addFill(loc.getX(), loc.getZ(), height);
+	}
+	
+	public void addFill(int x, int z, int height) {
+		addedFill.put(Vec2.pack(x, z), height);
 	}
 	
 	public void removeFill(Vec2 loc, int height) {
-		removedFill.put(loc, height);
+		removeFill(loc.getX(), loc.getZ(), height);
+	}
+	
+	public void removeFill(int x, int z, int height) {
+		removedFill.put(Vec2.pack(x, z), height);
 	}
 	
 	public void addBorder(Vec2 loc) {
-		addedBorder.add(loc);
+		addBorder(loc.getX(), loc.getZ());
+	}
+	
+	public void addBorder(int x, int z) {
+		addedBorder.add(Vec2.pack(x, z));
 	}
 	
 	public void removeBorder(Vec2 loc) {
-		removedBorder.add(loc);
+		removeBorder(loc.getX(), loc.getZ());
+	}
+	
+	public void removeBorder(int x, int z) {
+		removedBorder.add(Vec2.pack(x, z));
 	}
 	
 	public void removeExit(Vec2 loc) {
-		removedExits.add(loc);
+		removedExits.add(loc.pack());
 	}
 	
 	public Location getBorder(Vec2 loc) {
 		
+		long key = loc.pack();
 		int height;
 		
-		if(removedBorder.contains(loc)) {
+		if(removedBorder.contains(key)) {
 			
-			if(removedFill.containsKey(loc))
-				height = removedFill.get(loc);
+			if(removedFill.containsKey(key))
+				height = removedFill.get(key, 0);
 			else
 				height = getClip().getHeight(loc);
 			
-		}else if(addedBorder.contains(loc)) {
+		}else if(addedBorder.contains(key)) {
 			
-			if(addedFill.containsKey(loc))
-				height = addedFill.get(loc);
+			if(addedFill.containsKey(key))
+				height = addedFill.get(key, 0);
 			else
 				height = getClip().getHeight(loc);
 		
 		}else
 			return null;
 		
+		//fill added from clips with unresolved heights
+		if(Clip.isUnresolved(height))
+			height = Utils.nearestSurfaceY(loc, Clip.getStartHeight(height), getClip().getWorld());
+		
 		return new Location(getClip().getWorld(), loc.getX(), height, loc.getZ());
 	}
-
+	
+	/**
+	 * Turns the action into the one that undoes it. The tables of added and removed locations only swap places,
+	 * nothing is copied. Removed exits cannot be restored and are dropped.
+	 */
 	public ClipAction invert() {
 		
-		HashMap<Vec2, Integer> temporaryHolder = new HashMap<>(addedFill);
-		
-		addedFill.clear();
-		addedFill.putAll(removedFill);
-		removedFill.clear();
-		removedFill.putAll(temporaryHolder);
+		LongIntHashMap temporaryFill = addedFill;
+		addedFill = removedFill;
+		removedFill = temporaryFill;
 		
-		HashSet<Vec2> temporaryHolder2= new HashSet<>(addedBorder);
+		LongHashSet temporaryBorder = addedBorder;
+		addedBorder = removedBorder;
+		removedBorder = temporaryBorder;
 		
-		addedBorder.clear();
-		addedBorder.addAll(removedBorder);
-		removedBorder.clear();
-		removedBorder.addAll(temporaryHolder2);
-		
-		getRemovedExits().clear();
+		removedExits.clear();
 		return this;
 	}
 	
 	public boolean clipWillContain(Vec2 loc) {
-		return getClip().contains(loc) && !getRemovedFill().containsKey(loc) || getAddedFill().containsKey(loc);
+		return clipWillContain(loc.getX(), loc.getZ());
+	}
+	
+	/**
+	 * Returns true if the clip will contain the location after the action has been processed.
+	 * The check only reads the action, so multiple threads can check the same action at once as long as it is not changed.
+	 */
+	public boolean clipWillContain(int x, int z) {
+		
+		if(addedFill.isEmpty() && removedFill.isEmpty())
+			return getClip().contains(x, z);
+		
+		long key = Vec2.pack(x, z);
+		return getClip().contains(x, z) && !removedFill.containsKey(key) || addedFill.containsKey(key);
 	}
 	
 	public boolean clipBorderWillContain(Clip clip, Vec2 loc) {
-		return getAddedBorder().contains(loc) || !getRemovedBorder().contains(loc) && getClip().borderContains(loc);
+		return clipBorderWillContain(loc.getX(), loc.getZ());
+	}
+	
+	public boolean clipBorderWillContain(int x, int z) {
+		
+		if(addedBorder.isEmpty() && removedBorder.isEmpty())
+			return getClip().borderContains(x, z);
+		
+		long key = Vec2.pack(x, z);
+		return addedBorder.contains(key) || !removedBorder.contains(key) && getClip().borderContains(x, z);
+	}
+	
+	//iterates over a snapshot of packed locations
+	private static Iterator<Vec2> iterator(long[] locs) {
+		
+		return new Iterator<Vec2>() {
+			
+			int index;
+			
+			@Override
+			public boolean hasNext() {
+				return index < locs.length;
+			}
+			
+			@Override
+			public Vec2 next() {
+				
+				if(!hasNext())
+					throw new NoSuchElementException();
+				
+				return Vec2.unpack(locs[index++]);
+			}
+		};
+	}
+	
+	private static class LocView extends AbstractSet<Vec2> {
+		
+		private LongHashSet locs;
+		
+		LocView(LongHashSet locs) {
+			this.locs = locs;
+		}
+		
+		@Override
+		public int size() {
+			return locs.size();
+		}
+		
+		@Override
+		public boolean contains(Object obj) {
+			return obj instanceof Vec2 && locs.contains(((Vec2) obj).pack());
+		}
+		
+		@Override
+		public Iterator<Vec2> iterator() {
+			return ClipAction.iterator(locs.toArray());
+		}
+	}
+	
+	private static class FillView extends AbstractMap<Vec2, Integer> {
+		
+		private LongIntHashMap fill;
+		
+		FillView(LongIntHashMap fill) {
+			this.fill = fill;
+		}
+		
+		@Override
+		public int size() {
+			return fill.size();
+		}
+		
+		@Override
+		public boolean containsKey(Object obj) {
+			return obj instanceof Vec2 && fill.containsKey(((Vec2) obj).pack());
+		}
+		
+		@Override
+		public Integer get(Object obj) {
+			return containsKey(obj) ? fill.get(((Vec2) obj).pack(), 0) : null;
+		}
+		
+		@Override
+		public Set<Vec2> keySet() {
+			
+			return new AbstractSet<Vec2>() {
+				
+				@Override
+				public int size() {
+					return fill.size();
+				}
+				
+				@Override
+				public boolean contains(Object obj) {
+					return containsKey(obj);
+				}
+				
+				@Override
+				public Iterator<Vec2> iterator() {
+					return ClipAction.iterator(fill.keys());
+				}
+			};
+		}
+		
+		@Override
+		public Set<Entry<Vec2, Integer>> entrySet() {
+			
+			return new AbstractSet<Entry<Vec2, Integer>>() {
+				
+				@Override
+				public int size() {
+					return fill.size();
+				}
+				
+				@Override
+				public Iterator<Entry<Vec2, Integer>> iterator() {
+					
+					Iterator<Vec2> locs = ClipAction.iterator(fill.keys());
+					
+					return new Iterator<Entry<Vec2, Integer>>() {
+						
+						@Override
+						public boolean hasNext() {
+							return locs.hasNext();
+						}
+						
+						@Override
+						public Entry<Vec2, Integer> next() {
+							
+							Vec2 loc = locs.next();
+							return new SimpleImmutableEntry<>(loc, fill.get(loc.pack(), 0));
+						}
+					};
+				}
+			};
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,252 @@
+package me.gorgeousone.tangledmazeapi.clip;
+
+import me.gorgeousone.tangledmazeapi.util.Vec2;
+
+/**
+ * A class that indexes which fill and border locations of a clip lie inside one 16x16 chunk.
+ * Each of the 256 columns of the chunk is represented by one bit, ordered by x first and z second like Vec2.compareTo().
+ * Clips update their chunks whenever fill or border changes, so a chunk can be read but not edited from outside of a clip.
+ *
+ * @see Clip#getChunk(int, int)
+ */
+public class ClipChunk {
+	
+	public static final int CELLS = 256;
+	
+	private final int chunkX, chunkZ;
+	private final long[] fill, border;
+	private int fillCount, borderCount;
+	private int unresolvedCount;
+	
+	ClipChunk(int chunkX, int chunkZ) {
+		
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+		
+		fill = new long[4];
+		border = new long[4];
+	}
+	
+	public int getX() {
+		return chunkX;
+	}
+	
+	public int getZ() {
+		return chunkZ;
+	}
+	
+	public int getMinX() {
+		return chunkX << 4;
+	}
+	
+	public int getMinZ() {
+		return chunkZ << 4;
+	}
+	
+	public int fillCount() {
+		return fillCount;
+	}
+	
+	public int borderCount() {
+		return borderCount;
+	}
+	
+	/**
+	 * Returns how many fill locations of the chunk have no resolved height yet.
+	 */
+	public int unresolvedCount() {
+		return unresolvedCount;
+	}
+	
+	public boolean isEmpty() {
+		return fillCount == 0;
+	}
+	
+	public boolean isFull() {
+		return fillCount == CELLS;
+	}
+	
+	public ChunkCoverage getCoverage() {
+		return isEmpty() ? ChunkCoverage.EMPTY : isFull() ? ChunkCoverage.FULL : ChunkCoverage.PARTIAL;
+	}
+	
+	public int getMinFillX() {
+		return getMinX() + (nextFill(0) >> 4);
+	}
+	
+	public int getMaxFillX() {
+		
+		for(int i = fill.length - 1; i >= 0; i--) {
+			
+			if(fill[i] != 0)
+				return getMinX() + ((i * 64 + 63 - Long.numberOfLeadingZeros(fill[i])) >> 4);
+		}
+		
+		return getMinX();
+	}
+	
+	public int getMinFillZ() {
+		return getMinZ() + Integer.numberOfTrailingZeros(getFillZMask());
+	}
+	
+	public int getMaxFillZ() {
+		return getMinZ() + 31 - Integer.numberOfLeadingZeros(getFillZMask());
+	}
+	
+	public boolean fillContains(int index) {
+		return (fill[index >> 6] & 1L << index) != 0;
+	}
+	
+	public boolean borderContains(int index) {
+		return (border[index >> 6] & 1L << index) != 0;
+	}
+	
+	/**
+	 * Returns the first fill index greater or equal to the passed one or -1 if there is none.
+	 */
+	public int nextFill(int fromIndex) {
+		return nextSetBit(fill, fromIndex);
+	}
+	
+	/**
+	 * Returns the first border index greater or equal to the passed one or -1 if there is none.
+	 */
+	public int nextBorder(int fromIndex) {
+		return nextSetBit(border, fromIndex);
+	}
+	
+	/**
+	 * Returns the first index greater or equal to the passed one that is fill in this chunk but not in the other chunk or -1 if there is none.
+	 */
+	public int nextFillNotIn(ClipChunk other, int fromIndex) {
+		
+		if(fromIndex >= CELLS)
+			return -1;
+		
+		int wordIndex = fromIndex >> 6;
+		long word = (fill[wordIndex] & ~other.fill[wordIndex]) & -1L << fromIndex;
+		
+		while(word == 0) {
+			
+			if(++wordIndex == fill.length)
+				return -1;
+			
+			word = fill[wordIndex] & ~other.fill[wordIndex];
+		}
+		
+		return wordIndex * 64 + Long.numberOfTrailingZeros(word);
+	}
+	
+	/**
+	 * Returns the first index greater or equal to the passed one that is fill but not border in this chunk and also fill in the other chunk
+	 * or -1 if there is none.
+	 */
+	public int nextInnerFillIn(ClipChunk other, int fromIndex) {
+		
+		if(fromIndex >= CELLS)
+			return -1;
+		
+		int wordIndex = fromIndex >> 6;
+		long word = (fill[wordIndex] & ~border[wordIndex] & other.fill[wordIndex]) & -1L << fromIndex;
+		
+		while(word == 0) {
+			
+			if(++wordIndex == fill.length)
+				return -1;
+			
+			word = fill[wordIndex] & ~border[wordIndex] & other.fill[wordIndex];
+		}
+		
+		return wordIndex * 64 + Long.numberOfTrailingZeros(word);
+	}
+	
+	public int getX(int index) {
+		return getMinX() + (index >> 4);
+	}
+	
+	public int getZ(int index) {
+		return getMinZ() + (index & 15);
+	}
+	
+	public static int indexOf(int x, int z) {
+		return (x & 15) << 4 | z & 15;
+	}
+	
+	public static long keyOf(int x, int z) {
+		return Vec2.pack(x >> 4, z >> 4);
+	}
+	
+	boolean addFill(int index) {
+		
+		if(fillContains(index))
+			return false;
+		
+		fill[index >> 6] |= 1L << index;
+		fillCount++;
+		return true;
+	}
+	
+	boolean removeFill(int index) {
+		
+		if(!fillContains(index))
+			return false;
+		
+		fill[index >> 6] &= ~(1L << index);
+		fillCount--;
+		removeBorder(index);
+		return true;
+	}
+	
+	void changeUnresolvedCount(int difference) {
+		unresolvedCount += difference;
+	}
+	
+	boolean addBorder(int index) {
+		
+		if(borderContains(index))
+			return false;
+		
+		border[index >> 6] |= 1L << index;
+		borderCount++;
+		return true;
+	}
+	
+	boolean removeBorder(int index) {
+		
+		if(!borderContains(index))
+			return false;
+		
+		border[index >> 6] &= ~(1L << index);
+		borderCount--;
+		return true;
+	}
+	
+	//merges the 16 x-columns of the fill into one mask of z coordinates
+	private int getFillZMask() {
+		
+		long word = fill[0] | fill[1] | fill[2] | fill[3];
+		word |= word >>> 32;
+		word |= word >>> 16;
+		return (int) word & 0xFFFF;
+	}
+	
+	private static int nextSetBit(long[] words, int fromIndex) {
+		
+		if(fromIndex >= CELLS)
+			return -1;
+		
+		int wordIndex = fromIndex >> 6;
+		long word = words[wordIndex] & -1L << fromIndex;
+		
+		while(true) {
+			
+			if(word != 0)
+				return wordIndex * 64 + Long.numberOfTrailingZeros(word);
+			
+			if(++wordIndex == words.length)
+				return -1;
+			
+			word = words[wordIndex];
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package me.gorgeousone.tangledmazeapi.clip;
+
+import java.util.Arrays;
+
+import me.gorgeousone.tangledmazeapi.util.Vec2;
+
+/**
+ * A ClipAction encoded into a single byte array to be kept in an ActionHistory.
+ * Every collection of the action is stored as its count followed by its sorted packed locations,
+ * each as a varint of the difference to the location before. Heights of fill follow as runs of equal heights,
+ * so a height is only stored where it differs from the one before.
+ */
+final class CompactAction {
+	
+	//the object, the array and its header
+	private static final int OVERHEAD = 48;
+	
+	private Clip clip;
+	private byte[] data;
+	
+	CompactAction(ClipAction action) {
+		
+		clip = action.getClip();
+		
+		Writer out = new Writer();
+		writeFill(action, true, out);
+		writeFill(action, false, out);
+		writeLocs(action.getSortedAddedBorder(), out);
+		writeLocs(action.getSortedRemovedBorder(), out);
+		writeLocs(action.getSortedRemovedExits(), out);
+		data = out.toByteArray();
+	}
+	
+	long memoryUsage() {
+		return data.length + OVERHEAD;
+	}
+	
+	ClipAction decode() {
+		
+		ClipAction action = new ClipAction(clip);
+		Reader in = new Reader(data);
+		
+		readFill(in, action, true);
+		readFill(in, action, false);
+		
+		for(long loc : readLocs(in))
+			action.addBorder(Vec2.unpackX(loc), Vec2.unpackZ(loc));
+		
+		for(long loc : readLocs(in))
+			action.removeBorder(Vec2.unpackX(loc), Vec2.unpackZ(loc));
+		
+		for(long loc : readLocs(in))
+			action.removeExit(Vec2.unpack(loc));
+		
+		return action;
+	}
+	
+	//sorted locations never decrease, so the differences are written as unsigned numbers
+	private static void writeLocs(long[] locs, Writer out) {
+		
+		out.writeVarLong(locs.length);
+		long previous = Long.MIN_VALUE;
+		
+		for(long loc : locs) {
+			out.writeVarLong(loc - previous);
+			previous = loc;
+		}
+	}
+	
+	private static long[] readLocs(Reader in) {
+		
+		long[] locs = new long[(int) in.readVarLong()];
+		long previous = Long.MIN_VALUE;
+		
+		for(int i = 0; i < locs.length; i++) {
+			previous += in.readVarLong();
+			locs[i] = previous;
+		}
+		
+		return locs;
+	}
+	
+	private static void writeFill(ClipAction action, boolean isAdded, Writer out) {
+		
+		long[] locs = isAdded ? action.getSortedAddedFill() : action.getSortedRemovedFill();
+		writeLocs(locs, out);
+		
+		int runHeight = 0;
+		int runLength = 0;
+		
+		for(long loc : locs) {
+			
+			int height = isAdded ? action.getAddedHeight(loc, 0) : action.getRemovedHeight(loc, 0);
+			
+			if(runLength > 0 && height == runHeight) {
+				runLength++;
+				continue;
+			}
+			
+			if(runLength > 0)
+				writeRun(runLength, runHeight, out);
+			
+			runHeight = height;
+			runLength = 1;
+		}
+		
+		if(runLength > 0)
+			writeRun(runLength, runHeight, out);
+	}
+	
+	private static void writeRun(int length, int height, Writer out) {
+		
+		out.writeVarLong(length);
+		out.writeVarLong(((height << 1) ^ (height >> 31)) & 0xFFFFFFFFL);
+	}
+	
+	private static void readFill(Reader in, ClipAction action, boolean isAdded) {
+		
+		long[] locs = readLocs(in);
+		int i = 0;
+		
+		while(i < locs.length) {
+			
+			int runLength = (int) in.readVarLong();
+			int zigZagHeight = (int) in.readVarLong();
+			int height = (zigZagHeight >>> 1) ^ -(zigZagHeight & 1);
+			
+			for(int k = 0; k < runLength; k++, i++) {
+				
+				int x = Vec2.unpackX(locs[i]),
+					z = Vec2.unpackZ(locs[i]);
+				
+				if(isAdded)
+					action.addFill(x, z, height);
+				else
+					action.removeFill(x, z, height);
+			}
+		}
+	}
+	
+	private static class Writer {
+		
+		private byte[] bytes = new byte[64];
+		private int size;
+		
+		void writeVarLong(long value) {
+			
+			if(size + 10 > bytes.length)
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			
+			while((value & ~0x7FL) != 0) {
+				bytes[size++] = (byte) (value & 0x7F | 0x80);
+				value >>>= 7;
+			}
+			
+			bytes[size++] = (byte) value;
+		}
+		
+		byte[] toByteArray() {
+			return Arrays.copyOf(bytes, size);
+		}
+	}
+	
+	private static class Reader {
+		
+		private byte[] bytes;
+		private int position;
+		
+		Reader(byte[] bytes) {
+			this.bytes = bytes;
+		}
+		
+		long readVarLong() {
+			
+			long value = 0;
+			int shift = 0;
+			byte b;
+			
+			do {
+				b = bytes[position++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			}while((b & 0x80) != 0);
+			
+			return value;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package me.gorgeousone.tangledmazeapi.clip;
+
+/**
+ * An interface for the data structure a clip stores its fill locations and their heights in.
+ * Locations are organized in rows along the x-axis, one row per z coordinate,
+ * so that clips can be compared with each other span by span instead of block by block.
+ *
+ * @see HashFillStorage
+ * @see RunLengthFillStorage
+ */
+public interface FillStorage {
+	
+	int size();
+	
+	boolean contains(int x, int z);
+	
+	/**
+	 * Returns the height mapped to the location or the passed default height if the location is not contained.
+	 */
+	int getHeight(int x, int z, int defaultHeight);
+	
+	/**
+	 * Adds the location with the passed height or changes its height.
+	 * Returns true if the location has not been contained before.
+	 */
+	boolean put(int x, int z, int height);
+	
+	boolean remove(int x, int z);
+	
+	/**
+	 * Prepares the storage for the given number of locations, if the storage can make use of that.
+	 */
+	void ensureCapacity(int expectedSize);
+	
+	/**
+	 * Returns the first x between fromX and toX (inclusive) that is contained in the row at z or toX + 1 if there is none.
+	 */
+	int nextContained(int z, int fromX, int toX);
+	
+	/**
+	 * Returns the first x between fromX and toX (inclusive) that is not contained in the row at z or toX + 1 if there is none.
+	 */
+	int nextMissing(int z, int fromX, int toX);
+	
+	/**
+	 * Returns a cursor over all locations. Heights may be changed during iteration, locations must not be added or removed.
+	 */
+	Cursor cursor();
+	
+	/**
+	 * Returns a cursor over spans of contained locations along the x-axis. Different spans never overlap.
+	 */
+	SpanCursor spans();
+	
+	/**
+	 * Returns the approximate number of bytes the storage occupies.
+	 */
+	long memoryUsage();
+	
+	public interface Cursor {
+		
+		boolean next();
+		
+		int getX();
+		
+		int getZ();
+		
+		int getHeight();
+	}
+	
+	public interface SpanCursor {
+		
+		boolean next();
+		
+		int getZ();
+		
+		int getMinX();
+		
+		/**
+		 * Returns the last x of the span (inclusive).
+		 */
+		int getMaxX();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package me.gorgeousone.tangledmazeapi.clip;
+
+import me.gorgeousone.tangledmazeapi.util.LongIntHashMap;
+import me.gorgeousone.tangledmazeapi.util.Vec2;
+
+/**
+ * The default fill storage of clips. It maps every location as packed long to its height in a primitive hash table,
+ * which makes single look ups fast for any shape. Spans returned by it always consist of one location.
+ */
+public class HashFillStorage implements FillStorage {
+	
+	private LongIntHashMap fill;
+	
+	public HashFillStorage() {
+		fill = new LongIntHashMap();
+	}
+	
+	@Override
+	public int size() {
+		return fill.size();
+	}
+	
+	@Override
+	public boolean contains(int x, int z) {
+		return fill.containsKey(Vec2.pack(x, z));
+	}
+	
+	@Override
+	public int getHeight(int x, int z, int defaultHeight) {
+		return fill.get(Vec2.pack(x, z), defaultHeight);
+	}
+	
+	@Override
+	public boolean put(int x, int z, int height) {
+		return fill.put(Vec2.pack(x, z), height);
+	}
+	
+	@Override
+	public boolean remove(int x, int z) {
+		return fill.remove(Vec2.pack(x, z));
+	}
+	
+	@Override
+	public void ensureCapacity(int expectedSize) {
+		fill.ensureCapacity(expectedSize);
+	}
+	
+	@Override
+	public int nextContained(int z, int fromX, int toX) {
+		
+		for(int x = fromX; x <= toX; x++) {
+			
+			if(contains(x, z))
+				return x;
+		}
+		
+		return toX + 1;
+	}
+	
+	@Override
+	public int nextMissing(int z, int fromX, int toX) {
+		
+		for(int x = fromX; x <= toX; x++) {
+			
+			if(!contains(x, z))
+				return x;
+		}
+		
+		return toX + 1;
+	}
+	
+	@Override
+	public Cursor cursor() {
+		
+		LongIntHashMap.Cursor cursor = fill.cursor();
+		
+		return new Cursor() {
+			
+			@Override
+			public boolean next() {
+				return cursor.next();
+			}
+			
+			@Override
+			public int getX() {
+				return Vec2.unpackX(cursor.key());
+			}
+			
+			@Override
+			public int getZ() {
+				return Vec2.unpackZ(cursor.key());
+			}
+			
+			@Override
+			public int getHeight() {
+				return cursor.value();
+			}
+		};
+	}
+	
+	@Override
+	public SpanCursor spans() {
+		
+		LongIntHashMap.Cursor cursor = fill.cursor();
+		
+		return new SpanCursor() {
+			
+			@Override
+			public boolean next() {
+				return cursor.next();
+			}
+			
+			@Override
+			public int getZ() {
+				return Vec2.unpackZ(cursor.key());
+			}
+			
+			@Override
+			public int getMinX() {
+				return Vec2.unpackX(cursor.key());
+			}
+			
+			@Override
+			public int getMaxX() {
+				return Vec2.unpackX(cursor.key());
+			}
+		};
+	}
+	
+	@Override
+	public long memoryUsage() {
+		return fill.memoryUsage();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,432 @@
+package me.gorgeousone.tangledmazeapi.clip;
+
+import java.util.Arrays;
+import java.util.List;
+
+import me.gorgeousone.tangledmazeapi.util.LongObjectHashMap;
+
+/**
+ * A fill storage for very large clips. For every z coordinate it stores a row of sorted, non-touching x-spans
+ * and the heights of the row as runs of equal height. A row of a simple shape only consists of a few numbers,
+ * so memory and span by span merges scale with the perimeter of a clip instead of its area.
+ * Single look ups are slower than in a HashFillStorage (binary searches in one row).
+ */
+public class RunLengthFillStorage implements FillStorage {
+	
+	private LongObjectHashMap<Row> rows;
+	private int size;
+	
+	public RunLengthFillStorage() {
+		rows = new LongObjectHashMap<>();
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean contains(int x, int z) {
+		
+		Row row = rows.get(z);
+		return row != null && row.contains(x);
+	}
+	
+	@Override
+	public int getHeight(int x, int z, int defaultHeight) {
+		
+		Row row = rows.get(z);
+		return row != null && row.contains(x) ? row.getHeight(x) : defaultHeight;
+	}
+	
+	@Override
+	public boolean put(int x, int z, int height) {
+		
+		Row row = rows.get(z);
+		
+		if(row == null) {
+			row = new Row(z);
+			rows.put(z, row);
+		}
+		
+		boolean isNew = row.add(x);
+		row.setHeight(x, height);
+		
+		if(isNew)
+			size++;
+		
+		return isNew;
+	}
+	
+	@Override
+	public boolean remove(int x, int z) {
+		
+		Row row = rows.get(z);
+		
+		if(row == null || !row.remove(x))
+			return false;
+		
+		if(row.spanCount == 0)
+			rows.remove(z);
+		
+		size--;
+		return true;
+	}
+	
+	@Override
+	public void ensureCapacity(int expectedSize) {}
+	
+	@Override
+	public int nextContained(int z, int fromX, int toX) {
+		
+		Row row = rows.get(z);
+		return row == null || fromX > toX ? toX + 1 : row.nextContained(fromX, toX);
+	}
+	
+	@Override
+	public int nextMissing(int z, int fromX, int toX) {
+		
+		if(fromX > toX)
+			return toX + 1;
+		
+		Row row = rows.get(z);
+		return row == null ? fromX : row.nextMissing(fromX, toX);
+	}
+	
+	@Override
+	public Cursor cursor() {
+		
+		List<Row> rowList = rows.values();
+		
+		return new Cursor() {
+			
+			int rowIndex = -1;
+			int spanIndex;
+			int x;
+			Row row;
+			
+			@Override
+			public boolean next() {
+				
+				if(row != null && x < row.getMaxX(spanIndex)) {
+					x++;
+					return true;
+				}
+				
+				if(row != null && spanIndex + 1 < row.spanCount) {
+					spanIndex++;
+					x = row.getMinX(spanIndex);
+					return true;
+				}
+				
+				if(++rowIndex >= rowList.size())
+					return false;
+				
+				row = rowList.get(rowIndex);
+				spanIndex = 0;
+				x = row.getMinX(0);
+				return true;
+			}
+			
+			@Override
+			public int getX() {
+				return x;
+			}
+			
+			@Override
+			public int getZ() {
+				return row.z;
+			}
+			
+			@Override
+			public int getHeight() {
+				return row.getHeight(x);
+			}
+		};
+	}
+	
+	@Override
+	public SpanCursor spans() {
+		
+		List<Row> rowList = rows.values();
+		
+		return new SpanCursor() {
+			
+			int rowIndex = -1;
+			int spanIndex;
+			Row row;
+			
+			@Override
+			public boolean next() {
+				
+				if(row != null && spanIndex + 1 < row.spanCount) {
+					spanIndex++;
+					return true;
+				}
+				
+				if(++rowIndex >= rowList.size())
+					return false;
+				
+				row = rowList.get(rowIndex);
+				spanIndex = 0;
+				return true;
+			}
+			
+			@Override
+			public int getZ() {
+				return row.z;
+			}
+			
+			@Override
+			public int getMinX() {
+				return row.getMinX(spanIndex);
+			}
+			
+			@Override
+			public int getMaxX() {
+				return row.getMaxX(spanIndex);
+			}
+		};
+	}
+	
+	@Override
+	public long memoryUsage() {
+		
+		long bytes = rows.memoryUsage();
+		
+		for(Row row : rows.values())
+			bytes += 64 + 4L * (row.spans.length + row.runStarts.length + row.runHeights.length);
+		
+		return bytes;
+	}
+	
+	/**
+	 * One row of locations with the same z coordinate.
+	 * The spans are stored as pairs of min and max x. Heights are stored as runs that each start at an x
+	 * and last until the next run starts. Runs may also cover x that are not contained by any span.
+	 */
+	private static class Row {
+		
+		final int z;
+		
+		int[] spans = new int[4];
+		int spanCount;
+		
+		int[] runStarts = new int[2];
+		int[] runHeights = new int[2];
+		int runCount;
+		
+		Row(int z) {
+			this.z = z;
+		}
+		
+		int getMinX(int span) {
+			return spans[2 * span];
+		}
+		
+		int getMaxX(int span) {
+			return spans[2 * span + 1];
+		}
+		
+		boolean contains(int x) {
+			
+			int span = spanIndexOf(x);
+			return span >= 0 && x <= getMaxX(span);
+		}
+		
+		boolean add(int x) {
+			
+			int span = spanIndexOf(x);
+			
+			if(span >= 0 && x <= getMaxX(span))
+				return false;
+			
+			boolean touchesLeft  = span >= 0 && getMaxX(span) == x - 1;
+			boolean touchesRight = span + 1 < spanCount && getMinX(span + 1) == x + 1;
+			
+			if(touchesLeft && touchesRight) {
+				spans[2 * span + 1] = getMaxX(span + 1);
+				deleteSpan(span + 1);
+				
+			}else if(touchesLeft)
+				spans[2 * span + 1] = x;
+			
+			else if(touchesRight)
+				spans[2 * (span + 1)] = x;
+			
+			else
+				insertSpan(span + 1, x, x);
+			
+			return true;
+		}
+		
+		boolean remove(int x) {
+			
+			int span = spanIndexOf(x);
+			
+			if(span < 0 || x > getMaxX(span))
+				return false;
+			
+			int minX = getMinX(span),
+				maxX = getMaxX(span);
+			
+			if(minX == maxX)
+				deleteSpan(span);
+			
+			else if(x == minX)
+				spans[2 * span] = x + 1;
+			
+			else if(x == maxX)
+				spans[2 * span + 1] = x - 1;
+			
+			else {
+				spans[2 * span + 1] = x - 1;
+				insertSpan(span + 1, x + 1, maxX);
+			}
+			
+			return true;
+		}
+		
+		int nextContained(int fromX, int toX) {
+			
+			int span = spanIndexOf(fromX);
+			
+			if(span >= 0 && fromX <= getMaxX(span))
+				return fromX;
+			
+			if(span + 1 < spanCount && getMinX(span + 1) <= toX)
+				return getMinX(span + 1);
+			
+			return toX + 1;
+		}
+		
+		int nextMissing(int fromX, int toX) {
+			
+			int span = spanIndexOf(fromX);
+			
+			if(span < 0 || fromX > getMaxX(span))
+				return fromX;
+			
+			//spans never touch, so the location after a span is always missing
+			return Math.min(getMaxX(span) + 1, toX + 1);
+		}
+		
+		int getHeight(int x) {
+			return runHeights[runIndexOf(x)];
+		}
+		
+		void setHeight(int x, int height) {
+			
+			int run = runIndexOf(x);
+			
+			if(run >= 0 && runHeights[run] == height)
+				return;
+			
+			int changedRun;
+			
+			if(run >= 0) {
+				
+				int runEnd = run + 1 < runCount ? runStarts[run + 1] - 1 : Integer.MAX_VALUE;
+				
+				//make sure the locations after x that are covered by the same run keep their height
+				if(x < runEnd && nextContained(x + 1, runEnd) <= runEnd)
+					insertRun(run + 1, x + 1, runHeights[run]);
+				
+				if(runStarts[run] == x) {
+					runHeights[run] = height;
+					changedRun = run;
+					
+				}else {
+					insertRun(run + 1, x, height);
+					changedRun = run + 1;
+				}
+				
+			}else {
+				insertRun(0, x, height);
+				changedRun = 0;
+			}
+			
+			if(changedRun + 1 < runCount && runHeights[changedRun + 1] == height)
+				deleteRun(changedRun + 1);
+			
+			if(changedRun > 0 && runHeights[changedRun - 1] == height)
+				deleteRun(changedRun);
+		}
+		
+		//returns the index of the last span starting at or before x or -1
+		private int spanIndexOf(int x) {
+			
+			int low = 0,
+				high = spanCount - 1;
+			
+			while(low <= high) {
+				
+				int middle = (low + high) >>> 1;
+				
+				if(getMinX(middle) <= x)
+					low = middle + 1;
+				else
+					high = middle - 1;
+			}
+			
+			return high;
+		}
+		
+		//returns the index of the last run starting at or before x or -1
+		private int runIndexOf(int x) {
+			
+			int low = 0,
+				high = runCount - 1;
+			
+			while(low <= high) {
+				
+				int middle = (low + high) >>> 1;
+				
+				if(runStarts[middle] <= x)
+					low = middle + 1;
+				else
+					high = middle - 1;
+			}
+			
+			return high;
+		}
+		
+		private void insertSpan(int span, int minX, int maxX) {
+			
+			if(2 * spanCount + 2 > spans.length)
+				spans = Arrays.copyOf(spans, spans.length * 2);
+			
+			System.arraycopy(spans, 2 * span, spans, 2 * span + 2, 2 * (spanCount - span));
+			spans[2 * span] = minX;
+			spans[2 * span + 1] = maxX;
+			spanCount++;
+		}
+		
+		private void deleteSpan(int span) {
+			
+			System.arraycopy(spans, 2 * span + 2, spans, 2 * span, 2 * (spanCount - span - 1));
+			spanCount--;
+		}
+		
+		private void insertRun(int run, int start, int height) {
+			
+			if(runCount == runStarts.length) {
+				runStarts = Arrays.copyOf(runStarts, runCount * 2);
+				runHeights = Arrays.copyOf(runHeights, runCount * 2);
+			}
+			
+			System.arraycopy(runStarts, run, runStarts, run + 1, runCount - run);
+			System.arraycopy(runHeights, run, runHeights, run + 1, runCount - run);
+			runStarts[run] = start;
+			runHeights[run] = height;
+			runCount++;
+		}
+		
+		private void deleteRun(int run) {
+			
+			System.arraycopy(runStarts, run + 1, runStarts, run, runCount - run - 1);
+			System.arraycopy(runHeights, run + 1, runHeights, run, runCount - run - 1);
+			runCount--;
+		}
+	}
+}
\ No newline at end of file
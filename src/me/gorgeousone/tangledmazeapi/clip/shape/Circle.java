@@ -1,11 +1,16 @@
 package me.gorgeousone.tangledmazeapi.clip.shape;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.bukkit.Location;
+import org.bukkit.plugin.Plugin;
 
 import me.gorgeousone.tangledmazeapi.clip.Clip;
-import me.gorgeousone.tangledmazeapi.util.Directions;
+import me.gorgeousone.tangledmazeapi.clip.FillStorage;
+import me.gorgeousone.tangledmazeapi.clip.HashFillStorage;
+import me.gorgeousone.tangledmazeapi.util.SurfaceSampler;
 import me.gorgeousone.tangledmazeapi.util.Utils;
 import me.gorgeousone.tangledmazeapi.util.Vec2;
 
@@ -20,34 +25,88 @@ public final class Circle {
 	private static float circleSmoothing = -0.25f;
 	
 	public static Clip createClip(Location vertex0, Location vertex2) {
+		return createClip(vertex0, vertex2, new HashFillStorage());
+	}
+	
+	/**
+	 * Creates the clip with the passed fill storage, e.g. a RunLengthFillStorage for very large areas.
+	 */
+	public static Clip createClip(Location vertex0, Location vertex2, FillStorage fillStorage) {
+		
+		List<Location> vertices = Utils.createRectangularVertices(vertex0, vertex2);
+		return createClip(vertices, fillStorage, Utils.captureArea(vertices));
+	}
+	
+	/**
+	 * Creates the clip without searching any surface. The heights are resolved chunk by chunk when they are needed
+	 * (see Clip.resolveHeights()), so even very large clips are created instantly.
+	 */
+	public static Clip createLazyClip(Location vertex0, Location vertex2, FillStorage fillStorage) {
 		
 		List<Location> vertices = Utils.createRectangularVertices(vertex0, vertex2);
+		return createClip(vertices, fillStorage, null);
+	}
+	
+	/**
+	 * Creates the clip on another thread. Only the chunks of the area are captured on the main thread,
+	 * the callback receives the clip on the main thread again.
+	 */
+	public static void createClipAsync(Location vertex0, Location vertex2, FillStorage fillStorage, Plugin plugin, Consumer<Clip> callback) {
+		
+		List<Location> vertices = Utils.createRectangularVertices(vertex0, vertex2);
+		
+		Utils.createClipAsync(vertices, new Function<SurfaceSampler, Clip>() {
+			
+			@Override
+			public Clip apply(SurfaceSampler sampler) {
+				return createClip(vertices, fillStorage, sampler);
+			}
+		}, plugin, callback);
+	}
+	
+	/*
+	 * Rasterizes the ellipse row by row (along x). The cells of a row inside the ellipse always form one span,
+	 * so only the ends of each span are searched. A cell is border if one of its eight neighbors lies outside of the ellipse,
+	 * which is the case for every cell of a span that is not covered by the spans of the rows before and after it.
+	 * Without a sampler the clip is created with unresolved heights.
+	 */
+	private static Clip createClip(List<Location> vertices, FillStorage fillStorage, SurfaceSampler sampler) {
 		
 		Vec2 minVertex = new Vec2(vertices.get(0));
 		Vec2 maxVertex = new Vec2(vertices.get(2)).add(1, 1);
 		
-		Clip clip = new Clip(vertices.get(0).getWorld());
-		
-		float radiusX = (float) (maxVertex.getX() - minVertex.getX()) / 2;
-		float radiusZ = (float) (maxVertex.getZ() - minVertex.getZ()) / 2;
-		float distortionZ = 1 / (radiusZ / radiusX);
+		Clip clip = new Clip(vertices.get(0).getWorld(), fillStorage);
+		Ellipse ellipse = new Ellipse(maxVertex.getX() - minVertex.getX(), maxVertex.getZ() - minVertex.getZ());
 		
 		int maxY = Utils.getMaxHeight(vertices);
 		
-		for(float x = (float) -radiusX; x <= radiusX; x++) {
-			for(float z = (float) -radiusZ; z <= radiusZ; z++) {
-				
-				if(!isInEllipse(x+0.5f, z+0.5f, distortionZ, radiusX + circleSmoothing))
-					continue;
+		int[] previousSpan = ellipse.getSpan(-1),
+			  span = ellipse.getSpan(0);
+		
+		for(int row = 0; row < ellipse.getRowCount(); row++) {
+			
+			int[] nextSpan = ellipse.getSpan(row + 1);
+			
+			//the cells of which all neighbors are inside of the ellipse
+			int innerMin = Math.max(span[0], Math.max(previousSpan[0], nextSpan[0])) + 1,
+				innerMax = Math.min(span[1], Math.min(previousSpan[1], nextSpan[1])) - 1;
+			
+			int minColumn = Math.max(span[0], 0),
+				maxColumn = Math.min(span[1], ellipse.getColumnCount() - 1);
+			
+			for(int column = minColumn; column <= maxColumn; column++) {
 				
-				Vec2 loc = minVertex.clone().add((int) (radiusX + x), (int) (radiusZ + z));
-				int height = Utils.nearestSurfaceY(loc, maxY, clip.getWorld());
+				int x = minVertex.getX() + row,
+					z = minVertex.getZ() + column;
 				
-				clip.addFill(loc, height);
+				clip.addFill(x, z, sampler != null ? sampler.nearestSurfaceY(x, z, maxY) : Clip.unresolvedHeight(maxY));
 				
-				if(isEllipseBorder(x + 0.5f, z + 0.5f, distortionZ, radiusX + circleSmoothing))
-					clip.addBorder(loc);
+				if(column < innerMin || column > innerMax)
+					clip.addBorder(x, z);
 			}
+			
+			previousSpan = span;
+			span = nextSpan;
 		}
 		
 		return clip;
@@ -59,16 +118,82 @@ public final class Circle {
 		return Math.sqrt(x*x + circleZ*circleZ) <= radius;
 	}
 	
-	private static boolean isEllipseBorder(float x, float z, float distortionZ, float radius) {
+	/**
+	 * The ellipse inside a rectangle with rows along x and columns along z, both starting at 0 at the rectangle's corner.
+	 * Whether a cell is inside is decided by the same float calculation as always, so the shape does not change.
+	 */
+	private static class Ellipse {
+		
+		private float radiusX;
+		private float radiusZ;
+		private float distortionZ;
+		private float radius;
 		
-		for(Directions dir : Directions.values()) {
-			Vec2 dirVec = dir.toVec2();
+		private int centerColumn;
+		private int spanMin;
+		private int spanMax;
+		
+		Ellipse(int width, int depth) {
 			
-			if(!isInEllipse(x + dirVec.getX(), z + dirVec.getZ(), distortionZ, radius)) {
-				return true;
-			}
+			radiusX = (float) width / 2;
+			radiusZ = (float) depth / 2;
+			distortionZ = 1 / (radiusZ / radiusX);
+			radius = radiusX + circleSmoothing;
+			
+			//the column closest to the center, the span of every row that is not empty contains it
+			centerColumn = (int) Math.floor(radiusZ - 0.5f);
+			spanMin = centerColumn;
+			spanMax = centerColumn;
+		}
+		
+		int getRowCount() {
+			return (int) (2 * radiusX) + 1;
+		}
+		
+		int getColumnCount() {
+			return (int) (2 * radiusZ) + 1;
+		}
+		
+		boolean contains(int row, int column) {
+			
+			float x = (float) -radiusX + row,
+				  z = (float) -radiusZ + column;
+			
+			return isInEllipse(x + 0.5f, z + 0.5f, distortionZ, radius);
 		}
 		
-		return false;
+		/**
+		 * Returns the first and last column of the row inside the ellipse, where the first is greater than the last one for empty rows.
+		 * The ends are searched starting from the ends of the row before, so rows should be requested in order.
+		 */
+		int[] getSpan(int row) {
+			
+			if(!contains(row, centerColumn))
+				return new int[] {0, -1};
+			
+			if(contains(row, spanMax)) {
+				
+				while(contains(row, spanMax + 1))
+					spanMax++;
+				
+			}else {
+				
+				while(!contains(row, spanMax))
+					spanMax--;
+			}
+			
+			if(contains(row, spanMin)) {
+				
+				while(contains(row, spanMin - 1))
+					spanMin--;
+				
+			}else {
+				
+				while(!contains(row, spanMin))
+					spanMin++;
+			}
+			
+			return new int[] {spanMin, spanMax};
+		}
 	}
 }
\ No newline at end of file
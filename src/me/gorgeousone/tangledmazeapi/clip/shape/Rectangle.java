@@ -1,10 +1,16 @@
 package me.gorgeousone.tangledmazeapi.clip.shape;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.bukkit.Location;
+import org.bukkit.plugin.Plugin;
 
 import me.gorgeousone.tangledmazeapi.clip.Clip;
+import me.gorgeousone.tangledmazeapi.clip.FillStorage;
+import me.gorgeousone.tangledmazeapi.clip.HashFillStorage;
+import me.gorgeousone.tangledmazeapi.util.SurfaceSampler;
 import me.gorgeousone.tangledmazeapi.util.Utils;
 import me.gorgeousone.tangledmazeapi.util.Vec2;
 
@@ -17,25 +23,61 @@ public final class Rectangle {
 	private Rectangle() {}
 	
 	public static Clip createClip(Location vertex0, Location vertex2) {
+		return createClip(vertex0, vertex2, new HashFillStorage());
+	}
+	
+	/**
+	 * Creates the clip with the passed fill storage, e.g. a RunLengthFillStorage for very large areas.
+	 */
+	public static Clip createClip(Location vertex0, Location vertex2, FillStorage fillStorage) {
+		
+		List<Location> vertices = Utils.createRectangularVertices(vertex0, vertex2);
+		return createClip(vertices, fillStorage, Utils.captureArea(vertices));
+	}
+	
+	/**
+	 * Creates the clip without searching any surface. The heights are resolved chunk by chunk when they are needed
+	 * (see Clip.resolveHeights()), so even very large clips are created instantly.
+	 */
+	public static Clip createLazyClip(Location vertex0, Location vertex2, FillStorage fillStorage) {
 		
 		List<Location> vertices = Utils.createRectangularVertices(vertex0, vertex2);
+		return createClip(vertices, fillStorage, null);
+	}
+	
+	/**
+	 * Creates the clip on another thread. Only the chunks of the area are captured on the main thread,
+	 * the callback receives the clip on the main thread again.
+	 */
+	public static void createClipAsync(Location vertex0, Location vertex2, FillStorage fillStorage, Plugin plugin, Consumer<Clip> callback) {
+		
+		List<Location> vertices = Utils.createRectangularVertices(vertex0, vertex2);
+		
+		Utils.createClipAsync(vertices, new Function<SurfaceSampler, Clip>() {
+			
+			@Override
+			public Clip apply(SurfaceSampler sampler) {
+				return createClip(vertices, fillStorage, sampler);
+			}
+		}, plugin, callback);
+	}
+	
+	//creates a clip with unresolved heights if no sampler is passed
+	private static Clip createClip(List<Location> vertices, FillStorage fillStorage, SurfaceSampler sampler) {
 		
 		Vec2 minVertex = new Vec2(vertices.get(0));
 		Vec2 maxVertex = new Vec2(vertices.get(2)).add(1, 1);
-		Clip clip = new Clip(vertex0.getWorld());
+		Clip clip = new Clip(vertices.get(0).getWorld(), fillStorage);
 		
 		int maxY = Utils.getMaxHeight(vertices);
 		
 		for(int x = minVertex.getX(); x < maxVertex.getX(); x++) {
 			for(int z = minVertex.getZ(); z < maxVertex.getZ(); z++) {
 				
-				Vec2 loc = new Vec2(x, z);
-				int height = Utils.nearestSurfaceY(loc, maxY, clip.getWorld());
+				clip.addFill(x, z, sampler != null ? sampler.nearestSurfaceY(x, z, maxY) : Clip.unresolvedHeight(maxY));
 				
-				clip.addFill(loc, height);
-
 				if(isBorder(x, z, minVertex, maxVertex))
-					clip.addBorder(loc);
+					clip.addBorder(x, z);
 			}
 		}
 		
@@ -2,24 +2,44 @@ package me.gorgeousone.tangledmazeapi.core;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Stack;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.material.MaterialData;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import me.gorgeousone.tangledmazeapi.clip.*;
 import me.gorgeousone.tangledmazeapi.generation.BlockGenerator;
+import me.gorgeousone.tangledmazeapi.generation.BlockPlan;
 import me.gorgeousone.tangledmazeapi.generation.BuildMap;
+import me.gorgeousone.tangledmazeapi.generation.ChunkPlacementJob;
+import me.gorgeousone.tangledmazeapi.generation.EllerPathGenerator;
 import me.gorgeousone.tangledmazeapi.generation.PathGenerator;
+import me.gorgeousone.tangledmazeapi.util.BlockSink;
+import me.gorgeousone.tangledmazeapi.util.BlockStateSink;
 import me.gorgeousone.tangledmazeapi.util.Directions;
+import me.gorgeousone.tangledmazeapi.util.JournalUndoLog;
+import me.gorgeousone.tangledmazeapi.util.MemoryUndoLog;
+import me.gorgeousone.tangledmazeapi.util.PlacementScheduler;
+import me.gorgeousone.tangledmazeapi.util.SurfaceSampler;
+import me.gorgeousone.tangledmazeapi.util.UndoLog;
 import me.gorgeousone.tangledmazeapi.util.Utils;
 import me.gorgeousone.tangledmazeapi.util.Vec2;
 
@@ -38,11 +58,17 @@ public class Maze {
 	
 	private static IllegalStateException notAlterableException = new IllegalStateException("The maze cannot be altered when it is geerated.");
 	
+	//Directions.values() and cardinalValues() create a new array on every call
+	private static final Directions[]
+		ALL_DIRECTIONS = Directions.values(),
+		CARDINAL_DIRECTIONS = Directions.cardinalValues();
+	
 	private ActionHistory history;
 	private Clip clip;
 	private Stack<Vec2> exits;
 	private List<MaterialData> wallMaterials;
-	private List<BlockState> undoBlocks;
+	private UndoLog undoLog;
+	private File undoJournalFile;
 	
 	private int wallWidth;
 	private int wallHeight;
@@ -50,19 +76,26 @@ public class Maze {
 	private int pathLength;
 	
 	private boolean isGenerated;
-	private boolean isBeingGenerated;
+	//reset by the generating thread if the generation fails
+	private volatile boolean isBeingGenerated;
+	
+	private int placementTargetTickMillis;
+	private PlacementScheduler placement;
+	private BlockSink blockSink;
 	
 	public Maze(Clip clip) {
 		
 		setClip(clip);
 		history = new ActionHistory();
 		exits = new Stack<>();
-		undoBlocks = new ArrayList<>();
+		undoLog = new MemoryUndoLog();
 		
 		wallWidth = 1;
 		wallHeight = 2;
 		pathWidth = 1;
 		pathLength = 5;
+		placementTargetTickMillis = PlacementScheduler.DEFAULT_TARGET_TICK_MILLIS;
+		blockSink = new BlockStateSink();
 	}
 
 	public World getWorld() {
@@ -153,8 +186,112 @@ public class Maze {
 		wallMaterials = materials;
 	}
 	
+	public int getPlacementTargetTickMillis() {
+		return placementTargetTickMillis;
+	}
+	
+	/**
+	 * Sets the total tick time the placement of blocks tries to stay under when the maze is built or unbuilt.
+	 */
+	public void setPlacementTargetTickMillis(int millis) {
+		placementTargetTickMillis = Math.max(1, millis);
+	}
+	
+	public BlockSink getBlockSink() {
+		return blockSink;
+	}
+	
+	/**
+	 * Sets where the blocks are written to when the maze is built or unbuilt, a BlockStateSink by default.
+	 */
+	public void setBlockSink(BlockSink blockSink) {
+		this.blockSink = blockSink;
+	}
+	
+	/**
+	 * Returns the scheduler placing the blocks of the maze while it is being built or unbuilt, otherwise null.
+	 * It tells how fast blocks are placed and how many are left.
+	 */
+	public PlacementScheduler getPlacement() {
+		return placement;
+	}
+	
+	/**
+	 * Returns the log of the blocks the maze replaced while it was built.
+	 * It keeps the BlockData of the blocks with all their states, but not the contents of tile entities like the text of signs.
+	 */
+	public UndoLog getUndoLog() {
+		return undoLog;
+	}
+	
+	/**
+	 * Returns the blocks the maze replaced while it was built in the order they were replaced in, as BlockStates of their locations
+	 * with the BlockData they had. The list is created from the undo log on every call, so changing it does not change the log.
+	 * This has to be called on the main thread.
+	 *
+	 * @deprecated the replaced blocks are not kept as BlockStates anymore, use {@link #getUndoLog()}
+	 */
+	@Deprecated
 	public List<BlockState> getPreviousBlocks() {
-		return undoBlocks;
+		
+		List<BlockState> previousBlocks = new ArrayList<>();
+		
+		BlockSink stateCollector = new BlockSink() {
+			
+			@Override
+			public void setBlock(World world, int x, int y, int z, MaterialData data) {
+				
+				BlockState state = world.getBlockAt(x, y, z).getState();
+				state.setData(data);
+				previousBlocks.add(state);
+			}
+			
+			@Override
+			public void setBlock(World world, int x, int y, int z, BlockData data) {
+				
+				BlockState state = world.getBlockAt(x, y, z).getState();
+				state.setBlockData(data);
+				previousBlocks.add(state);
+			}
+			
+			@Override
+			public void flush() {}
+		};
+		
+		PlacementScheduler.PlacementJob restoreJob = undoLog.createRestoreJob(getWorld(), stateCollector);
+		
+		while(restoreJob.placeNext());
+		
+		//restore jobs go through the blocks in reverse
+		Collections.reverse(previousBlocks);
+		return previousBlocks;
+	}
+	
+	public File getUndoJournalFile() {
+		return undoJournalFile;
+	}
+	
+	/**
+	 * Sets a file the blocks replaced by building the maze are journaled to instead of keeping them on the heap,
+	 * or null to keep them on the heap. If the file contains the blocks of an earlier build, for example from before
+	 * the server restarted, the maze counts as generated and can be unbuilt with them.
+	 */
+	public void setUndoJournalFile(File file) {
+		
+		if(isGenerated() || isBeingGenerated())
+			throw new IllegalStateException("The undo journal cannot be changed while the maze is built.");
+		
+		undoJournalFile = file;
+		
+		if(file == null)
+			return;
+		
+		JournalUndoLog journal = new JournalUndoLog(file, getWorld());
+		
+		if(!journal.isEmpty()) {
+			undoLog = journal;
+			isGenerated = true;
+		}
 	}
 	
 	public boolean exitsContain(Vec2 loc) {
@@ -166,7 +303,7 @@ public class Maze {
 		if(!getClip().borderContains(loc))
 			return false;
 		
-		return sealsMaze(loc, Directions.cardinalValues());
+		return sealsMaze(loc, CARDINAL_DIRECTIONS);
 	}
 	
 	public boolean addExit(Vec2 loc) {
@@ -196,23 +333,80 @@ public class Maze {
 		if(isGenerated())
 			throw notAlterableException;
 		
-		for(Vec2 border : action.getRemovedBorder())
-			getClip().removeBorder(border);
-		
-		for(Vec2 fill : action.getRemovedFill().keySet())
-			getClip().removeFill(fill);
-
-		getClip().addAllFill(action.getAddedFill());
-		
-		for(Vec2 border : action.getAddedBorder())
-			getClip().addBorder(border);
-		
+		applyToClip(action);
 		exits.removeAll(action.getRemovedExits());
 
 		if(saveToHistory)
 			getActionHistory().pushAction(action);
 	}
 	
+	/*
+	 * Applies all changes in one pass over the changed locations in x-z-order, so the chunks of the clip are visited one after another.
+	 * The changes of a location are applied in the order border removal, fill removal, fill addition and border addition.
+	 * They do not affect other locations, so this is the same as applying each kind of change to all locations one after another.
+	 */
+	private void applyToClip(ClipAction action) {
+		
+		Clip clip = getClip();
+		
+		long[] removedBorder = action.getSortedRemovedBorder();
+		long[] removedFill = action.getSortedRemovedFill();
+		long[] addedFill = action.getSortedAddedFill();
+		long[] addedBorder = action.getSortedAddedBorder();
+		
+		clip.ensureCapacity(clip.size() + addedFill.length, clip.borderSize() + addedBorder.length);
+		
+		int removedBorderIndex = 0;
+		int removedFillIndex = 0;
+		int addedFillIndex = 0;
+		int addedBorderIndex = 0;
+		
+		while(true) {
+			
+			long loc = Math.min(
+				Math.min(head(removedBorder, removedBorderIndex), head(removedFill, removedFillIndex)),
+				Math.min(head(addedFill, addedFillIndex), head(addedBorder, addedBorderIndex)));
+			
+			int x = Vec2.unpackX(loc),
+				z = Vec2.unpackZ(loc);
+			
+			boolean isApplied = false;
+			
+			if(removedBorderIndex < removedBorder.length && removedBorder[removedBorderIndex] == loc) {
+				clip.removeBorder(x, z);
+				removedBorderIndex++;
+				isApplied = true;
+			}
+			
+			if(removedFillIndex < removedFill.length && removedFill[removedFillIndex] == loc) {
+				clip.removeFill(x, z);
+				removedFillIndex++;
+				isApplied = true;
+			}
+			
+			if(addedFillIndex < addedFill.length && addedFill[addedFillIndex] == loc) {
+				clip.addFill(x, z, action.getAddedHeight(loc, 0));
+				addedFillIndex++;
+				isApplied = true;
+			}
+			
+			if(addedBorderIndex < addedBorder.length && addedBorder[addedBorderIndex] == loc) {
+				clip.addBorder(x, z);
+				addedBorderIndex++;
+				isApplied = true;
+			}
+			
+			//all arrays are exhausted
+			if(!isApplied)
+				return;
+		}
+	}
+	
+	//returns the location at the index or the largest possible one if the array is exhausted
+	private static long head(long[] sortedLocs, int index) {
+		return index < sortedLocs.length ? sortedLocs[index] : Long.MAX_VALUE;
+	}
+	
 	/**
 	 * Returns a CliptAction to perform a merger of the Clip of this Maze with another Clip.
 	 * The method returns null if the other Clip is completely covered by the Clip of the Maze.
@@ -238,15 +432,74 @@ public class Maze {
 		return addition;
 	}
 	
+	//compares the clips chunk by chunk, fill of chunks fully covered by the maze is skipped and fill of chunks not touched by it is copied as a whole
 	private void addProtrudingFill(Clip otherClip, ClipAction addition) {
-
-		for(Entry<Vec2, Integer> otherFill : otherClip.getFillSet()) {
+		
+		if(canMergeSpans(otherClip)) {
+			addProtrudingSpans(otherClip, addition);
+			return;
+		}
+		
+		boolean boundsIntersect = getClip().boundsIntersect(otherClip, 0);
+		
+		for(ClipChunk otherChunk : otherClip.getChunks()) {
+			
+			ClipChunk ownChunk = boundsIntersect ? getClip().getChunk(otherChunk.getX(), otherChunk.getZ()) : null;
 			
-			if(!getClip().contains(otherFill.getKey()))
-				addition.addFill(otherFill.getKey(), otherFill.getValue());
+			if(ownChunk == null) {
+				
+				for(int i = otherChunk.nextFill(0); i != -1; i = otherChunk.nextFill(i+1))
+					addFill(otherClip, otherChunk, i, addition);
+				
+			}else if(!ownChunk.isFull()) {
+				
+				for(int i = otherChunk.nextFillNotIn(ownChunk, 0); i != -1; i = otherChunk.nextFillNotIn(ownChunk, i+1))
+					addFill(otherClip, otherChunk, i, addition);
+			}
 		}
 	}
 	
+	//compares the clips span by span, so only the gaps in the own fill along each span of the other clip are visited block by block
+	private void addProtrudingSpans(Clip otherClip, ClipAction addition) {
+		
+		FillStorage ownFill = getClip().getFillStorage();
+		FillStorage.SpanCursor otherSpans = otherClip.getFillStorage().spans();
+		
+		while(otherSpans.next()) {
+			
+			int z = otherSpans.getZ(),
+				maxX = otherSpans.getMaxX();
+			
+			int x = ownFill.nextMissing(z, otherSpans.getMinX(), maxX);
+			
+			while(x <= maxX) {
+				
+				int gapEnd = ownFill.nextContained(z, x, maxX);
+				
+				for(; x < gapEnd; x++)
+					addition.addFill(x, z, otherClip.getStoredHeight(x, z));
+				
+				x = ownFill.nextMissing(z, gapEnd, maxX);
+			}
+		}
+	}
+	
+	//run-length storages find the next contained or missing location of a row with a binary search,
+	//so a span by span merge only costs as much as the perimeter of the clips instead of their area like the chunk bitsets
+	private boolean canMergeSpans(Clip otherClip) {
+		
+		return getClip().getFillStorage() instanceof RunLengthFillStorage &&
+			otherClip.getFillStorage() instanceof RunLengthFillStorage;
+	}
+	
+	private void addFill(Clip otherClip, ClipChunk otherChunk, int index, ClipAction addition) {
+		
+		int x = otherChunk.getX(index),
+			z = otherChunk.getZ(index);
+		
+		addition.addFill(x, z, otherClip.getStoredHeight(x, z));
+	}
+	
 	private void addProtrudingBorder(Clip otherClip, ClipAction addition) {
 	
 		for(Vec2 otherBorder : otherClip.getBorder()) {
@@ -256,17 +509,34 @@ public class Maze {
 		}
 	}
 	
+	//only border next to or inside the other clip can be affected by it, the rest of the border keeps sealing the maze
 	private void removeEnclosedBorder(Clip otherClip, ClipAction addition) {
 		
-		for(Vec2 ownBorder : getClip().getBorder()) {
+		for(long ownBorder : getBorderAround(otherClip)) {
 			
-			if(otherClip.contains(ownBorder) &&
-			  !otherClip.borderContains(ownBorder) ||
-			  !sealsMaze(ownBorder, addition, Directions.values()))
-				addition.removeBorder(ownBorder);
+			int x = Vec2.unpackX(ownBorder),
+				z = Vec2.unpackZ(ownBorder);
+			
+			if(otherClip.contains(x, z) &&
+			  !otherClip.borderContains(x, z) ||
+			  !sealsMaze(x, z, addition, ALL_DIRECTIONS))
+				addition.removeBorder(x, z);
 		}
 	}
 	
+	//returns the border of the maze inside the other clip's bounding box and one block around it, sorted the same way as Clip.getBorder()
+	long[] getBorderAround(Clip otherClip) {
+		
+		if(!getClip().boundsIntersect(otherClip, 1))
+			return new long[0];
+		
+		return getClip().getBorderWithin(
+				otherClip.getMinX() - 1,
+				otherClip.getMinZ() - 1,
+				otherClip.getMaxX() + 1,
+				otherClip.getMaxZ() + 1);
+	}
+	
 	private void removeExitsInsideClip(Clip otherClip, ClipAction changes) {
 	
 		for(Vec2 exit : exits) {
@@ -276,6 +546,49 @@ public class Maze {
 		}
 	}
 	
+	/**
+	 * Does the same as getAddition(Clip) but splits the work into tasks for the passed pool.
+	 * The returned action is equal to the one of the sequential method.
+	 * Neither of the clips must be changed until the method returns.
+	 */
+	public ClipAction getAddition(Clip otherClip, ForkJoinPool pool) {
+		
+		if(!getWorld().equals(otherClip.getWorld()))
+			return null;
+		
+		calculateBounds(getClip(), otherClip);
+		ClipAction addition = new ClipAction(getClip());
+		ParallelMerge merge = new ParallelMerge(this, otherClip, pool);
+		
+		merge.addProtrudingFill(addition);
+		
+		if(addition.getAddedFill().isEmpty())
+			return null;
+		
+		merge.addProtrudingBorder(addition);
+		merge.removeEnclosedBorder(addition);
+		removeExitsInsideClip(otherClip, addition);
+		return addition;
+	}
+	
+	/**
+	 * Computes getAddition(Clip, ForkJoinPool) on the passed pool so that the calling thread does not have to wait for it.
+	 * Neither of the clips must be changed until the future is completed. The action should be processed on the main thread.
+	 * The bounds of both clips are calculated on the calling thread, so the threads of the pool only read them.
+	 */
+	public CompletableFuture<ClipAction> getAdditionAsync(Clip otherClip, ForkJoinPool pool) {
+		
+		calculateBounds(getClip(), otherClip);
+		
+		return CompletableFuture.supplyAsync(new Supplier<ClipAction>() {
+			
+			@Override
+			public ClipAction get() {
+				return getAddition(otherClip, pool);
+			}
+		}, pool);
+	}
+	
 	/**
 	 * Returns a CliptAction to perform a removal of a Clip from the Clip of this Maze.
 	 * The method returns null if the other Clip does not intersects the Clip of the Maze.
@@ -284,7 +597,7 @@ public class Maze {
 	 */
 	public ClipAction getDeletion(Clip clip) {
 		
-		if(!getWorld().equals(clip.getWorld()))
+		if(!getWorld().equals(clip.getWorld()) || !getClip().boundsIntersect(clip, 0))
 			return null;
 		
 		ClipAction deletion = new ClipAction(getClip());
@@ -303,10 +616,52 @@ public class Maze {
 	
 	private void removeOverlappingFill(Clip otherClip, ClipAction deletion) {
 		
-		for(Entry<Vec2, Integer> otherFill : otherClip.getFillSet()) {
+		if(canMergeSpans(otherClip)) {
+			removeOverlappingSpans(otherClip, deletion);
+			return;
+		}
+		
+		for(ClipChunk otherChunk : otherClip.getChunks()) {
 			
-			if(!otherClip.borderContains(otherFill.getKey()) && getClip().contains(otherFill.getKey()))
-				deletion.removeFill(otherFill.getKey(), otherFill.getValue());
+			ClipChunk ownChunk = getClip().getChunk(otherChunk.getX(), otherChunk.getZ());
+			
+			if(ownChunk == null)
+				continue;
+			
+			for(int i = otherChunk.nextInnerFillIn(ownChunk, 0); i != -1; i = otherChunk.nextInnerFillIn(ownChunk, i+1)) {
+				
+				int x = otherChunk.getX(i),
+					z = otherChunk.getZ(i);
+				
+				deletion.removeFill(x, z, otherClip.getStoredHeight(x, z));
+			}
+		}
+	}
+	
+	private void removeOverlappingSpans(Clip otherClip, ClipAction deletion) {
+		
+		FillStorage ownFill = getClip().getFillStorage();
+		FillStorage.SpanCursor otherSpans = otherClip.getFillStorage().spans();
+		
+		while(otherSpans.next()) {
+			
+			int z = otherSpans.getZ(),
+				maxX = otherSpans.getMaxX();
+			
+			int x = ownFill.nextContained(z, otherSpans.getMinX(), maxX);
+			
+			while(x <= maxX) {
+				
+				int overlapEnd = ownFill.nextMissing(z, x, maxX);
+				
+				for(; x < overlapEnd; x++) {
+					
+					if(!otherClip.borderContains(x, z))
+						deletion.removeFill(x, z, otherClip.getStoredHeight(x, z));
+				}
+				
+				x = ownFill.nextContained(z, overlapEnd, maxX);
+			}
 		}
 	}
 
@@ -321,12 +676,64 @@ public class Maze {
 
 	private void removeExcludedBorder(Clip otherClip, ClipAction deletion) {
 		
-		for(Vec2 ownBorder : getClip().getBorder()) {
+		for(long ownBorder : getBorderAround(otherClip)) {
+			
+			int x = Vec2.unpackX(ownBorder),
+				z = Vec2.unpackZ(ownBorder);
 			
-			if(!otherClip.borderContains(ownBorder) && !sealsMaze(ownBorder, deletion, Directions.values()))
-				deletion.removeBorder(ownBorder);
+			if(!otherClip.borderContains(x, z) && !sealsMaze(x, z, deletion, ALL_DIRECTIONS))
+				deletion.removeBorder(x, z);
 		}
 	}
+	
+	/**
+	 * Does the same as getDeletion(Clip) but splits the work into tasks for the passed pool.
+	 * The returned action is equal to the one of the sequential method.
+	 * Neither of the clips must be changed until the method returns.
+	 */
+	public ClipAction getDeletion(Clip clip, ForkJoinPool pool) {
+		
+		if(!getWorld().equals(clip.getWorld()) || !getClip().boundsIntersect(clip, 0))
+			return null;
+		
+		ClipAction deletion = new ClipAction(getClip());
+		ParallelMerge merge = new ParallelMerge(this, clip, pool);
+		
+		merge.removeOverlappingFill(deletion);
+		
+		if(deletion.getRemovedFill().isEmpty())
+			return null;
+		
+		merge.addIntersectingBorder(deletion);
+		merge.removeExcludedBorder(deletion);
+		removeExitsInsideClip(clip, deletion);
+		return deletion;
+	}
+	
+	/**
+	 * Computes getDeletion(Clip, ForkJoinPool) on the passed pool so that the calling thread does not have to wait for it.
+	 * Neither of the clips must be changed until the future is completed. The action should be processed on the main thread.
+	 * The bounds of both clips are calculated on the calling thread, so the threads of the pool only read them.
+	 */
+	public CompletableFuture<ClipAction> getDeletionAsync(Clip clip, ForkJoinPool pool) {
+		
+		calculateBounds(getClip(), clip);
+		
+		return CompletableFuture.supplyAsync(new Supplier<ClipAction>() {
+			
+			@Override
+			public ClipAction get() {
+				return getDeletion(clip, pool);
+			}
+		}, pool);
+	}
+	
+	//clips calculate their bounds when they are read first after a change, which must not happen on several threads at once
+	private static void calculateBounds(Clip clip, Clip otherClip) {
+		
+		clip.getMinX();
+		otherClip.getMinX();
+	}
 
 	/**
 	 * Returns a CliptAction to perform an expansion at the border of the Clip of this Maze.
@@ -351,7 +758,7 @@ public class Maze {
 		
 		expansion.removeBorder(loc);
 		
-		for(Directions dir : Directions.values()) {
+		for(Directions dir : ALL_DIRECTIONS) {
 			
 			Vec2 neighbor = loc.clone().add(dir.toVec2());
 			int height = Utils.nearestSurfaceY(neighbor, getClip().getHeight(loc), getWorld());
@@ -361,18 +768,18 @@ public class Maze {
 				expansion.addFill(neighbor, height);
 				expansion.addBorder(neighbor);
 				
-			}else if(exitsContain(neighbor) && !sealsMaze(neighbor, expansion, Directions.cardinalValues()))
+			}else if(exitsContain(neighbor) && !sealsMaze(neighbor, expansion, CARDINAL_DIRECTIONS))
 				expansion.removeExit(neighbor);
 		}
 	}
 	
 	private void removeIntrusiveBorder(Vec2 loc, ClipAction expansion) {
 		//look for neighbors, that are now intruding the border unnecessarily
-		for(Directions dir : Directions.values()) {
+		for(Directions dir : ALL_DIRECTIONS) {
 			
 			Vec2 neighbor = loc.clone().add(dir.toVec2());
-
-			if(getClip().borderContains(neighbor) && !sealsMaze(neighbor, expansion, Directions.values()))
+			
+			if(getClip().borderContains(neighbor) && !sealsMaze(neighbor, expansion, ALL_DIRECTIONS))
 				expansion.removeBorder(neighbor);
 		}
 	}
@@ -405,32 +812,32 @@ public class Maze {
 			erasure.removeExit(loc);
 		
 		erasure.removeBorder(loc);
-		erasure.removeFill(loc, getClip().getHeight(loc));
+		erasure.removeFill(loc, getClip().getStoredHeight(loc));
 		
-		if(!sealsMaze(loc, erasure, Directions.values()))
+		if(!sealsMaze(loc, erasure, ALL_DIRECTIONS))
 			return;
 		
-		for(Directions dir : Directions.values()) {
+		for(Directions dir : ALL_DIRECTIONS) {
 			Vec2 neighbor = loc.clone().add(dir.toVec2());
 			
 			if(getClip().contains(neighbor) && !getClip().borderContains(neighbor))
 				erasure.addBorder(neighbor);
 			
-			if(exitsContain(neighbor) && !sealsMaze(neighbor, erasure, Directions.cardinalValues()))
+			if(exitsContain(neighbor) && !sealsMaze(neighbor, erasure, CARDINAL_DIRECTIONS))
 				erasure.removeExit(neighbor);
 		}
 	}
 	
 	private void removeProtrusiveBorder(Vec2 loc, ClipAction erasure) {
 		//detect outstanding neighbor borders of the block
-		for(Directions dir : Directions.values()) {
-
+		for(Directions dir : ALL_DIRECTIONS) {
+			
 			Vec2 neighbor = loc.clone().add(dir.toVec2());
 			
 			//remove the neighbor if it still stands out
-			if(getClip().borderContains(neighbor) && !sealsMaze(neighbor, erasure, Directions.values())) {
+			if(getClip().borderContains(neighbor) && !sealsMaze(neighbor, erasure, ALL_DIRECTIONS)) {
 				
-				int height = getClip().getHeight(neighbor);
+				int height = getClip().getStoredHeight(neighbor);
 				erasure.removeBorder(neighbor);
 				erasure.removeFill(neighbor, height);
 			}
@@ -442,22 +849,61 @@ public class Maze {
 	}
 
 	public boolean sealsMaze(Vec2 loc, Directions[] directions) {
-		return sealsMaze(loc, new ClipAction(getClip()), directions);
+		return sealsMaze(loc.getX(), loc.getZ(), directions);
+	}
+	
+	/**
+	 * Returns true if the location touches both fill (that is not border) and locations outside of the clip
+	 * in the passed directions. The clip is checked as it is, without any pending changes.
+	 */
+	public boolean sealsMaze(int x, int z, Directions[] directions) {
+		
+		boolean touchesFill = false;
+		boolean touchesExternal = false;
+		
+		for(Directions dir : directions) {
+			
+			int neighborX = x + dir.getX(),
+				neighborZ = z + dir.getZ();
+			
+			if(!getClip().contains(neighborX, neighborZ))
+				touchesExternal = true;
+			
+			else if(!getClip().borderContains(neighborX, neighborZ))
+				touchesFill = true;
+			
+			if(touchesFill && touchesExternal)
+				return true;
+		}
+		
+		return false;
 	}
 	
 	public boolean sealsMaze(Vec2 loc, ClipAction changes, Directions[] directions) {
+		return sealsMaze(loc.getX(), loc.getZ(), changes, directions);
+	}
+	
+	/**
+	 * Returns true if the location touches both fill (that is not border) and locations outside of the clip
+	 * in the passed directions, as if the ClipAction was already processed.
+	 */
+	public boolean sealsMaze(int x, int z, ClipAction changes, Directions[] directions) {
+		
+		if(changes.isEmpty())
+			return sealsMaze(x, z, directions);
 		
 		boolean touchesFill = false;
 		boolean touchesExternal = false;
 		
 		for(Directions dir : directions) {
 			
-			Vec2 neighbor = loc.clone().add(dir.toVec2());
+			int neighborX = x + dir.getX(),
+				neighborZ = z + dir.getZ();
 			
-			if(!changes.clipWillContain(neighbor))
+			if(!changes.clipWillContain(neighborX, neighborZ))
 				touchesExternal = true;
-
-			else if(!changes.clipBorderWillContain(getClip(), neighbor))
+			
+			else if(!changes.clipBorderWillContain(neighborX, neighborZ))
 				touchesFill = true;
 			
 			if(touchesFill && touchesExternal)
@@ -471,9 +917,93 @@ public class Maze {
 		
 		if(isGenerated())
 			throw notAlterableException;
-
-		for(Entry<Vec2, Integer> fill : getClip().getFillSet())
-			getClip().addFill(fill.getKey(), Utils.nearestSurfaceY(fill.getKey(), fill.getValue(), getWorld()));
+		
+		SurfaceSampler sampler = captureClipChunks();
+		long[] locs = new long[getClip().size()];
+		int[] heights = new int[locs.length];
+		
+		copyFill(locs, heights);
+		sampler.nearestSurfaceYs(locs, heights, 0, locs.length);
+		applyHeights(locs, heights);
+	}
+	
+	/**
+	 * Does the same as updateHeights() but searches the surfaces on another thread.
+	 * The chunks of the clip are captured and the new heights are applied on the main thread, the callback is called after that.
+	 */
+	public void updateHeightsAsync(Plugin plugin, ActionListener callback) {
+		
+		if(isGenerated())
+			throw notAlterableException;
+		
+		SurfaceSampler sampler = captureClipChunks();
+		long[] locs = new long[getClip().size()];
+		int[] heights = new int[locs.length];
+		
+		copyFill(locs, heights);
+		
+		new BukkitRunnable() {
+			
+			@Override
+			public void run() {
+				
+				sampler.nearestSurfaceYs(locs, heights, 0, locs.length);
+				
+				new BukkitRunnable() {
+					
+					@Override
+					public void run() {
+						
+						if(!isGenerated())
+							applyHeights(locs, heights);
+						
+						if(callback != null)
+							callback.actionPerformed(null);
+					}
+				}.runTask(plugin);
+			}
+		}.runTaskAsynchronously(plugin);
+	}
+	
+	private SurfaceSampler captureClipChunks() {
+		
+		SurfaceSampler sampler = new SurfaceSampler(getWorld());
+		
+		for(ClipChunk chunk : getClip().getChunks())
+			sampler.captureChunk(chunk.getX(), chunk.getZ());
+		
+		return sampler;
+	}
+	
+	//copies the fill chunk by chunk so that the sampler only looks up every snapshot once
+	private void copyFill(long[] locs, int[] heights) {
+		
+		int i = 0;
+		
+		for(ClipChunk chunk : getClip().getChunks()) {
+			for(int k = chunk.nextFill(0); k != -1; k = chunk.nextFill(k+1)) {
+				
+				int x = chunk.getX(k),
+					z = chunk.getZ(k);
+				
+				locs[i] = Vec2.pack(x, z);
+				heights[i] = Clip.getStartHeight(getClip().getStoredHeight(x, z));
+				i++;
+			}
+		}
+	}
+	
+	//locations removed from the clip in the meantime are skipped
+	private void applyHeights(long[] locs, int[] heights) {
+		
+		for(int i = 0; i < locs.length; i++) {
+			
+			int x = Vec2.unpackX(locs[i]),
+				z = Vec2.unpackZ(locs[i]);
+			
+			if(getClip().contains(x, z))
+				getClip().addFill(x, z, heights[i]);
+		}
 	}
 	
 	public Location updateHeight(Block block) {
@@ -507,35 +1037,222 @@ public class Maze {
 			throw new IllegalStateException("No materials defined to build this maze.");
 		
 		isBeingGenerated = true;
-
+		undoLog = createUndoLog();
+		//the build map is created on another thread, which cannot resolve heights
+		getClip().resolveHeights();
+		
 		new BukkitRunnable() {
 			
 			@Override
 			public void run() {
 				
 				BuildMap buildMap = new BuildMap(Maze.this);
+				boolean isPlanned = false;
 				
-				pathGenerator.generateMazePaths(buildMap);
-				blockGenerator.generateMazeBlocks(buildMap, plugin, new ActionListener() {
+				try {
+					pathGenerator.generateMazePaths(buildMap);
+					blockGenerator.generateMazeBlocks(buildMap, plugin, new ActionListener() {
+						
+						@Override
+						public void actionPerformed(ActionEvent event) {
+							
+							buildMap.close();
+							placeBlocksContinuously(buildMap.getBlockPlan(), plugin, new ActionListener() {
+								
+								@Override
+								public void actionPerformed(ActionEvent e) {
+									
+									undoLog.close();
+									isBeingGenerated = false;
+									isGenerated = true;
+								}
+							});
+						}
+					});
 					
-					@Override
-					public void actionPerformed(ActionEvent event) {
+					isPlanned = true;
+				
+				//no block has been placed yet, so the maze can be built again after a failure
+				}finally {
+					
+					if(!isPlanned) {
+						buildMap.close();
+						isBeingGenerated = false;
+					}
+				}
+			}
+		}.runTaskAsynchronously(plugin);
+	}
+	
+	/**
+	 * Builds the maze like buildMaze() but generates it one row of cells after another on another thread.
+	 * The finished rows are handed to the main thread through a small queue and their blocks are placed right away,
+	 * so only a few rows of the maze are held in memory at once, no matter how long the maze is.
+	 * If the generation fails, the rows placed so far are unbuilt again and the exception is logged by the plugin.
+	 */
+	public void buildMazeInRows(EllerPathGenerator pathGenerator, BlockGenerator blockGenerator, Plugin plugin) {
+		
+		if(!hasClip())
+			throw new NullPointerException("No clip has been set for this maze.");
+		
+		if(isGenerated())
+			throw new IllegalStateException("The maze is already generated.");
+		
+		if(isBeingGenerated())
+			throw new IllegalStateException("The maze is already being generated.");
+		
+		if(getExits().isEmpty())
+			throw new IllegalStateException("No exit(s) defined for this maze.");
+		
+		if(getWallMaterials() == null)
+			throw new IllegalStateException("No materials defined to build this maze.");
+		
+		isBeingGenerated = true;
+		undoLog = createUndoLog();
+		getClip().resolveHeights();
+		
+		//bounded, so the generating thread waits for the main thread instead of filling the memory with rows
+		BlockingQueue<BlockPlan> finishedRows = new ArrayBlockingQueue<>(4);
+		AtomicBoolean isGeneratingRows = new AtomicBoolean(true);
+		AtomicReference<RuntimeException> generationFailure = new AtomicReference<>();
+		
+		new BukkitRunnable() {
+			
+			@Override
+			public void run() {
+				
+				try {
+					pathGenerator.generateRows(Maze.this, new EllerPathGenerator.RowListener() {
 						
-						Utils.updateBlocksContinuously(buildMap.getGeneratedBlocks(), plugin, new ActionListener() {
+						@Override
+						public void rowFinished(BuildMap rowMap) {
+							
+							blockGenerator.smoothWalls(rowMap);
+							BlockPlan rowPlan = blockGenerator.planWallBlocks(rowMap, plugin);
+							rowMap.close();
 							
-							@Override
-							public void actionPerformed(ActionEvent e) {
-								isBeingGenerated = false;
-								isGenerated = true;
-								undoBlocks.addAll(buildMap.getUndoBlocks());
+							try {
+								finishedRows.put(rowPlan);
+								
+							}catch(InterruptedException e) {
+								Thread.currentThread().interrupt();
+								throw new IllegalStateException("The generation of the maze was interrupted.", e);
 							}
-						});
+						}
+					});
+					
+				}catch(RuntimeException ex) {
+					generationFailure.set(ex);
+					
+				}finally {
+					isGeneratingRows.set(false);
+				}
+			}
+		}.runTaskAsynchronously(plugin);
+		
+		ChunkPlacementJob rowPlacement = new ChunkPlacementJob(getWorld(), undoLog, blockSink);
+		
+		startPlacement(new PlacementScheduler.PlacementJob() {
+			
+			@Override
+			public boolean placeNext() {
+				
+				BlockPlan rowPlan;
+				
+				if(generationFailure.get() != null)
+					return false;
+				
+				//all finished rows are taken at once, so chunks reaching over several rows can be placed in one go
+				while((rowPlan = finishedRows.poll()) != null)
+					rowPlacement.add(rowPlan);
+				
+				return rowPlacement.placeNext();
+			}
+			
+			@Override
+			public int getRemaining() {
+				
+				int remaining = rowPlacement.getRemaining();
+				
+				for(BlockPlan plan : finishedRows)
+					remaining += plan.size();
+				
+				return remaining;
+			}
+			
+			//the flag is read before looking at the queue, so no row can be put into it unnoticed
+			@Override
+			public boolean isDone() {
+				return !isGeneratingRows.get() && (generationFailure.get() != null || finishedRows.isEmpty() && rowPlacement.isDone());
+			}
+			
+			@Override
+			public void flush() {
+				rowPlacement.flush();
+			}
+		}, plugin, new ActionListener() {
+			
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				
+				undoLog.close();
+				RuntimeException failure = generationFailure.get();
+				
+				if(failure == null) {
+					isBeingGenerated = false;
+					isGenerated = true;
+					return;
+				}
+				
+				plugin.getLogger().log(Level.SEVERE, "The generation of a maze failed, the rows built so far are removed again.", failure);
+				
+				startPlacement(undoLog.createRestoreJob(getWorld(), blockSink), plugin, new ActionListener() {
+					
+					@Override
+					public void actionPerformed(ActionEvent event) {
+						
+						undoLog.clear();
+						isBeingGenerated = false;
 					}
 				});
 			}
-		}.runTaskAsynchronously(plugin);
+		});
+	}
+	
+	//places the blocks of the plan chunk by chunk over several ticks and keeps the states they had before to unbuild the maze
+	private void placeBlocksContinuously(BlockPlan plan, Plugin plugin, ActionListener callback) {
+		
+		ChunkPlacementJob job = new ChunkPlacementJob(getWorld(), undoLog, blockSink);
+		job.add(plan);
+		startPlacement(job, plugin, callback);
+	}
+	
+	private UndoLog createUndoLog() {
+		return undoJournalFile != null ? new JournalUndoLog(undoJournalFile, getWorld()) : new MemoryUndoLog();
+	}
+	
+	private void startPlacement(PlacementScheduler.PlacementJob job, Plugin plugin, ActionListener callback) {
+		
+		placement = new PlacementScheduler(job, new ActionListener() {
+			
+			@Override
+			public void actionPerformed(ActionEvent event) {
+				
+				placement = null;
+				
+				if(callback != null)
+					callback.actionPerformed(event);
+			}
+		});
+		
+		placement.setTargetTickMillis(placementTargetTickMillis);
+		placement.start(plugin);
 	}
 	
+	/**
+	 * Restores the blocks the maze replaced over the next ticks. Blocks get back all their states,
+	 * but tile entities among them, like signs or banners, lose their contents since the undo log does not keep them.
+	 */
 	public void unbuild(Plugin plugin) {
 		
 		if(!isGenerated())
@@ -544,12 +1261,13 @@ public class Maze {
 		if(isBeingGenerated())
 			throw new IllegalStateException("The maze is still being generated.");
 		
-		Utils.updateBlocksContinuously(getPreviousBlocks(), plugin, new ActionListener() {
+		startPlacement(undoLog.createRestoreJob(getWorld(), blockSink), plugin, new ActionListener() {
+			
 			@Override
 			public void actionPerformed(ActionEvent event) {
 				
 				isGenerated = false;
-				undoBlocks.clear();
+				undoLog.clear();
 				updateHeights();
 			}
 		});
@@ -0,0 +1,383 @@
+package me.gorgeousone.tangledmazeapi.core;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import me.gorgeousone.tangledmazeapi.clip.Clip;
+import me.gorgeousone.tangledmazeapi.clip.ClipAction;
+import me.gorgeousone.tangledmazeapi.clip.ClipChunk;
+import me.gorgeousone.tangledmazeapi.util.Directions;
+import me.gorgeousone.tangledmazeapi.util.LongHashSet;
+import me.gorgeousone.tangledmazeapi.util.Vec2;
+
+/**
+ * Runs the passes of Maze.getAddition() and Maze.getDeletion() as tasks on a fork join pool.
+ * The tasks only read the clips and write their results into arrays, one slot per chunk or border location.
+ * The results are added to the ClipAction afterwards in the same order the sequential passes use,
+ * so both ways create equal actions.
+ */
+final class ParallelMerge {
+	
+	private static final Directions[] ALL_DIRECTIONS = Directions.values();
+	
+	//how many chunks or border locations a task handles without splitting itself
+	private static final int CHUNKS_PER_TASK = 4;
+	private static final int BORDER_PER_TASK = 1024;
+	
+	//states of border locations during the enclosed or excluded border sweep
+	private static final byte
+		KEEP = 0,
+		REMOVE = 1,
+		SEALING = 2,
+		NOT_SEALING = 3;
+	
+	private Maze maze;
+	private Clip otherClip;
+	private ForkJoinPool pool;
+	
+	ParallelMerge(Maze maze, Clip otherClip, ForkJoinPool pool) {
+		
+		this.maze = maze;
+		this.otherClip = otherClip;
+		this.pool = pool;
+	}
+	
+	void addProtrudingFill(ClipAction addition) {
+		
+		Clip clip = maze.getClip();
+		List<ClipChunk> otherChunks = otherClip.getChunks();
+		boolean boundsIntersect = clip.boundsIntersect(otherClip, 0);
+		ChunkFill[] results = new ChunkFill[otherChunks.size()];
+		
+		run(otherChunks.size(), CHUNKS_PER_TASK, null, new RangeJob() {
+			
+			@Override
+			public void run(int from, int to) {
+				
+				for(int i = from; i < to; i++) {
+					
+					ClipChunk otherChunk = otherChunks.get(i);
+					ClipChunk ownChunk = boundsIntersect ? clip.getChunk(otherChunk.getX(), otherChunk.getZ()) : null;
+					ChunkFill chunkFill = new ChunkFill(otherChunk);
+					
+					if(ownChunk == null) {
+						
+						for(int k = otherChunk.nextFill(0); k != -1; k = otherChunk.nextFill(k+1))
+							chunkFill.add(k, otherClip);
+						
+					}else if(!ownChunk.isFull()) {
+						
+						for(int k = otherChunk.nextFillNotIn(ownChunk, 0); k != -1; k = otherChunk.nextFillNotIn(ownChunk, k+1))
+							chunkFill.add(k, otherClip);
+					}
+					
+					results[i] = chunkFill;
+				}
+			}
+		});
+		
+		for(ChunkFill chunkFill : results) {
+			for(int i = 0; i < chunkFill.size; i++)
+				addition.addFill(chunkFill.getX(i), chunkFill.getZ(i), chunkFill.heights[i]);
+		}
+	}
+	
+	void removeOverlappingFill(ClipAction deletion) {
+		
+		Clip clip = maze.getClip();
+		List<ClipChunk> otherChunks = otherClip.getChunks();
+		ChunkFill[] results = new ChunkFill[otherChunks.size()];
+		
+		run(otherChunks.size(), CHUNKS_PER_TASK, null, new RangeJob() {
+			
+			@Override
+			public void run(int from, int to) {
+				
+				for(int i = from; i < to; i++) {
+					
+					ClipChunk otherChunk = otherChunks.get(i);
+					ClipChunk ownChunk = clip.getChunk(otherChunk.getX(), otherChunk.getZ());
+					ChunkFill chunkFill = new ChunkFill(otherChunk);
+					
+					if(ownChunk != null) {
+						
+						for(int k = otherChunk.nextInnerFillIn(ownChunk, 0); k != -1; k = otherChunk.nextInnerFillIn(ownChunk, k+1))
+							chunkFill.add(k, otherClip);
+					}
+					
+					results[i] = chunkFill;
+				}
+			}
+		});
+		
+		for(ChunkFill chunkFill : results) {
+			for(int i = 0; i < chunkFill.size; i++)
+				deletion.removeFill(chunkFill.getX(i), chunkFill.getZ(i), chunkFill.heights[i]);
+		}
+	}
+	
+	void addProtrudingBorder(ClipAction addition) {
+		
+		Clip clip = maze.getClip();
+		long[] otherBorder = otherClip.getSortedBorder();
+		boolean[] isAdded = new boolean[otherBorder.length];
+		
+		run(otherBorder.length, BORDER_PER_TASK, otherBorder, new RangeJob() {
+			
+			@Override
+			public void run(int from, int to) {
+				
+				for(int i = from; i < to; i++)
+					isAdded[i] = !clip.contains(Vec2.unpackX(otherBorder[i]), Vec2.unpackZ(otherBorder[i]));
+			}
+		});
+		
+		addBorder(otherBorder, isAdded, addition);
+	}
+	
+	void addIntersectingBorder(ClipAction deletion) {
+		
+		Clip clip = maze.getClip();
+		long[] otherBorder = otherClip.getSortedBorder();
+		boolean[] isAdded = new boolean[otherBorder.length];
+		
+		run(otherBorder.length, BORDER_PER_TASK, otherBorder, new RangeJob() {
+			
+			@Override
+			public void run(int from, int to) {
+				
+				for(int i = from; i < to; i++) {
+					
+					int x = Vec2.unpackX(otherBorder[i]),
+						z = Vec2.unpackZ(otherBorder[i]);
+					
+					isAdded[i] = !clip.borderContains(x, z) && clip.contains(x, z);
+				}
+			}
+		});
+		
+		addBorder(otherBorder, isAdded, deletion);
+	}
+	
+	void removeEnclosedBorder(ClipAction addition) {
+		
+		long[] ownBorder = maze.getBorderAround(otherClip);
+		byte[] states = new byte[ownBorder.length];
+		
+		run(ownBorder.length, BORDER_PER_TASK, ownBorder, new RangeJob() {
+			
+			@Override
+			public void run(int from, int to) {
+				
+				for(int i = from; i < to; i++) {
+					
+					int x = Vec2.unpackX(ownBorder[i]),
+						z = Vec2.unpackZ(ownBorder[i]);
+					
+					if(otherClip.contains(x, z) && !otherClip.borderContains(x, z))
+						states[i] = REMOVE;
+					else
+						states[i] = sealingState(x, z, addition);
+				}
+			}
+		});
+		
+		sweepBorder(ownBorder, states, addition);
+	}
+	
+	void removeExcludedBorder(ClipAction deletion) {
+		
+		long[] ownBorder = maze.getBorderAround(otherClip);
+		byte[] states = new byte[ownBorder.length];
+		
+		run(ownBorder.length, BORDER_PER_TASK, ownBorder, new RangeJob() {
+			
+			@Override
+			public void run(int from, int to) {
+				
+				for(int i = from; i < to; i++) {
+					
+					int x = Vec2.unpackX(ownBorder[i]),
+						z = Vec2.unpackZ(ownBorder[i]);
+					
+					if(otherClip.borderContains(x, z))
+						states[i] = KEEP;
+					else
+						states[i] = sealingState(x, z, deletion);
+				}
+			}
+		});
+		
+		sweepBorder(ownBorder, states, deletion);
+	}
+	
+	private byte sealingState(int x, int z, ClipAction action) {
+		return maze.sealsMaze(x, z, action, ALL_DIRECTIONS) ? SEALING : NOT_SEALING;
+	}
+	
+	/*
+	 * The sequential passes remove border while iterating it in x-z-order and every sealing check sees the removals before it.
+	 * The sealing states were checked before any removal, so they are only checked again if a neighbor
+	 * coming earlier in x-z-order has been removed in the meantime.
+	 */
+	private void sweepBorder(long[] border, byte[] states, ClipAction action) {
+		
+		LongHashSet removedBorder = new LongHashSet();
+		
+		for(int i = 0; i < border.length; i++) {
+			
+			int x = Vec2.unpackX(border[i]),
+				z = Vec2.unpackZ(border[i]);
+			
+			boolean isRemoved;
+			
+			if(states[i] == KEEP)
+				isRemoved = false;
+			
+			else if(states[i] == REMOVE)
+				isRemoved = true;
+			
+			else if(hasRemovedNeighbor(x, z, removedBorder))
+				isRemoved = !maze.sealsMaze(x, z, action, ALL_DIRECTIONS);
+			
+			else
+				isRemoved = states[i] == NOT_SEALING;
+			
+			if(isRemoved) {
+				
+				action.removeBorder(x, z);
+				removedBorder.add(border[i]);
+			}
+		}
+	}
+	
+	//only the neighbors coming before a location in x-z-order can have been removed already
+	private static boolean hasRemovedNeighbor(int x, int z, LongHashSet removedBorder) {
+		return
+			removedBorder.contains(Vec2.pack(x-1, z-1)) ||
+			removedBorder.contains(Vec2.pack(x-1, z)) ||
+			removedBorder.contains(Vec2.pack(x-1, z+1)) ||
+			removedBorder.contains(Vec2.pack(x, z-1));
+	}
+	
+	private static void addBorder(long[] border, boolean[] isAdded, ClipAction action) {
+		
+		for(int i = 0; i < border.length; i++) {
+			
+			if(isAdded[i])
+				action.addBorder(Vec2.unpackX(border[i]), Vec2.unpackZ(border[i]));
+		}
+	}
+	
+	private void run(int size, int grain, long[] sortedLocs, RangeJob job) {
+		
+		if(size > 0)
+			pool.invoke(new RangeTask(job, 0, size, grain, sortedLocs));
+	}
+	
+	private interface RangeJob {
+		void run(int from, int to);
+	}
+	
+	/**
+	 * Splits a range of indices in halves until it is small enough to run the job on it.
+	 * If sorted locations are passed, ranges are only split between different columns of chunks.
+	 */
+	private static class RangeTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private RangeJob job;
+		private int from;
+		private int to;
+		private int grain;
+		private long[] sortedLocs;
+		
+		RangeTask(RangeJob job, int from, int to, int grain, long[] sortedLocs) {
+			
+			this.job = job;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+			this.sortedLocs = sortedLocs;
+		}
+		
+		@Override
+		protected void compute() {
+			
+			int middle = to - from > grain ? splitIndex() : -1;
+			
+			if(middle == -1) {
+				job.run(from, to);
+				return;
+			}
+			
+			invokeAll(
+				new RangeTask(job, from, middle, grain, sortedLocs),
+				new RangeTask(job, middle, to, grain, sortedLocs));
+		}
+		
+		//returns an index between from and to where the range can be split or -1
+		private int splitIndex() {
+			
+			int middle = (from + to) >>> 1;
+			
+			if(sortedLocs == null)
+				return middle;
+			
+			int splitForward = middle;
+			
+			while(splitForward < to && chunkXAt(splitForward) == chunkXAt(splitForward - 1))
+				splitForward++;
+			
+			if(splitForward < to)
+				return splitForward;
+			
+			int splitBackward = middle;
+			
+			while(splitBackward > from && chunkXAt(splitBackward) == chunkXAt(splitBackward - 1))
+				splitBackward--;
+			
+			return splitBackward > from ? splitBackward : -1;
+		}
+		
+		private int chunkXAt(int index) {
+			return Vec2.unpackX(sortedLocs[index]) >> 4;
+		}
+	}
+	
+	//the locations of one chunk a pass found and their heights in the other clip
+	private static class ChunkFill {
+		
+		private ClipChunk chunk;
+		private int[] indices;
+		private int[] heights;
+		private int size;
+		
+		ChunkFill(ClipChunk chunk) {
+			
+			this.chunk = chunk;
+			indices = new int[chunk.fillCount()];
+			heights = new int[chunk.fillCount()];
+		}
+		
+		void add(int index, Clip clip) {
+			
+			int x = chunk.getX(index),
+				z = chunk.getZ(index);
+			
+			indices[size] = index;
+			heights[size] = clip.getStoredHeight(x, z);
+			size++;
+		}
+		
+		int getX(int i) {
+			return chunk.getX(indices[i]);
+		}
+		
+		int getZ(int i) {
+			return chunk.getZ(indices[i]);
+		}
+	}
+}
\ No newline at end of file
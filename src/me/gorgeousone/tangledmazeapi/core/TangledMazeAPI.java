@@ -3,11 +3,13 @@ package me.gorgeousone.tangledmazeapi.core;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import me.gorgeousone.tangledmazeapi.data.Constants;
+import me.gorgeousone.tangledmazeapi.util.SurfaceCache;
 
 public class TangledMazeAPI extends JavaPlugin {
 
 	@Override
 	public void onEnable() {
 		Constants.loadConstants(this);
+		getServer().getPluginManager().registerEvents(SurfaceCache.getInstance(), this);
 	}
 }
\ No newline at end of file
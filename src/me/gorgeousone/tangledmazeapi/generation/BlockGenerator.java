@@ -1,115 +1,182 @@
 package me.gorgeousone.tangledmazeapi.generation;
 
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
-import org.bukkit.Location;
-import org.bukkit.block.Block;
-import org.bukkit.block.BlockState;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.material.MaterialData;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import me.gorgeousone.tangledmazeapi.core.Maze;
 import me.gorgeousone.tangledmazeapi.util.Directions;
+import me.gorgeousone.tangledmazeapi.util.SurfaceSampler;
 import me.gorgeousone.tangledmazeapi.util.Utils;
-import me.gorgeousone.tangledmazeapi.util.Vec2;
 
 /**
  * A class that smoothes the height of walls in a BuildMap and 
- * calculates all BlockStates that need to be updated in order to generate the maze.
+ * works out all blocks that need to be placed in order to generate the maze.
  */
 @SuppressWarnings("deprecation")
 public class BlockGenerator {
 	
+	private static final Directions[] ALL_DIRECTIONS = Directions.values();
+	
+	//how many chunks are captured in one go on the main thread
+	private static final int CHUNKS_PER_CAPTURE = 64;
+	
 	protected Random rnd;
 
 	public BlockGenerator() {
 		rnd = new Random();
 	}
 	
+	/**
+	 * Smoothes the walls of the BuildMap and sets the BlockPlan of it. The blocks are worked out like with planWallBlocks(),
+	 * so this must not be called on the main thread. The callback is called on the main thread afterwards.
+	 */
 	public void generateMazeBlocks(BuildMap buildMap, Plugin plugin, ActionListener callBack) {
 		
-		cullTrees(buildMap);
-		raiseTooLowWalls(buildMap);
+		smoothWalls(buildMap);
+		buildMap.setBlockPlan(planWallBlocks(buildMap, plugin));
 		
 		new BukkitRunnable() {
 			
 			@Override
 			public void run() {
 				
-				Maze maze = buildMap.getMaze();
-
-				List<MaterialData> wallMaterials = maze.getWallMaterials();
-				List<BlockState> blocksToUpdate = new ArrayList<>();
-				List<BlockState> backupBlocks = new ArrayList<>();
-
-				for(int x = buildMap.getMinX(); x < buildMap.getMaxX(); x++) {
-					for(int z = buildMap.getMinZ(); z < buildMap.getMaxZ(); z++) {
-						
-						if(buildMap.getType(x, z) != MazeFillType.WALL)
-							continue;
-						
-						for(int height = buildMap.getGroundHeight(x, z) + 1; height <= buildMap.getMazeHeight(x, z); height++) {
-							
-							Block block = new Location(maze.getWorld(), x, height, z).getBlock();
-							
-							if(Utils.canBeOverbuild(block.getType())) {
-								
-								MaterialData rndMaterial = wallMaterials.get(rnd.nextInt(wallMaterials.size()));
-								
-								BlockState blockToUpdate = block.getState();
-								blockToUpdate.setData(rndMaterial);
-								
-								blocksToUpdate.add(blockToUpdate);
-								backupBlocks.add(block.getState());
-							}
-						}
-					}
-				}
-				
-				buildMap.setPreviousBlocks(backupBlocks);
-				buildMap.setGeneratedBlocks(blocksToUpdate);
-				
 				if(callBack != null)
 					callBack.actionPerformed(null);
-				
 			}
 		}.runTask(plugin);
 	}
 	
 	/**
-	 * A method that lowers wall heights in a BuildMap at points where single spikes of wall would stick out.
+	 * Adapts the heights of walls and paths in the BuildMap to their surroundings. This can be done on any thread.
 	 */
-	protected void cullTrees(BuildMap buildMap) {
+	public void smoothWalls(BuildMap buildMap) {
 		
-		int wallHeight = buildMap.getMaze().getWallHeight();
-
-		for(int x = buildMap.getMinX(); x < buildMap.getMaxX(); x++) {
-			for(int z = buildMap.getMinZ(); z < buildMap.getMaxZ(); z++) {
+		cullTrees(buildMap);
+		raiseTooLowWalls(buildMap);
+	}
+	
+	/**
+	 * Works out which blocks of the walls in the rows of the BuildMap between getPartMinZ() and getPartMaxZ()
+	 * can be built and which material each of them gets. Only snapshots of the chunks are taken on the main thread,
+	 * a few columns of chunks at a time, and the blocks are looked up in them on the calling thread.
+	 * So this must not be called on the main thread, it waits for it.
+	 */
+	public BlockPlan planWallBlocks(BuildMap buildMap, Plugin plugin) {
+		
+		Maze maze = buildMap.getMaze();
+		List<MaterialData> wallMaterials = maze.getWallMaterials();
+		
+		BlockPlan plan = new BlockPlan(maze.getWorld());
+		SurfaceSampler sampler = new SurfaceSampler(maze.getWorld());
+		
+		int minChunkZ = buildMap.getPartMinZ() >> 4,
+			maxChunkZ = buildMap.getPartMaxZ() - 1 >> 4;
+		
+		int chunkColumnsPerCapture = Math.max(1, CHUNKS_PER_CAPTURE / (maxChunkZ - minChunkZ + 1));
+		int capturedMaxX = Integer.MIN_VALUE;
+		
+		//indices go along the x axis, so the chunks can be captured column after column
+		for(int index = buildMap.firstIndex(); index != -1; index = buildMap.nextIndex(index)) {
+			
+			if(buildMap.getType(index) != MazeFillType.WALL)
+				continue;
+			
+			int x = buildMap.getX(index),
+				z = buildMap.getZ(index);
+			
+			if(z < buildMap.getPartMinZ() || z >= buildMap.getPartMaxZ())
+				continue;
+			
+			if(x > capturedMaxX) {
 				
-				if(buildMap.getType(x, z) == MazeFillType.NOT_MAZE)
-					continue;
+				int minChunkX = x >> 4;
+				capturedMaxX = (minChunkX + chunkColumnsPerCapture << 4) - 1;
 				
-				Vec2 maxNeighbor = getHeighestNeighbor(x, z, buildMap, null);
+				sampler.clear();
+				captureChunks(sampler, minChunkX, minChunkZ, minChunkX + chunkColumnsPerCapture - 1, maxChunkZ, plugin);
+			}
+			
+			for(int height = buildMap.getGroundHeight(index) + 1; height <= buildMap.getMazeHeight(index); height++) {
 				
-				int mazeHeight = buildMap.getMazeHeight(x, z);
-				int defaultMazeHeight = buildMap.getGroundHeight(maxNeighbor) + wallHeight;
+				Material type = sampler.getType(x, height, z);
 				
-				if(mazeHeight <= defaultMazeHeight)
-					continue;
+				if(Utils.canBeOverbuild(type))
+					plan.add(x, height, z, wallMaterials.get(rnd.nextInt(wallMaterials.size())), type);
+			}
+		}
+		
+		return plan;
+	}
+	
+	private static void captureChunks(SurfaceSampler sampler, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ, Plugin plugin) {
+		
+		Future<Void> capture = Bukkit.getScheduler().callSyncMethod(plugin, new Callable<Void>() {
+			
+			@Override
+			public Void call() {
 				
-				int groundDiffToNeighbors = getGroundDiffToNeighbors(buildMap, x, z);
+				for(int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+					for(int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++)
+						sampler.captureChunk(chunkX, chunkZ);
+				}
 				
-				//adapt ground height of path points to surrounding ground height
-				if(buildMap.getType(x, z) == MazeFillType.PATH)
-					buildMap.setGroundHeight(x, z, buildMap.getGroundHeight(x, z) + groundDiffToNeighbors);
-				//adapt wall height of wall points to default wall height or neighbor wall heights
-				else
-					buildMap.setMazeHeight(x, z, Math.min(defaultMazeHeight, mazeHeight + groundDiffToNeighbors));
+				return null;
 			}
+		});
+		
+		try {
+			capture.get();
+			
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The capture of the chunks of the maze was interrupted.", e);
+			
+		}catch(ExecutionException e) {
+			throw new IllegalStateException("The chunks of the maze could not be captured.", e.getCause());
+		}
+	}
+	
+	/**
+	 * A method that lowers wall heights in a BuildMap at points where single spikes of wall would stick out.
+	 */
+	protected void cullTrees(BuildMap buildMap) {
+		
+		int wallHeight = buildMap.getMaze().getWallHeight();
+		
+		for(int index = buildMap.firstIndex(); index != -1; index = buildMap.nextIndex(index)) {
+			
+			if(buildMap.getType(index) == MazeFillType.NOT_MAZE)
+				continue;
+			
+			int x = buildMap.getX(index),
+				z = buildMap.getZ(index);
+			
+			int maxNeighbor = getHeighestNeighbor(x, z, index, buildMap, null);
+			
+			int mazeHeight = buildMap.getMazeHeight(index);
+			int defaultMazeHeight = buildMap.getGroundHeight(maxNeighbor) + wallHeight;
+			
+			if(mazeHeight <= defaultMazeHeight)
+				continue;
+			
+			int groundDiffToNeighbors = getGroundDiffToNeighbors(buildMap, x, z, index);
+			
+			//adapt ground height of path points to surrounding ground height
+			if(buildMap.getType(index) == MazeFillType.PATH)
+				buildMap.setGroundHeight(index, buildMap.getGroundHeight(index) + groundDiffToNeighbors);
+			//adapt wall height of wall points to default wall height or neighbor wall heights
+			else
+				buildMap.setMazeHeight(index, Math.min(defaultMazeHeight, mazeHeight + groundDiffToNeighbors));
 		}
 	}
 	
@@ -119,52 +186,56 @@ public class BlockGenerator {
 	protected void raiseTooLowWalls(BuildMap buildMap) {
 		
 		int wallHeight = buildMap.getMaze().getWallHeight();
-
-		for(int x = buildMap.getMinX(); x < buildMap.getMaxX(); x++) {
-			for(int z = buildMap.getMinZ(); z < buildMap.getMaxZ(); z++) {
-				
-				if(buildMap.getType(x, z) == MazeFillType.NOT_MAZE)
-					continue;
-				
-				Vec2 maxNeighbor = getHeighestNeighbor(x, z, buildMap, MazeFillType.PATH);
-				
-				if(maxNeighbor == null)
-					continue;
-				
-				int maxNeighborsWallHeight = buildMap.getWallHeight(maxNeighbor);
 		
-				if(maxNeighborsWallHeight <= 0)
-					continue;
-				
-				int mazeHeight = buildMap.getMazeHeight(x, z),
-					maxNeighborsGroundHeight = buildMap.getGroundHeight(maxNeighbor);
-				
-				if(mazeHeight < maxNeighborsGroundHeight + wallHeight)
-					buildMap.setMazeHeight(x, z, maxNeighborsGroundHeight + wallHeight);
-			}
+		for(int index = buildMap.firstIndex(); index != -1; index = buildMap.nextIndex(index)) {
+			
+			if(buildMap.getType(index) == MazeFillType.NOT_MAZE)
+				continue;
+			
+			int x = buildMap.getX(index),
+				z = buildMap.getZ(index);
+			
+			int maxNeighbor = getHeighestNeighbor(x, z, index, buildMap, MazeFillType.PATH);
+			
+			if(maxNeighbor == -1)
+				continue;
+			
+			int maxNeighborsWallHeight = buildMap.getWallHeight(maxNeighbor);
+			
+			if(maxNeighborsWallHeight <= 0)
+				continue;
+			
+			int mazeHeight = buildMap.getMazeHeight(index),
+				maxNeighborsGroundHeight = buildMap.getGroundHeight(maxNeighbor);
+			
+			if(mazeHeight < maxNeighborsGroundHeight + wallHeight)
+				buildMap.setMazeHeight(index, maxNeighborsGroundHeight + wallHeight);
 		}
 	}
 	
-	protected Vec2 getHeighestNeighbor(int x, int z, BuildMap buildMap, MazeFillType limitation) {
+	/**
+	 * Returns the index of the neighbor of the location with the highest maze height or -1 if no neighbor is part of the maze
+	 * (and of the passed type).
+	 */
+	protected int getHeighestNeighbor(int x, int z, int index, BuildMap buildMap, MazeFillType limitation) {
 		
-		Vec2 maxNeighbor = null;
+		int maxNeighbor = -1;
 		int maxHeight = 0;
 		
-		for(Directions dir : Directions.values()) {
-			
-			Vec2 neighbor = new Vec2(x, z).add(dir.toVec2());
+		for(Directions dir : ALL_DIRECTIONS) {
 			
-			if(!buildMap.contains(neighbor))
+			if(!buildMap.contains(x + dir.getX(), z + dir.getZ()))
 				continue;
 			
-			if(buildMap.getType(neighbor) == MazeFillType.NOT_MAZE || limitation != null &&
-			   buildMap.getType(neighbor) != limitation) {
+			int neighbor = buildMap.getNeighbor(index, dir);
+			MazeFillType neighborType = buildMap.getType(neighbor);
+			
+			if(neighborType == MazeFillType.NOT_MAZE || limitation != null && neighborType != limitation)
 				continue;
-			}
 			
 			int neighborHeight = buildMap.getMazeHeight(neighbor);
 			
-			if(maxNeighbor == null || neighborHeight > maxHeight) {
+			if(maxNeighbor == -1 || neighborHeight > maxHeight) {
 				maxNeighbor = neighbor;
 				maxHeight = neighborHeight;
 			}
@@ -172,18 +243,21 @@ public class BlockGenerator {
 		
 		return maxNeighbor;
 	}
-
-	protected int getGroundDiffToNeighbors(BuildMap buildMap, int x, int z) {
+	
+	protected int getGroundDiffToNeighbors(BuildMap buildMap, int x, int z, int index) {
 		
-		int groundHeight = buildMap.getGroundHeight(x, z);
+		int groundHeight = buildMap.getGroundHeight(index);
 		int heightDiff = 0;
 		int neighborsCount = 0;
 		
-		for(Directions dir : Directions.values()) {
+		for(Directions dir : ALL_DIRECTIONS) {
+			
+			if(!buildMap.contains(x + dir.getX(), z + dir.getZ()))
+				continue;
 			
-			Vec2 neighbor = new Vec2(x, z).add(dir.toVec2());
+			int neighbor = buildMap.getNeighbor(index, dir);
 			
-			if(!buildMap.contains(neighbor) || buildMap.getType(neighbor) == MazeFillType.NOT_MAZE)
+			if(buildMap.getType(neighbor) == MazeFillType.NOT_MAZE)
 				continue;
 			
 			heightDiff += buildMap.getGroundHeight(neighbor) - groundHeight;
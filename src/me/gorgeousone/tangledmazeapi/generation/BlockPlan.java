@@ -0,0 +1,71 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.List;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.material.MaterialData;
+
+import me.gorgeousone.tangledmazeapi.util.LongObjectHashMap;
+import me.gorgeousone.tangledmazeapi.util.Vec2;
+
+/**
+ * The blocks a BlockGenerator worked out to build a maze: their locations, the material each of them gets
+ * and the type that was found there in the chunk snapshots. It can be filled on any thread without touching the world,
+ * so the main thread only has to write the blocks. The blocks are kept in one ChunkBlocks per chunk,
+ * so they can be placed a chunk at a time with a ChunkPlacementJob.
+ */
+public class BlockPlan {
+	
+	private World world;
+	private int size;
+	
+	private LongObjectHashMap<ChunkBlocks> chunks;
+	private ChunkBlocks lastChunk;
+	
+	public BlockPlan(World world) {
+		
+		this.world = world;
+		chunks = new LongObjectHashMap<>();
+	}
+	
+	public World getWorld() {
+		return world;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * Returns the blocks of each chunk the plan covers in no particular order.
+	 */
+	public List<ChunkBlocks> getChunks() {
+		return chunks.values();
+	}
+	
+	public void add(int x, int y, int z, MaterialData material, Material previousType) {
+		
+		int chunkX = x >> 4,
+			chunkZ = z >> 4;
+		
+		//blocks are mostly added along a column of a chunk, so the last chunk is checked before the map
+		if(lastChunk == null || lastChunk.getChunkX() != chunkX || lastChunk.getChunkZ() != chunkZ) {
+			
+			long chunkKey = Vec2.pack(chunkX, chunkZ);
+			lastChunk = chunks.get(chunkKey);
+			
+			if(lastChunk == null) {
+				lastChunk = new ChunkBlocks(world, chunkX, chunkZ);
+				chunks.put(chunkKey, lastChunk);
+			}
+		}
+		
+		lastChunk.add(x, y, z, material, previousType);
+		size++;
+	}
+}
\ No newline at end of file
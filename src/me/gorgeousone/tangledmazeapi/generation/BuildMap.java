@@ -1,13 +1,9 @@
 package me.gorgeousone.tangledmazeapi.generation;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map.Entry;
-
-import org.bukkit.block.BlockState;
-
 import me.gorgeousone.tangledmazeapi.clip.Clip;
+import me.gorgeousone.tangledmazeapi.clip.FillStorage;
 import me.gorgeousone.tangledmazeapi.core.Maze;
+import me.gorgeousone.tangledmazeapi.util.Directions;
 import me.gorgeousone.tangledmazeapi.util.Vec2;
 
 /**
@@ -15,99 +11,224 @@ import me.gorgeousone.tangledmazeapi.util.Vec2;
  * the ground height and the final maze height for each location of the maze.
  * Mostly the PathGenerator accesses it to map path end exit segments.
  * The BlockGenerator later uses it to calculate all blocks that need to be generated.
+ * <p>
+ * The data is kept in a {@link MapStorage}, by default flat arrays over the whole bounding box of the maze
+ * or, if the maze covers less than half of it, tiles that are only allocated where the maze is.
+ * Flat arrays that would take more than a quarter of the maximum heap are kept in a memory-mapped file instead,
+ * which has to be deleted with close() once the map is not needed anymore.
+ * Besides coordinates, all accessors can be used with the index of a location (see indexOf()) which avoids
+ * converting coordinates in loops over many locations. Loops over the whole map should use firstIndex() and nextIndex(),
+ * which skip locations the storage knows to be NOT_MAZE.
+ * <p>
+ * A map can also cover only a part of the rows of a maze (see EllerPathGenerator). It then contains one more row
+ * on each side of the part, which the BlockGenerator uses to smooth the walls at the edges without generating blocks there.
  */
 public class BuildMap {
 	
+	private static final MazeFillType[] FILL_TYPES = MazeFillType.values();
+	
 	private Maze maze;
-	private MazeFillType[][] shapeMap;
-	private int[][] groundHeightMap, mazeHeightMap;
 	
-	private Vec2 minimum, maximum;
+	private MapStorage storage;
+	private int minX, minZ, maxX, maxZ;
+	private int partMinZ, partMaxZ;
+	
 	private Vec2 pathStart;
 	
-	List<BlockState> previousBlocks = new ArrayList<>();
-	List<BlockState> generatedBlocks = new ArrayList<>();
+	private BlockPlan blockPlan;
 	
 	public BuildMap(Maze maze) {
+		this(maze, chooseStorage(maze.getClip()));
+	}
+	
+	/**
+	 * Creates the map with the passed empty storage.
+	 */
+	public BuildMap(Maze maze, MapStorage storage) {
 		
 		this.maze = maze;
+		this.storage = storage;
 		
 		calculateMapSize();
 		copyMazeOntoMap();
 	}
 	
+	/**
+	 * Creates a map of the rows of the maze between partMinZ and partMaxZ (exclusive) and the row next to each side of them.
+	 * The heights of the clip have to be resolved already.
+	 */
+	public BuildMap(Maze maze, int partMinZ, int partMaxZ) {
+		
+		this.maze = maze;
+		this.partMinZ = partMinZ;
+		this.partMaxZ = partMaxZ;
+		
+		Clip clip = maze.getClip();
+		
+		minX = clip.getMinX();
+		maxX = clip.getMaxX() + 1;
+		minZ = Math.max(partMinZ - 1, clip.getMinZ());
+		maxZ = Math.max(minZ, Math.min(partMaxZ + 1, clip.getMaxZ() + 1));
+		
+		storage = new DenseMapStorage();
+		storage.allocate(minX, minZ, maxX, maxZ);
+		copyRowsOntoMap();
+	}
+	
 	public Maze getMaze() {
 		return maze;
 	}
 	
 	public int getMinX() {
-		return minimum.getX();
+		return minX;
 	}
 
 	public int getMinZ() {
-		return minimum.getZ();
+		return minZ;
 	}
 	
 	public int getMaxX() {
-		return maximum.getX();
+		return maxX;
 	}
 
 	public int getMaxZ() {
-		return maximum.getZ();
+		return maxZ;
+	}
+	
+	/**
+	 * Returns the first row blocks are generated for. Only maps of a part of a maze have rows before it.
+	 */
+	public int getPartMinZ() {
+		return partMinZ;
+	}
+	
+	/**
+	 * Returns the row after the last one blocks are generated for.
+	 */
+	public int getPartMaxZ() {
+		return partMaxZ;
 	}
 	
 	public boolean contains(Vec2 point) {
+		return contains(point.getX(), point.getZ());
+	}
+	
+	public boolean contains(int x, int z) {
 		return
-			point.getX() >= getMinX() && point.getX() < getMaxX() &&
-			point.getZ() >= getMinZ() && point.getZ() < getMaxZ();
+			x >= minX && x < maxX &&
+			z >= minZ && z < maxZ;
+	}
+	
+	/**
+	 * Returns the index of a location inside the map.
+	 */
+	public int indexOf(int x, int z) {
+		return storage.indexOf(x, z);
+	}
+	
+	public int getX(int index) {
+		return storage.getX(index);
+	}
+	
+	public int getZ(int index) {
+		return storage.getZ(index);
+	}
+	
+	/**
+	 * Returns the index of the first location of the map that might be part of the maze or -1.
+	 */
+	public int firstIndex() {
+		return storage.firstIndex();
+	}
+	
+	/**
+	 * Returns the index of the next location in x-z-order that might be part of the maze or -1.
+	 */
+	public int nextIndex(int index) {
+		return storage.nextIndex(index);
+	}
+	
+	/**
+	 * Returns the index of the neighbor in the passed direction. The neighbor has to be checked to be inside of the map first.
+	 */
+	public int getNeighbor(int index, Directions dir) {
+		return storage.getNeighbor(index, dir);
+	}
+	
+	public MazeFillType getType(int index) {
+		return FILL_TYPES[storage.getType(index)];
 	}
 	
 	public MazeFillType getType(int x, int z) {
-		return shapeMap[x-getMinX()][z-getMinZ()];
+		return getType(indexOf(x, z));
 	}
 	
 	public MazeFillType getType(Vec2 point) {
 		return getType(point.getX(), point.getZ());
 	}
-
+	
+	public void setType(int index, MazeFillType type) {
+		storage.setType(index, (byte) type.ordinal());
+	}
+	
 	public void setType(int x, int z, MazeFillType type) {
-		shapeMap[x-getMinX()][z-getMinZ()] = type;
+		setType(indexOf(x, z), type);
 	}
 
 	public void setType(Vec2 point, MazeFillType type) {
 		setType(point.getX(), point.getZ(), type);
 	}
 	
+	public int getGroundHeight(int index) {
+		return storage.getGroundHeight(index);
+	}
+	
 	public int getGroundHeight(int x, int z) {
-		return groundHeightMap[x-getMinX()][z-getMinZ()];
+		return getGroundHeight(indexOf(x, z));
 	}
 	
 	public int getGroundHeight(Vec2 point) {
 		return getGroundHeight(point.getX(), point.getZ());
 	}
 	
+	public void setGroundHeight(int index, int newY) {
+		storage.setGroundHeight(index, newY);
+	}
+	
 	public void setGroundHeight(int x, int z, int newY) {
-		groundHeightMap[x-getMinX()][z-getMinZ()] = newY;
+		setGroundHeight(indexOf(x, z), newY);
 	}
 	
 	public void setGroundHeight(Vec2 point, int newY) {
 		setGroundHeight(point.getX(), point.getZ(), newY);
 	}
 	
+	public int getMazeHeight(int index) {
+		return storage.getMazeHeight(index);
+	}
+	
 	public int getMazeHeight(int x, int z) {
-		return mazeHeightMap[x-getMinX()][z-getMinZ()];
+		return getMazeHeight(indexOf(x, z));
 	}
 	
 	public int getMazeHeight(Vec2 point) {
 		return getMazeHeight(point.getX(), point.getZ());
 	}
 	
+	public int getWallHeight(int index) {
+		return getMazeHeight(index) - getGroundHeight(index);
+	}
+	
 	public int getWallHeight(Vec2 point) {
-		return getMazeHeight(point) - getGroundHeight(point);
+		return getWallHeight(indexOf(point.getX(), point.getZ()));
+	}
+	
+	public void setMazeHeight(int index, int newY) {
+		storage.setMazeHeight(index, newY);
 	}
 	
 	public void setMazeHeight(int x, int z, int newY) {
-		mazeHeightMap[x-getMinX()][z-getMinZ()] = newY;
+		setMazeHeight(indexOf(x, z), newY);
 	}
 
 	public void setMazeHeight(Vec2 point, int newY) {
@@ -122,28 +243,45 @@ public class BuildMap {
 		this.pathStart = pathStart;
 	}
 	
-	public List<BlockState> getUndoBlocks() {
-		return previousBlocks;
+	/**
+	 * Returns the blocks the BlockGenerator worked out for the map or null if it has not done so yet.
+	 */
+	public BlockPlan getBlockPlan() {
+		return blockPlan;
 	}
-
-	public void setPreviousBlocks(List<BlockState> preciousBlocks) {
-		this.previousBlocks = preciousBlocks;
+	
+	public void setBlockPlan(BlockPlan blockPlan) {
+		this.blockPlan = blockPlan;
 	}
-
-	public List<BlockState> getGeneratedBlocks() {
-		return generatedBlocks;
+	
+	/**
+	 * Returns the approximate number of bytes the storage of the map occupies.
+	 */
+	public long memoryUsage() {
+		return storage.memoryUsage();
 	}
-
-	public void setGeneratedBlocks(List<BlockState> generatedBlocks) {
-		this.generatedBlocks = generatedBlocks;
+	
+	/**
+	 * Frees the resources of the storage outside of the heap, like the file of a MappedMapStorage.
+	 * The generated and previous blocks can still be used afterwards.
+	 */
+	public void close() {
+		storage.close();
 	}
 
 	public void mapSegment(PathSegment segment, MazeFillType type) {
 		
-		for(Vec2 point : segment.getFill()) {
-			
-			if(contains(point))
-				setType(point.getX(), point.getZ(), type);
+		Vec2 min = segment.getMin();
+		Vec2 max = segment.getMax();
+		
+		int segmentMinX = Math.max(min.getX(), minX),
+			segmentMinZ = Math.max(min.getZ(), minZ),
+			segmentMaxX = Math.min(max.getX(), maxX),
+			segmentMaxZ = Math.min(max.getZ(), maxZ);
+		
+		for(int x = segmentMinX; x < segmentMaxX; x++) {
+			for(int z = segmentMinZ; z < segmentMaxZ; z++)
+				setType(indexOf(x, z), type);
 		}
 	}
 	
@@ -153,101 +291,101 @@ public class BuildMap {
 	 */
 	public void flip() {
 		
-		for(int x = getMinX(); x < getMaxX(); x++) {
-			for(int z = getMinZ(); z < getMaxZ(); z++) {
-				
-				MazeFillType fillType = getType(x, z);
-				
-				if(fillType == MazeFillType.UNDEFINED)
-					setType(x, z, MazeFillType.WALL);
-					
-				else if(fillType == MazeFillType.EXIT)
-					setType(x, z, MazeFillType.PATH);
-			}
+		byte undefined = (byte) MazeFillType.UNDEFINED.ordinal(),
+			 exit = (byte) MazeFillType.EXIT.ordinal();
+		
+		for(int i = firstIndex(); i != -1; i = nextIndex(i)) {
+			
+			byte type = storage.getType(i);
+			
+			if(type == undefined)
+				setType(i, MazeFillType.WALL);
+			
+			else if(type == exit)
+				setType(i, MazeFillType.PATH);
 		}
 	}
 	
 	private void calculateMapSize() {
 		
-		minimum = getMinLoc();
-		maximum = getMaxLoc();
-		
-		shapeMap = new MazeFillType
-			[maximum.getX() - minimum.getX()]
-			[maximum.getZ() - minimum.getZ()];
+		Clip clip = maze.getClip();
 		
-		groundHeightMap = new int
-			[maximum.getX() - minimum.getX()]
-			[maximum.getZ() - minimum.getZ()];
+		minX = clip.getMinX();
+		minZ = clip.getMinZ();
+		maxX = clip.getMaxX() + 1;
+		maxZ = clip.getMaxZ() + 1;
+		partMinZ = minZ;
+		partMaxZ = maxZ;
 		
-		mazeHeightMap = new int
-			[maximum.getX() - minimum.getX()]
-			[maximum.getZ() - minimum.getZ()];
+		storage.allocate(minX, minZ, maxX, maxZ);
 	}
 	
 	private void copyMazeOntoMap() {
 		
-		for(int x = getMinX(); x < getMaxX(); x++) {
-			for(int z = getMinZ(); z < getMaxZ(); z++) {
-				setType(x, z, MazeFillType.NOT_MAZE);
-			}
-		}
-		
 		int wallHeight = maze.getWallHeight();
 		Clip clip = maze.getClip();
+		FillStorage.Cursor fill = clip.getFillStorage().cursor();
 		
 		//mark the maze's area in mazeMap as undefined area (open for paths and walls)
-		for(Entry<Vec2, Integer> loc : clip.getFillSet()) {
+		while(fill.next()) {
+			
+			int x = fill.getX(),
+				z = fill.getZ(),
+				height = fill.getHeight();
+			
+			if(Clip.isUnresolved(height))
+				height = clip.getHeight(x, z);
 			
-			setType(loc.getKey(), MazeFillType.UNDEFINED);
-			setGroundHeight(loc.getKey(), loc.getValue());
-			setMazeHeight(loc.getKey(), loc.getValue() + wallHeight);
+			int index = indexOf(x, z);
+			
+			setType(index, MazeFillType.UNDEFINED);
+			setGroundHeight(index, height);
+			setMazeHeight(index, height + wallHeight);
 		}
 		
 		//mark the border in mazeMap as walls
-		for(Vec2 loc : maze.getClip().getBorder())
-			setType(loc, MazeFillType.WALL);
+		for(long loc : clip.getSortedBorder())
+			setType(Vec2.unpackX(loc), Vec2.unpackZ(loc), MazeFillType.WALL);
 	}
 	
-	private Vec2 getMinLoc() {
+	private void copyRowsOntoMap() {
 		
-		Vec2 minimum = null;
-
-		for(Vec2 loc : maze.getClip().getFill()) {
+		int wallHeight = maze.getWallHeight();
+		Clip clip = maze.getClip();
+		FillStorage fill = clip.getFillStorage();
+		
+		for(int z = minZ; z < maxZ; z++) {
 			
-			if(minimum == null) {
-				minimum = loc.clone();
-				continue;
-			}
+			int x = fill.nextContained(z, minX, maxX - 1);
 			
-			if(loc.getX() < minimum.getX())
-				minimum.setX(loc.getX());
+			while(x < maxX) {
+				
+				int index = indexOf(x, z);
+				int height = clip.getHeight(x, z);
 				
-			if(loc.getZ() < minimum.getZ())
-				minimum.setZ(loc.getZ());
+				setType(index, clip.borderContains(x, z) ? MazeFillType.WALL : MazeFillType.UNDEFINED);
+				setGroundHeight(index, height);
+				setMazeHeight(index, height + wallHeight);
+				
+				x = fill.nextContained(z, x + 1, maxX - 1);
+			}
 		}
-		
-		return minimum;
 	}
 	
-	private Vec2 getMaxLoc() {
+	//tiles if the fill of the clip covers less than half of its bounding box and they fit into the heap, a file if flat arrays would take too much heap
+	private static MapStorage chooseStorage(Clip clip) {
 		
-		Vec2 maximum = null;
+		long boundsArea = (long) (clip.getMaxX() - clip.getMinX() + 1) * (clip.getMaxZ() - clip.getMinZ() + 1);
+		long memoryBudget = Runtime.getRuntime().maxMemory() / 4;
 		
-		for(Vec2 chunk : maze.getClip().getFill()) {
-			
-			if(maximum == null) {
-				maximum = chunk.clone();
-				continue;
-			}
-			
-			if(chunk.getX() > maximum.getX())
-				maximum.setX(chunk.getX());
-				
-			if(chunk.getZ() > maximum.getZ())
-				maximum.setZ(chunk.getZ());
-		}
+		//tiles are chunk-aligned, so there is one for every chunk the clip touches
+		if(2L * clip.size() < boundsArea && TiledMapStorage.estimateMemoryUsage(boundsArea, clip.getChunks().size()) <= memoryBudget)
+			return new TiledMapStorage();
+		
+		//a type byte and two short heights per location
+		if(5L * boundsArea > memoryBudget)
+			return new MappedMapStorage();
 		
-		return maximum.add(1, 1);
+		return new DenseMapStorage();
 	}
 }
\ No newline at end of file
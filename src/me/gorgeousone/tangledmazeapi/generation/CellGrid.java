@@ -0,0 +1,403 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.BitSet;
+
+import me.gorgeousone.tangledmazeapi.util.Directions;
+import me.gorgeousone.tangledmazeapi.util.Vec2;
+
+/**
+ * The lattice paths of a maze lie on, reduced to one cell per lattice position.
+ * A cell stands for the pathWidth x pathWidth square of blocks at a position of the lattice, which has the pitch
+ * pathWidth + wallWidth and passes through the start of the BuildMap. Between two neighboring cells lies a gap
+ * of wallWidth blocks that becomes either a wall or a path connecting the cells.
+ * <p>
+ * The grid looks up once which cells and gaps of the map are free to be carved (only UNDEFINED or EXIT blocks).
+ * Carving paths afterwards only changes bitsets, the blocks are painted onto the map with paint() at the end.
+ * Cells are indexed like the locations of a dense BuildMap, column by column along the x axis.
+ */
+public class CellGrid {
+	
+	private static final Directions[] CARDINAL_DIRS = Directions.cardinalValues();
+	
+	private int originX, originZ;
+	private int columns, rows;
+	private int pathWidth, wallWidth, pitch;
+	
+	private int startCell;
+	
+	private BitSet openCells;
+	private BitSet freeCells;
+	private BitSet freeGapsX, freeGapsZ;
+	
+	private BitSet pathCells;
+	private BitSet pathGapsX, pathGapsZ;
+	
+	public CellGrid(BuildMap buildMap, int pathWidth, int wallWidth) {
+		
+		this.pathWidth = pathWidth;
+		this.wallWidth = wallWidth;
+		pitch = pathWidth + wallWidth;
+		
+		Vec2 start = buildMap.getStart();
+		
+		//the first and last lattice positions whose cells overlap the map, cells that stick out of it are never free
+		int minColumn = Math.floorDiv(buildMap.getMinX() - pathWidth - start.getX(), pitch) + 1,
+			minRow    = Math.floorDiv(buildMap.getMinZ() - pathWidth - start.getZ(), pitch) + 1,
+			maxColumn = Math.floorDiv(buildMap.getMaxX() - 1 - start.getX(), pitch),
+			maxRow    = Math.floorDiv(buildMap.getMaxZ() - 1 - start.getZ(), pitch);
+		
+		originX = start.getX() + minColumn * pitch;
+		originZ = start.getZ() + minRow * pitch;
+		columns = Math.max(0, maxColumn - minColumn + 1);
+		rows    = Math.max(0, maxRow - minRow + 1);
+		startCell = buildMap.contains(start) ? -minColumn * rows - minRow : -1;
+		
+		openCells = new BitSet(size());
+		freeCells = new BitSet(size());
+		freeGapsX = new BitSet(size());
+		freeGapsZ = new BitSet(size());
+		
+		pathCells = new BitSet(size());
+		pathGapsX = new BitSet(size());
+		pathGapsZ = new BitSet(size());
+		
+		lookUpFreeArea(buildMap);
+		
+		if(startCell != -1)
+			openCells.set(startCell);
+	}
+	
+	/**
+	 * Creates a grid of the cells of another grid inside the passed range of columns and rows, like a tile of it.
+	 * Only the passed cells of the other grid are open in it and it has no start cell until one is set.
+	 * Gaps leading out of the range are left out.
+	 */
+	CellGrid(CellGrid grid, BitSet cells, int minColumn, int minRow, int columns, int rows) {
+		
+		pathWidth = grid.pathWidth;
+		wallWidth = grid.wallWidth;
+		pitch = grid.pitch;
+		
+		originX = grid.originX + minColumn * pitch;
+		originZ = grid.originZ + minRow * pitch;
+		this.columns = columns;
+		this.rows = rows;
+		startCell = -1;
+		
+		openCells = new BitSet(size());
+		freeCells = new BitSet(size());
+		freeGapsX = new BitSet(size());
+		freeGapsZ = new BitSet(size());
+		
+		pathCells = new BitSet(size());
+		pathGapsX = new BitSet(size());
+		pathGapsZ = new BitSet(size());
+		
+		for(int column = 0; column < columns; column++) {
+			for(int row = 0; row < rows; row++) {
+				
+				int cell = cellOf(column, row),
+					gridCell = grid.cellOf(minColumn + column, minRow + row);
+				
+				if(cells.get(gridCell)) {
+					openCells.set(cell);
+					freeCells.set(cell, grid.freeCells.get(gridCell));
+				}
+				
+				if(column + 1 < columns)
+					freeGapsX.set(cell, grid.freeGapsX.get(gridCell));
+				
+				if(row + 1 < rows)
+					freeGapsZ.set(cell, grid.freeGapsZ.get(gridCell));
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of cells in the grid.
+	 */
+	public int size() {
+		return columns * rows;
+	}
+	
+	public int getColumns() {
+		return columns;
+	}
+	
+	public int getRows() {
+		return rows;
+	}
+	
+	/**
+	 * Returns the cell of the start of the BuildMap or -1 if the start lies outside of the map.
+	 */
+	public int getStartCell() {
+		return startCell;
+	}
+	
+	void setStartCell(int cell) {
+		startCell = cell;
+	}
+	
+	public int cellOf(int column, int row) {
+		return column * rows + row;
+	}
+	
+	public int getColumn(int cell) {
+		return cell / rows;
+	}
+	
+	public int getRow(int cell) {
+		return cell % rows;
+	}
+	
+	/**
+	 * Returns the block location of the corner of the cell with the lowest coordinates.
+	 */
+	public Vec2 getLocation(int cell) {
+		return new Vec2(originX + getColumn(cell) * pitch, originZ + getRow(cell) * pitch);
+	}
+	
+	/**
+	 * Returns the neighbor of the cell in the passed cardinal direction or -1 if the neighbor lies outside of the grid.
+	 */
+	public int getNeighbor(int cell, Directions dir) {
+		
+		int column = getColumn(cell) + dir.getX(),
+			row = getRow(cell) + dir.getZ();
+		
+		if(column < 0 || column >= columns || row < 0 || row >= rows)
+			return -1;
+		
+		return cellOf(column, row);
+	}
+	
+	/**
+	 * Returns true if no path has been carved into the cell yet and all its blocks are free.
+	 */
+	public boolean isFree(int cell) {
+		return freeCells.get(cell);
+	}
+	
+	/**
+	 * Returns true if the gap between the cell and its neighbor in the passed direction consists of free blocks.
+	 * Gaps do not know whether a path has been carved through them, but only free cells can be carved into.
+	 */
+	public boolean isGapFree(int cell, Directions dir) {
+		
+		int neighbor = getNeighbor(cell, dir);
+		return neighbor != -1 && gapsOf(dir).get(dir.isPositive() ? cell : neighbor);
+	}
+	
+	/**
+	 * Returns true if the cell and its neighbor in the passed direction could be connected by a path when ignoring the paths
+	 * carved so far. This is the case if the gap between them and both cells consisted of free blocks on the map
+	 * or are the start cell.
+	 */
+	public boolean canConnect(int cell, Directions dir) {
+		
+		int neighbor = getNeighbor(cell, dir);
+		
+		return
+			neighbor != -1 &&
+			openCells.get(cell) && openCells.get(neighbor) &&
+			gapsOf(dir).get(dir.isPositive() ? cell : neighbor);
+	}
+	
+	/**
+	 * Returns true if the cell has been carved into or marked as path.
+	 */
+	public boolean isPath(int cell) {
+		return pathCells.get(cell);
+	}
+	
+	/**
+	 * Returns true if a path has been carved through the gap between the cell and its neighbor in the passed direction.
+	 */
+	public boolean isCarved(int cell, Directions dir) {
+		
+		int neighbor = getNeighbor(cell, dir);
+		
+		if(neighbor == -1)
+			return false;
+		
+		return (dir.isXAligned() ? pathGapsX : pathGapsZ).get(dir.isPositive() ? cell : neighbor);
+	}
+	
+	/**
+	 * Returns true if a path can be carved from the cell to its neighbor in the passed direction,
+	 * which is the case if the neighbor and the gap to it are free.
+	 */
+	public boolean canCarve(int cell, Directions dir) {
+		
+		int neighbor = getNeighbor(cell, dir);
+		return neighbor != -1 && freeCells.get(neighbor) && gapsOf(dir).get(dir.isPositive() ? cell : neighbor);
+	}
+	
+	/**
+	 * Carves a path from the cell through the gap into the neighbor in the passed direction and returns the neighbor.
+	 * The cell itself is marked as path as well.
+	 */
+	public int carve(int cell, Directions dir) {
+		
+		int neighbor = getNeighbor(cell, dir);
+		
+		markPath(cell);
+		markPath(neighbor);
+		
+		if(dir.isXAligned())
+			pathGapsX.set(dir.isPositive() ? cell : neighbor);
+		else
+			pathGapsZ.set(dir.isPositive() ? cell : neighbor);
+		
+		return neighbor;
+	}
+	
+	/**
+	 * Marks the cell as path without connecting it to any neighbor.
+	 */
+	public void markPath(int cell) {
+		
+		freeCells.clear(cell);
+		pathCells.set(cell);
+	}
+	
+	/**
+	 * Maps all carved cells and gaps onto the BuildMap as PATH.
+	 */
+	public void paint(BuildMap buildMap) {
+		
+		for(int cell = pathCells.nextSetBit(0); cell != -1; cell = pathCells.nextSetBit(cell + 1)) {
+			
+			int x = originX + getColumn(cell) * pitch,
+				z = originZ + getRow(cell) * pitch;
+			
+			paintArea(buildMap, x, z, x + pathWidth, z + pathWidth);
+		}
+		
+		for(int cell = pathGapsX.nextSetBit(0); cell != -1; cell = pathGapsX.nextSetBit(cell + 1)) {
+			
+			int x = originX + getColumn(cell) * pitch + pathWidth,
+				z = originZ + getRow(cell) * pitch;
+			
+			paintArea(buildMap, x, z, x + wallWidth, z + pathWidth);
+		}
+		
+		for(int cell = pathGapsZ.nextSetBit(0); cell != -1; cell = pathGapsZ.nextSetBit(cell + 1)) {
+			
+			int x = originX + getColumn(cell) * pitch,
+				z = originZ + getRow(cell) * pitch + pathWidth;
+			
+			paintArea(buildMap, x, z, x + pathWidth, z + wallWidth);
+		}
+	}
+	
+	/**
+	 * Copies the carved cells and gaps of a grid created as tile of this one at the passed column and row into this grid.
+	 */
+	void copyPaths(CellGrid tile, int minColumn, int minRow) {
+		
+		for(int cell = tile.pathCells.nextSetBit(0); cell != -1; cell = tile.pathCells.nextSetBit(cell + 1))
+			markPath(cellOf(minColumn + tile.getColumn(cell), minRow + tile.getRow(cell)));
+		
+		for(int cell = tile.pathGapsX.nextSetBit(0); cell != -1; cell = tile.pathGapsX.nextSetBit(cell + 1))
+			pathGapsX.set(cellOf(minColumn + tile.getColumn(cell), minRow + tile.getRow(cell)));
+		
+		for(int cell = tile.pathGapsZ.nextSetBit(0); cell != -1; cell = tile.pathGapsZ.nextSetBit(cell + 1))
+			pathGapsZ.set(cellOf(minColumn + tile.getColumn(cell), minRow + tile.getRow(cell)));
+	}
+	
+	/**
+	 * Returns all cells that can be connected to the start cell by paths (including the start cell itself).
+	 */
+	public BitSet findReachableCells() {
+		
+		BitSet reachableCells = new BitSet(size());
+		
+		if(startCell == -1)
+			return reachableCells;
+		
+		int[] queue = new int[Math.max(1, openCells.cardinality())];
+		int head = 0;
+		int tail = 0;
+		
+		queue[tail++] = startCell;
+		reachableCells.set(startCell);
+		
+		while(head < tail) {
+			
+			int cell = queue[head++];
+			
+			for(Directions dir : CARDINAL_DIRS) {
+				
+				if(!canConnect(cell, dir))
+					continue;
+				
+				int neighbor = getNeighbor(cell, dir);
+				
+				if(!reachableCells.get(neighbor)) {
+					reachableCells.set(neighbor);
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+		
+		return reachableCells;
+	}
+	
+	private BitSet gapsOf(Directions dir) {
+		return dir.isXAligned() ? freeGapsX : freeGapsZ;
+	}
+	
+	//every block of the map is looked at once at most
+	private void lookUpFreeArea(BuildMap buildMap) {
+		
+		for(int column = 0; column < columns; column++) {
+			for(int row = 0; row < rows; row++) {
+				
+				int cell = cellOf(column, row);
+				int x = originX + column * pitch,
+					z = originZ + row * pitch;
+				
+				if(areaIsFree(buildMap, x, z, x + pathWidth, z + pathWidth)) {
+					openCells.set(cell);
+					freeCells.set(cell);
+				}
+				
+				//gaps of cells that are not free still matter for paths carved out of them, like the one at the start
+				if(column + 1 < columns && areaIsFree(buildMap, x + pathWidth, z, x + pitch, z + pathWidth))
+					freeGapsX.set(cell);
+				
+				if(row + 1 < rows && areaIsFree(buildMap, x, z + pathWidth, x + pathWidth, z + pitch))
+					freeGapsZ.set(cell);
+			}
+		}
+	}
+	
+	static boolean areaIsFree(BuildMap buildMap, int minX, int minZ, int maxX, int maxZ) {
+		
+		if(!buildMap.contains(minX, minZ) || !buildMap.contains(maxX - 1, maxZ - 1))
+			return false;
+		
+		for(int x = minX; x < maxX; x++) {
+			for(int z = minZ; z < maxZ; z++) {
+				
+				MazeFillType type = buildMap.getType(buildMap.indexOf(x, z));
+				
+				if(type != MazeFillType.UNDEFINED && type != MazeFillType.EXIT)
+					return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	//only the start cell can stick out of the map
+	static void paintArea(BuildMap buildMap, int minX, int minZ, int maxX, int maxZ) {
+		
+		for(int x = Math.max(minX, buildMap.getMinX()); x < Math.min(maxX, buildMap.getMaxX()); x++) {
+			for(int z = Math.max(minZ, buildMap.getMinZ()); z < Math.min(maxZ, buildMap.getMaxZ()); z++)
+				buildMap.setType(buildMap.indexOf(x, z), MazeFillType.PATH);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import me.gorgeousone.tangledmazeapi.core.Maze;
+
+/**
+ * A PathGenerator that generates the network of paths on a CellGrid instead of probing the blocks of every segment.
+ * The exits are still mapped block by block, the paths between them are carved into the grid by a MazeAlgorithm
+ * and painted onto the BuildMap at the end. So the generation depends on the number of cells and not on
+ * the number of blocks. With the default GrowingTreeAlgorithm the mazes follow the same rules as the ones of the PathGenerator.
+ */
+public class CellPathGenerator extends PathGenerator {
+	
+	private MazeAlgorithm algorithm;
+	
+	public CellPathGenerator() {
+		algorithm = new GrowingTreeAlgorithm(pathEndSelector);
+	}
+	
+	public CellPathGenerator(MazeAlgorithm algorithm) {
+		this.algorithm = algorithm;
+	}
+	
+	public MazeAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+	
+	public void setAlgorithm(MazeAlgorithm algorithm) {
+		this.algorithm = algorithm;
+	}
+	
+	/**
+	 * Sets the path end selector of this generator and of its algorithm if it is a GrowingTreeAlgorithm.
+	 */
+	@Override
+	public void setPathEndSelector(PathEndSelector pathEndSelector) {
+		
+		super.setPathEndSelector(pathEndSelector);
+		
+		if(algorithm instanceof GrowingTreeAlgorithm)
+			((GrowingTreeAlgorithm) algorithm).setPathEndSelector(pathEndSelector);
+	}
+	
+	@Override
+	protected void generatePathMap(BuildMap buildMap) {
+		
+		Maze maze = buildMap.getMaze();
+		CellGrid grid = new CellGrid(buildMap, maze.getPathWidth(), maze.getWallWidth());
+		
+		if(grid.getStartCell() == -1)
+			return;
+		
+		algorithm.carvePaths(grid, maze.getPathLength(), rnd);
+		grid.paint(buildMap);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,152 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.Arrays;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.material.MaterialData;
+
+import me.gorgeousone.tangledmazeapi.util.BlockSink;
+import me.gorgeousone.tangledmazeapi.util.UndoLog;
+import me.gorgeousone.tangledmazeapi.util.Utils;
+
+/**
+ * The blocks of a BlockPlan inside of one chunk. Each block only takes an int for its position in the chunk
+ * and two shorts for its material in the palette of the chunk and the ordinal of the type found there before.
+ */
+public class ChunkBlocks {
+	
+	private static final Material[] MATERIALS = Material.values();
+	
+	private World world;
+	private int chunkX, chunkZ;
+	private int size;
+	
+	//x and z inside of the chunk with 4 bits each and y with 12 bits
+	private int[] positions;
+	private short[] materials;
+	private short[] previousTypes;
+	
+	private MaterialData[] palette;
+	private int paletteSize;
+	
+	public ChunkBlocks(World world, int chunkX, int chunkZ) {
+		
+		this.world = world;
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+		
+		positions = new int[16];
+		materials = new short[16];
+		previousTypes = new short[16];
+		palette = new MaterialData[4];
+	}
+	
+	public World getWorld() {
+		return world;
+	}
+	
+	public int getChunkX() {
+		return chunkX;
+	}
+	
+	public int getChunkZ() {
+		return chunkZ;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public int getX(int index) {
+		return chunkX << 4 | positions[index] >>> 16;
+	}
+	
+	public int getY(int index) {
+		return positions[index] & 0xFFF;
+	}
+	
+	public int getZ(int index) {
+		return chunkZ << 4 | positions[index] >>> 12 & 0xF;
+	}
+	
+	public MaterialData getMaterial(int index) {
+		return palette[materials[index]];
+	}
+	
+	/**
+	 * Returns the type the block had in the chunk snapshot the plan was made from.
+	 */
+	public Material getPreviousType(int index) {
+		return MATERIALS[previousTypes[index]];
+	}
+	
+	/**
+	 * Adds a block with coordinates in the world that have to lie inside of this chunk.
+	 */
+	public void add(int x, int y, int z, MaterialData material, Material previousType) {
+		
+		if(size == positions.length) {
+			positions = Arrays.copyOf(positions, 2 * size);
+			materials = Arrays.copyOf(materials, 2 * size);
+			previousTypes = Arrays.copyOf(previousTypes, 2 * size);
+		}
+		
+		positions[size] = (x & 0xF) << 16 | (z & 0xF) << 12 | y & 0xFFF;
+		materials[size] = paletteIndexOf(material);
+		previousTypes[size] = (short) previousType.ordinal();
+		size++;
+	}
+	
+	/**
+	 * Adds the blocks of another part of the same chunk after the ones of this part.
+	 */
+	public void addAll(ChunkBlocks other) {
+		
+		for(int i = 0; i < other.size; i++)
+			add(other.getX(i), other.getY(i), other.getZ(i), other.getMaterial(i), other.getPreviousType(i));
+	}
+	
+	/**
+	 * Writes the block at the index to the sink, logs the block it replaces and returns true.
+	 * If the block was changed since the snapshot and cannot be overbuilt anymore, it is left as it is and false is returned.
+	 * This has to be called on the main thread.
+	 */
+	public boolean place(int index, BlockSink sink, UndoLog undoLog) {
+		
+		int x = getX(index),
+			y = getY(index),
+			z = getZ(index);
+		
+		Block block = world.getBlockAt(x, y, z);
+		Material type = block.getType();
+		
+		if(type != getPreviousType(index) && !Utils.canBeOverbuild(type))
+			return false;
+		
+		undoLog.add(x, y, z, block.getBlockData());
+		sink.setBlock(world, x, y, z, getMaterial(index));
+		return true;
+	}
+	
+	//walls are built of a handful of materials, so the palette is searched from the start
+	private short paletteIndexOf(MaterialData material) {
+		
+		for(int i = 0; i < paletteSize; i++) {
+			
+			if(palette[i] == material || palette[i].equals(material))
+				return (short) i;
+		}
+		
+		if(paletteSize == palette.length)
+			palette = Arrays.copyOf(palette, 2 * paletteSize);
+		
+		palette[paletteSize] = material;
+		return (short) paletteSize++;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,174 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import me.gorgeousone.tangledmazeapi.util.BlockSink;
+import me.gorgeousone.tangledmazeapi.util.LongObjectHashMap;
+import me.gorgeousone.tangledmazeapi.util.PlacementScheduler;
+import me.gorgeousone.tangledmazeapi.util.UndoLog;
+import me.gorgeousone.tangledmazeapi.util.Vec2;
+
+/**
+ * A job for a PlacementScheduler that places the blocks of BlockPlans one chunk after another,
+ * so each chunk is only changed in one go instead of over and over again while the placement goes along the x axis.
+ * The chunks closest to the players in the world are placed first, so the parts of the maze they can see are finished first.
+ * Without players the chunks closest to the last placed one follow.
+ * <p>
+ * The blocks are written to a BlockSink and the blocks they replace are logged in an UndoLog to unbuild the maze later on.
+ * Both are flushed after each chunk.
+ */
+public class ChunkPlacementJob implements PlacementScheduler.PlacementJob {
+	
+	//how often the chunks are sorted again by the positions the players moved to
+	private static final long SORT_INTERVAL_NANOS = 1_000_000_000L;
+	
+	private World world;
+	private UndoLog undoLog;
+	private BlockSink sink;
+	
+	//the chunks with blocks left to place, sorted so that the next chunk to place is at the end of the queue
+	private LongObjectHashMap<ChunkBlocks> pendingChunks;
+	private List<ChunkBlocks> queue;
+	private boolean isSorted;
+	private long lastSort;
+	
+	private ChunkBlocks currentChunk;
+	private int nextBlock;
+	private int remaining;
+	
+	public ChunkPlacementJob(World world, UndoLog undoLog, BlockSink sink) {
+		
+		this.world = world;
+		this.undoLog = undoLog;
+		this.sink = sink;
+		
+		pendingChunks = new LongObjectHashMap<>();
+		queue = new ArrayList<>();
+	}
+	
+	/**
+	 * Adds the blocks of the plan to the ones left to place. Blocks of chunks that are still pending are appended to them.
+	 * The plan must not be changed anymore afterwards.
+	 */
+	public void add(BlockPlan plan) {
+		
+		for(ChunkBlocks chunk : plan.getChunks()) {
+			
+			long chunkKey = Vec2.pack(chunk.getChunkX(), chunk.getChunkZ());
+			ChunkBlocks pendingChunk = pendingChunks.get(chunkKey);
+			
+			if(pendingChunk != null) {
+				pendingChunk.addAll(chunk);
+				
+			}else {
+				pendingChunks.put(chunkKey, chunk);
+				queue.add(chunk);
+			}
+			
+			remaining += chunk.size();
+		}
+		
+		isSorted = false;
+	}
+	
+	@Override
+	public boolean placeNext() {
+		
+		while(currentChunk == null || nextBlock == currentChunk.size()) {
+			
+			if(queue.isEmpty())
+				return false;
+			
+			if(currentChunk != null) {
+				pendingChunks.remove(Vec2.pack(currentChunk.getChunkX(), currentChunk.getChunkZ()));
+				sink.flush();
+				undoLog.flush();
+			}
+			
+			if(!isSorted || System.nanoTime() - lastSort > SORT_INTERVAL_NANOS)
+				sortQueue();
+			
+			currentChunk = queue.remove(queue.size() - 1);
+			nextBlock = 0;
+		}
+		
+		int index = nextBlock++;
+		remaining--;
+		
+		currentChunk.place(index, sink, undoLog);
+		return true;
+	}
+	
+	@Override
+	public int getRemaining() {
+		return remaining;
+	}
+	
+	@Override
+	public boolean isDone() {
+		return remaining == 0;
+	}
+	
+	@Override
+	public void flush() {
+		
+		sink.flush();
+		undoLog.flush();
+	}
+	
+	//sorts the chunks by their distance to the closest player in chunks, the closest one last
+	private void sortQueue() {
+		
+		List<Player> players = world.getPlayers();
+		int[] targets;
+		
+		if(!players.isEmpty()) {
+			
+			targets = new int[2 * players.size()];
+			
+			for(int i = 0; i < players.size(); i++) {
+				targets[2 * i] = players.get(i).getLocation().getBlockX() >> 4;
+				targets[2 * i + 1] = players.get(i).getLocation().getBlockZ() >> 4;
+			}
+			
+		}else {
+			ChunkBlocks lastChunk = currentChunk != null ? currentChunk : queue.get(queue.size() - 1);
+			targets = new int[] {lastChunk.getChunkX(), lastChunk.getChunkZ()};
+		}
+		
+		//the distance and the index of each chunk packed into a long, so sorting needs no comparator
+		long[] order = new long[queue.size()];
+		
+		for(int i = 0; i < order.length; i++) {
+			
+			ChunkBlocks chunk = queue.get(i);
+			int distance = Integer.MAX_VALUE;
+			
+			for(int k = 0; k < targets.length; k += 2) {
+				
+				int chunkDistance = Math.max(
+						Math.abs(chunk.getChunkX() - targets[k]),
+						Math.abs(chunk.getChunkZ() - targets[k + 1]));
+				
+				distance = Math.min(distance, chunkDistance);
+			}
+			
+			order[i] = (long) distance << 32 | i;
+		}
+		
+		Arrays.sort(order);
+		List<ChunkBlocks> sortedQueue = new ArrayList<>(order.length);
+		
+		for(int i = order.length - 1; i >= 0; i--)
+			sortedQueue.add(queue.get((int) order[i]));
+		
+		queue = sortedQueue;
+		isSorted = true;
+		lastSort = System.nanoTime();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import me.gorgeousone.tangledmazeapi.util.Directions;
+
+/**
+ * A map storage with flat arrays covering the whole area of the map, one byte for the type and two shorts
+ * for the heights of every location. Indices are row-major, locations with the same x follow each other in order of z.
+ */
+public class DenseMapStorage implements MapStorage {
+	
+	private byte[] types;
+	private short[] groundHeights, mazeHeights;
+	
+	private int minX, minZ;
+	private int depth;
+	
+	//the differences of indices to the neighbors in every direction, by the ordinal of the direction
+	private int[] neighborOffsets;
+	
+	@Override
+	public void allocate(int minX, int minZ, int maxX, int maxZ) {
+		
+		this.minX = minX;
+		this.minZ = minZ;
+		depth = maxZ - minZ;
+		
+		int size = (maxX - minX) * depth;
+		
+		types = new byte[size];
+		groundHeights = new short[size];
+		mazeHeights = new short[size];
+		
+		Directions[] dirs = Directions.values();
+		neighborOffsets = new int[dirs.length];
+		
+		for(Directions dir : dirs)
+			neighborOffsets[dir.ordinal()] = dir.getX() * depth + dir.getZ();
+	}
+	
+	@Override
+	public int indexOf(int x, int z) {
+		return (x - minX) * depth + z - minZ;
+	}
+	
+	@Override
+	public int getX(int index) {
+		return minX + index / depth;
+	}
+	
+	@Override
+	public int getZ(int index) {
+		return minZ + index % depth;
+	}
+	
+	@Override
+	public int firstIndex() {
+		return types.length > 0 ? 0 : -1;
+	}
+	
+	@Override
+	public int nextIndex(int index) {
+		return index + 1 < types.length ? index + 1 : -1;
+	}
+	
+	@Override
+	public int getNeighbor(int index, Directions dir) {
+		return index + neighborOffsets[dir.ordinal()];
+	}
+	
+	@Override
+	public byte getType(int index) {
+		return types[index];
+	}
+	
+	@Override
+	public void setType(int index, byte type) {
+		types[index] = type;
+	}
+	
+	@Override
+	public int getGroundHeight(int index) {
+		return groundHeights[index];
+	}
+	
+	@Override
+	public void setGroundHeight(int index, int height) {
+		groundHeights[index] = (short) height;
+	}
+	
+	@Override
+	public int getMazeHeight(int index) {
+		return mazeHeights[index];
+	}
+	
+	@Override
+	public void setMazeHeight(int index, int height) {
+		mazeHeights[index] = (short) height;
+	}
+	
+	@Override
+	public long memoryUsage() {
+		return 5L * types.length;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import me.gorgeousone.tangledmazeapi.util.Directions;
+
+/**
+ * Eller's algorithm. It carves the maze one row of cells along the x axis after another and only remembers which cells
+ * of the current row are connected, so apart from the grid it needs memory for a single row.
+ * It creates mazes with many horizontal paths and is also used by the EllerPathGenerator to generate mazes
+ * row by row without a BuildMap of the whole maze.
+ */
+public class EllerAlgorithm implements MazeAlgorithm {
+	
+	@Override
+	public void carvePaths(CellGrid grid, int pathLength, Random rnd) {
+		
+		if(grid.getStartCell() == -1)
+			return;
+		
+		BitSet reachableCells = grid.findReachableCells();
+		EllerRows ellerRows = new EllerRows(grid.getColumns());
+		GridRow row = new GridRow(grid, reachableCells);
+		
+		for(row.z = 0; row.z < grid.getRows(); row.z++)
+			ellerRows.carveRow(row, pathLength, rnd);
+	}
+	
+	//the cells of one row of the grid, only cells connected to the start are open
+	private static class GridRow implements EllerRows.Row {
+		
+		private CellGrid grid;
+		private BitSet reachableCells;
+		private int z;
+		
+		GridRow(CellGrid grid, BitSet reachableCells) {
+			this.grid = grid;
+			this.reachableCells = reachableCells;
+		}
+		
+		@Override
+		public boolean isOpen(int column) {
+			return reachableCells.get(grid.cellOf(column, z));
+		}
+		
+		@Override
+		public boolean canJoinRight(int column) {
+			return isOpen(column) && grid.canConnect(grid.cellOf(column, z), Directions.EAST);
+		}
+		
+		@Override
+		public boolean canJoinDown(int column) {
+			return isOpen(column) && grid.canConnect(grid.cellOf(column, z), Directions.SOUTH);
+		}
+		
+		@Override
+		public boolean nextCanJoinRight(int column) {
+			
+			if(z + 1 == grid.getRows())
+				return false;
+			
+			int cell = grid.cellOf(column, z + 1);
+			return reachableCells.get(cell) && grid.canConnect(cell, Directions.EAST);
+		}
+		
+		@Override
+		public void markPath(int column) {
+			grid.markPath(grid.cellOf(column, z));
+		}
+		
+		@Override
+		public void joinRight(int column) {
+			grid.carve(grid.cellOf(column, z), Directions.EAST);
+		}
+		
+		@Override
+		public void joinDown(int column) {
+			grid.carve(grid.cellOf(column, z), Directions.SOUTH);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,263 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.gorgeousone.tangledmazeapi.clip.Clip;
+import me.gorgeousone.tangledmazeapi.core.Maze;
+import me.gorgeousone.tangledmazeapi.util.Directions;
+import me.gorgeousone.tangledmazeapi.util.Vec2;
+
+/**
+ * A CellPathGenerator using Eller's algorithm. Besides generating the paths of a whole BuildMap,
+ * it can generate a maze one row of cells after another with generateRows(), which hands every finished part
+ * of the maze to a RowListener. Only the parts of a few rows exist at once then, so the memory needed
+ * depends on the width of the maze along the x axis and not on its area, which suits very long mazes.
+ * <p>
+ * While streaming, the generator cannot know which parts of a clip are connected to the exits through rows
+ * that have not been generated yet. So unlike the other generators, parts of a clip that are not connected
+ * to the rest get paths of their own instead of remaining walls.
+ */
+public class EllerPathGenerator extends CellPathGenerator {
+	
+	/**
+	 * Receives the parts of a maze generateRows() finishes.
+	 */
+	public interface RowListener {
+		
+		/**
+		 * Is called for every finished part in order of its rows, see BuildMap.getPartMinZ() and getPartMaxZ().
+		 * The paths of the part are final and the generator does not use the map anymore.
+		 */
+		void rowFinished(BuildMap rowMap);
+	}
+	
+	public EllerPathGenerator() {
+		super(new EllerAlgorithm());
+	}
+	
+	/**
+	 * Generates the maze one row of cells after another and passes the finished parts to the listener.
+	 * The heights of the clip of the maze have to be resolved already.
+	 */
+	public void generateRows(Maze maze, RowListener listener) {
+		
+		Clip clip = maze.getClip();
+		
+		int pathWidth = maze.getPathWidth(),
+			wallWidth = maze.getWallWidth(),
+			pitch = pathWidth + wallWidth;
+		
+		List<PathSegment> exitSegments = new ArrayList<>();
+		
+		PathSegment entrance = createEntranceSegment(
+				maze.getMainExit(),
+				getExitFacing(maze.getMainExit(), clip),
+				pathWidth,
+				wallWidth);
+		
+		Vec2 pathStart = entrance.getEnd();
+		
+		int pathGridOffsetX = pathStart.getX() % pitch,
+			pathGridOffsetZ = pathStart.getZ() % pitch;
+		
+		for(Vec2 exit : maze.getExits()) {
+			
+			if(exit.equals(maze.getMainExit()))
+				continue;
+			
+			Directions facing = getExitFacing(exit, clip);
+			PathSegment exitSegment = new PathSegment(exit, pathWidth, pathWidth, facing, true);
+			
+			exitSegment.expand(facing.isXAligned() ?
+					getExitOffsetToPathGrid(exitSegment.getStart().getX(), facing, pathGridOffsetX, pathWidth, wallWidth) :
+					getExitOffsetToPathGrid(exitSegment.getStart().getZ(), facing, pathGridOffsetZ, pathWidth, wallWidth));
+			
+			exitSegments.add(exitSegment);
+		}
+		
+		//the first and last lattice positions whose cells overlap the clip like in a CellGrid
+		int minColumn = Math.floorDiv(clip.getMinX() - pathWidth - pathStart.getX(), pitch) + 1,
+			minRow    = Math.floorDiv(clip.getMinZ() - pathWidth - pathStart.getZ(), pitch) + 1,
+			maxColumn = Math.floorDiv(clip.getMaxX() - pathStart.getX(), pitch),
+			maxRow    = Math.floorDiv(clip.getMaxZ() - pathStart.getZ(), pitch);
+		
+		RowLattice lattice = new RowLattice();
+		lattice.maze = maze;
+		lattice.entrance = entrance;
+		lattice.exitSegments = exitSegments;
+		lattice.pathStart = pathStart;
+		lattice.pathWidth = pathWidth;
+		lattice.wallWidth = wallWidth;
+		lattice.originX = pathStart.getX() + minColumn * pitch;
+		lattice.originZ = pathStart.getZ() + minRow * pitch;
+		lattice.columns = Math.max(0, maxColumn - minColumn + 1);
+		lattice.rows = Math.max(1, maxRow - minRow + 1);
+		
+		EllerRows ellerRows = new EllerRows(lattice.columns);
+		CellRow previous = null;
+		CellRow current = lattice.createRow(0);
+		
+		for(int row = 0; row < lattice.rows; row++) {
+			
+			CellRow next = row + 1 < lattice.rows ? lattice.createRow(row + 1) : null;
+			
+			current.next = next;
+			ellerRows.carveRow(current, maze.getPathLength(), rnd);
+			
+			//the rows next to a part are only final once the paths of the rows around them are carved
+			if(next != null)
+				copyRow(current.map, next.map, next.map.getMinZ());
+			
+			if(previous != null) {
+				copyRow(current.map, previous.map, previous.map.getMaxZ() - 1);
+				previous.map.flip();
+				listener.rowFinished(previous.map);
+			}
+			
+			previous = current;
+			current = next;
+		}
+		
+		previous.map.flip();
+		listener.rowFinished(previous.map);
+	}
+	
+	protected static Directions getExitFacing(Vec2 exit, Clip clip) {
+		
+		for(Directions dir : Directions.cardinalValues()) {
+			
+			int x = exit.getX() + dir.getX(),
+				z = exit.getZ() + dir.getZ();
+			
+			//check if location next to exit is inside maze
+			if(clip.contains(x, z) && !clip.borderContains(x, z))
+				return dir;
+		}
+		
+		throw new IllegalArgumentException("The passed location cannot be an exit of this maze.");
+	}
+	
+	//copies the types of the row if it is one of the rows next to the part of the target map
+	private static void copyRow(BuildMap source, BuildMap target, int z) {
+		
+		if(z >= target.getPartMinZ() && z < target.getPartMaxZ() || !source.contains(source.getMinX(), z))
+			return;
+		
+		for(int x = target.getMinX(); x < target.getMaxX(); x++)
+			target.setType(target.indexOf(x, z), source.getType(source.indexOf(x, z)));
+	}
+	
+	//the lattice of cells the rows are generated on
+	private static class RowLattice {
+		
+		private Maze maze;
+		private PathSegment entrance;
+		private List<PathSegment> exitSegments;
+		private Vec2 pathStart;
+		
+		private int pathWidth, wallWidth;
+		private int originX, originZ;
+		private int columns, rows;
+		
+		//creates the map of the blocks of the row with the exits on it and looks up which cells and gaps are free
+		CellRow createRow(int row) {
+			
+			Clip clip = maze.getClip();
+			int pitch = pathWidth + wallWidth;
+			int cellZ = originZ + row * pitch;
+			
+			int partMinZ = row == 0 ? clip.getMinZ() : cellZ,
+				partMaxZ = row == rows - 1 ? clip.getMaxZ() + 1 : cellZ + pitch;
+			
+			BuildMap map = new BuildMap(maze, partMinZ, partMaxZ);
+			map.setStart(pathStart);
+			map.mapSegment(entrance, MazeFillType.PATH);
+			
+			for(PathSegment exitSegment : exitSegments)
+				map.mapSegment(exitSegment, MazeFillType.EXIT);
+			
+			CellRow cellRow = new CellRow(map, columns, originX, cellZ, pathWidth, wallWidth);
+			
+			for(int column = 0; column < columns; column++) {
+				
+				int x = originX + column * pitch;
+				boolean isStart = x == pathStart.getX() && cellZ == pathStart.getZ();
+				
+				cellRow.isOpen[column] = isStart || CellGrid.areaIsFree(map, x, cellZ, x + pathWidth, cellZ + pathWidth);
+				cellRow.isRightGapFree[column] = CellGrid.areaIsFree(map, x + pathWidth, cellZ, x + pitch, cellZ + pathWidth);
+				cellRow.isLowerGapFree[column] = CellGrid.areaIsFree(map, x, cellZ + pathWidth, x + pathWidth, cellZ + pitch);
+			}
+			
+			return cellRow;
+		}
+	}
+	
+	//a row of cells on its own map, which knows the row after it while its paths are carved
+	private static class CellRow implements EllerRows.Row {
+		
+		private BuildMap map;
+		private CellRow next;
+		
+		private int originX, cellZ;
+		private int pathWidth, pitch;
+		
+		private boolean[] isOpen;
+		private boolean[] isRightGapFree;
+		private boolean[] isLowerGapFree;
+		
+		CellRow(BuildMap map, int columns, int originX, int cellZ, int pathWidth, int wallWidth) {
+			
+			this.map = map;
+			this.originX = originX;
+			this.cellZ = cellZ;
+			this.pathWidth = pathWidth;
+			pitch = pathWidth + wallWidth;
+			
+			isOpen = new boolean[columns];
+			isRightGapFree = new boolean[columns];
+			isLowerGapFree = new boolean[columns];
+		}
+		
+		@Override
+		public boolean isOpen(int column) {
+			return isOpen[column];
+		}
+		
+		@Override
+		public boolean canJoinRight(int column) {
+			return column + 1 < isOpen.length && isOpen[column] && isOpen[column + 1] && isRightGapFree[column];
+		}
+		
+		@Override
+		public boolean canJoinDown(int column) {
+			return next != null && isOpen[column] && next.isOpen[column] && isLowerGapFree[column];
+		}
+		
+		@Override
+		public boolean nextCanJoinRight(int column) {
+			return next != null && next.canJoinRight(column);
+		}
+		
+		@Override
+		public void markPath(int column) {
+			
+			int x = originX + column * pitch;
+			CellGrid.paintArea(map, x, cellZ, x + pathWidth, cellZ + pathWidth);
+		}
+		
+		@Override
+		public void joinRight(int column) {
+			
+			int x = originX + column * pitch;
+			CellGrid.paintArea(map, x + pathWidth, cellZ, x + pitch, cellZ + pathWidth);
+		}
+		
+		@Override
+		public void joinDown(int column) {
+			
+			int x = originX + column * pitch;
+			CellGrid.paintArea(map, x, cellZ + pathWidth, x + pathWidth, cellZ + pitch);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,317 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The state of Eller's algorithm, which carves a maze one row of cells at a time and only remembers
+ * which cells of the current row are connected to each other. Its memory only depends on the number of columns.
+ * <p>
+ * Rows are split into runs of cells that could be connected horizontally. To keep irregular outlines connected,
+ * sets are only left unconnected inside a run if they all continue into the same run of the next row.
+ * So sets which cannot continue downwards are joined with their neighbors, and runs above more than one run
+ * of the next row are joined completely and continue into each of them.
+ */
+class EllerRows {
+	
+	/**
+	 * The access to the cells of the row being carved and of the row below it.
+	 */
+	interface Row {
+		
+		boolean isOpen(int column);
+		
+		/**
+		 * Returns true if the cell and the one next to it in positive x direction are open and could be connected.
+		 */
+		boolean canJoinRight(int column);
+		
+		/**
+		 * Returns true if the cell and the one below it in the next row are open and could be connected.
+		 */
+		boolean canJoinDown(int column);
+		
+		/**
+		 * Returns true if the cell of the next row and the one next to it in positive x direction could be connected.
+		 */
+		boolean nextCanJoinRight(int column);
+		
+		void markPath(int column);
+		
+		void joinRight(int column);
+		
+		void joinDown(int column);
+	}
+	
+	private int columns;
+	
+	//the set of each cell of the current row and of the next row, -1 for cells that are not open
+	private int[] sets;
+	private int[] nextSets;
+	
+	//the sets of a row are numbered from 0 to columns - 1 and joined in a union-find structure
+	private int[] parents;
+	private boolean[] isUsed;
+	
+	private int[] runsBelow;
+	private boolean[] canContinue;
+	private boolean[] isLinked;
+	private int[] lastCandidates;
+	
+	EllerRows(int columns) {
+		
+		this.columns = columns;
+		
+		sets = new int[columns];
+		nextSets = new int[columns];
+		parents = new int[columns];
+		isUsed = new boolean[columns];
+		
+		runsBelow = new int[columns];
+		canContinue = new boolean[columns];
+		isLinked = new boolean[columns];
+		lastCandidates = new int[columns];
+		
+		Arrays.fill(sets, -1);
+		Arrays.fill(nextSets, -1);
+	}
+	
+	/**
+	 * Carves the paths inside of the row and the ones down to the next row.
+	 * The path length is the maximum number of cells joined horizontally in one go.
+	 */
+	void carveRow(Row row, int pathLength, Random rnd) {
+		
+		assignSets(row);
+		joinRandomly(row, pathLength, rnd);
+		
+		int run = 0;
+		
+		for(int column = 0; column < columns; column++) {
+			
+			if(column > 0 && !row.nextCanJoinRight(column - 1))
+				run++;
+			
+			runsBelow[column] = run;
+		}
+		
+		int column = 0;
+		
+		while(column < columns) {
+			
+			if(!row.isOpen(column)) {
+				column++;
+				continue;
+			}
+			
+			int runStart = column;
+			
+			while(column + 1 < columns && row.canJoinRight(column))
+				column++;
+			
+			carveRun(row, runStart, column, rnd);
+			column++;
+		}
+		
+		//a set can reach into several runs, so later runs may have joined sets that were already linked down
+		for(column = 0; column < columns; column++) {
+			
+			if(nextSets[column] != -1)
+				nextSets[column] = find(nextSets[column]);
+		}
+		
+		int[] temp = sets;
+		sets = nextSets;
+		nextSets = temp;
+		Arrays.fill(nextSets, -1);
+	}
+	
+	//gives every open cell that is not connected to the row above a new set
+	private void assignSets(Row row) {
+		
+		Arrays.fill(isUsed, false);
+		
+		for(int column = 0; column < columns; column++) {
+			
+			parents[column] = column;
+			
+			if(sets[column] != -1)
+				isUsed[sets[column]] = true;
+		}
+		
+		int unusedSet = 0;
+		
+		for(int column = 0; column < columns; column++) {
+			
+			if(!row.isOpen(column)) {
+				sets[column] = -1;
+				continue;
+			}
+			
+			if(sets[column] == -1) {
+				
+				while(isUsed[unusedSet])
+					unusedSet++;
+				
+				sets[column] = unusedSet;
+				isUsed[unusedSet] = true;
+			}
+			
+			row.markPath(column);
+		}
+	}
+	
+	private void joinRandomly(Row row, int pathLength, Random rnd) {
+		
+		int straightCells = 0;
+		
+		for(int column = 0; column + 1 < columns; column++) {
+			
+			if(!row.canJoinRight(column) || find(sets[column]) == find(sets[column + 1])) {
+				straightCells = 0;
+				continue;
+			}
+			
+			if(straightCells > 0) {
+				straightCells--;
+				
+			}else if(rnd.nextBoolean()) {
+				straightCells = pathLength > 1 ? rnd.nextInt(pathLength) : 0;
+				
+			}else
+				continue;
+			
+			joinRight(row, column);
+		}
+	}
+	
+	private void carveRun(Row row, int runStart, int runEnd, Random rnd) {
+		
+		int firstRunBelow = -1;
+		boolean isAboveManyRuns = false;
+		
+		for(int column = runStart; column <= runEnd; column++)
+			canContinue[find(sets[column])] = false;
+		
+		for(int column = runStart; column <= runEnd; column++) {
+			
+			if(!row.canJoinDown(column))
+				continue;
+			
+			canContinue[find(sets[column])] = true;
+			
+			if(firstRunBelow == -1)
+				firstRunBelow = runsBelow[column];
+			else if(runsBelow[column] != firstRunBelow)
+				isAboveManyRuns = true;
+		}
+		
+		for(int column = runStart; column < runEnd; column++) {
+			
+			int set = find(sets[column]),
+				neighborSet = find(sets[column + 1]);
+			
+			if(set != neighborSet && (isAboveManyRuns || !canContinue[set] || !canContinue[neighborSet])) {
+				
+				boolean joinedSetCanContinue = canContinue[set] || canContinue[neighborSet];
+				joinRight(row, column);
+				canContinue[find(sets[column])] = joinedSetCanContinue;
+			}
+		}
+		
+		if(firstRunBelow == -1)
+			return;
+		
+		if(isAboveManyRuns)
+			linkIntoEveryRun(row, runStart, runEnd, rnd);
+		else
+			linkEverySet(row, runStart, runEnd, rnd);
+	}
+	
+	//the run consists of one set, which has to be linked at least once into every run below it
+	private void linkIntoEveryRun(Row row, int runStart, int runEnd, Random rnd) {
+		
+		int currentRunBelow = -1;
+		int lastCandidate = -1;
+		boolean isRunLinked = false;
+		
+		for(int column = runStart; column <= runEnd; column++) {
+			
+			if(!row.canJoinDown(column))
+				continue;
+			
+			if(runsBelow[column] != currentRunBelow) {
+				
+				if(currentRunBelow != -1 && !isRunLinked)
+					joinDown(row, lastCandidate);
+				
+				currentRunBelow = runsBelow[column];
+				isRunLinked = false;
+			}
+			
+			lastCandidate = column;
+			
+			if(rnd.nextBoolean()) {
+				joinDown(row, column);
+				isRunLinked = true;
+			}
+		}
+		
+		if(!isRunLinked)
+			joinDown(row, lastCandidate);
+	}
+	
+	//all sets of the run continue into the same run below, each of them has to be linked at least once
+	private void linkEverySet(Row row, int runStart, int runEnd, Random rnd) {
+		
+		for(int column = runStart; column <= runEnd; column++)
+			isLinked[find(sets[column])] = false;
+		
+		for(int column = runStart; column <= runEnd; column++) {
+			
+			if(!row.canJoinDown(column))
+				continue;
+			
+			int set = find(sets[column]);
+			lastCandidates[set] = column;
+			
+			if(rnd.nextBoolean()) {
+				joinDown(row, column);
+				isLinked[set] = true;
+			}
+		}
+		
+		for(int column = runStart; column <= runEnd; column++) {
+			
+			int set = find(sets[column]);
+			
+			if(row.canJoinDown(column) && !isLinked[set]) {
+				joinDown(row, lastCandidates[set]);
+				isLinked[set] = true;
+			}
+		}
+	}
+	
+	private void joinRight(Row row, int column) {
+		
+		parents[find(sets[column + 1])] = find(sets[column]);
+		row.joinRight(column);
+	}
+	
+	private void joinDown(Row row, int column) {
+		
+		nextSets[column] = find(sets[column]);
+		row.joinDown(column);
+	}
+	
+	//uses path halving, so the trees stay flat without recursion
+	private int find(int set) {
+		
+		while(parents[set] != set) {
+			parents[set] = parents[parents[set]];
+			set = parents[set];
+		}
+		
+		return set;
+	}
+}
\ No newline at end of file
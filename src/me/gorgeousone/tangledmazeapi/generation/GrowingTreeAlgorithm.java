@@ -0,0 +1,118 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.Random;
+
+import me.gorgeousone.tangledmazeapi.util.Directions;
+
+/**
+ * The growing tree algorithm the PathGenerator uses. It grows paths from a list of path ends,
+ * and the PathEndSelector decides which path end to continue from in each step.
+ * It only looks at the cells around the path ends, so it needs no memory apart from the list of path ends.
+ */
+public class GrowingTreeAlgorithm implements MazeAlgorithm {
+	
+	private PathEndSelector pathEndSelector;
+	private Directions[] shuffledDirs;
+	
+	public GrowingTreeAlgorithm() {
+		this(new MixedPathEndSelector(3));
+	}
+	
+	public GrowingTreeAlgorithm(PathEndSelector pathEndSelector) {
+		
+		this.pathEndSelector = pathEndSelector;
+		shuffledDirs = Directions.cardinalValues();
+	}
+	
+	public PathEndSelector getPathEndSelector() {
+		return pathEndSelector;
+	}
+	
+	public void setPathEndSelector(PathEndSelector pathEndSelector) {
+		this.pathEndSelector = pathEndSelector;
+	}
+	
+	@Override
+	public void carvePaths(CellGrid grid, int pathLength, Random rnd) {
+		
+		if(grid.getStartCell() == -1)
+			return;
+		
+		PathEnds pathEnds = new PathEnds();
+		pathEnds.add(grid.getStartCell());
+		
+		boolean lastSegmentWasExpanded = false;
+		pathEndSelector.reset();
+		
+		while(!pathEnds.isEmpty()) {
+			
+			int endIndex = pathEndSelector.select(pathEnds.size(), rnd);
+			int currentPathEnd = (int) pathEnds.get(endIndex);
+			int dirIndex = findFreeDirection(grid, currentPathEnd, rnd);
+			
+			if(dirIndex == -1) {
+				
+				pathEnds.remove(endIndex);
+				pathEndSelector.pathEndClosed();
+				continue;
+			
+			//if this cardinal direction is the last one in shuffledDirs the path end cannot have further junctions
+			}else if(dirIndex == 3)
+				pathEnds.remove(endIndex);
+			
+			Directions facing = shuffledDirs[dirIndex];
+			int newPathEnd = grid.carve(currentPathEnd, facing);
+			
+			if(pathLength > 1 && !lastSegmentWasExpanded) {
+				
+				int expandedPathEnd = tryExpandPath(grid, newPathEnd, facing, rnd.nextInt(pathLength));
+				lastSegmentWasExpanded = expandedPathEnd != newPathEnd;
+				newPathEnd = expandedPathEnd;
+				
+			}else
+				lastSegmentWasExpanded = false;
+			
+			pathEnds.add(newPathEnd);
+			pathEndSelector.pathCarved();
+		}
+	}
+	
+	//shuffles the directions and returns the index of the first one a path can be carved in or -1
+	private int findFreeDirection(CellGrid grid, int cell, Random rnd) {
+		
+		for(int i = shuffledDirs.length - 1; i > 0; i--) {
+			
+			int k = rnd.nextInt(i + 1);
+			Directions temp = shuffledDirs[i];
+			shuffledDirs[i] = shuffledDirs[k];
+			shuffledDirs[k] = temp;
+		}
+		
+		for(int i = 0; i < shuffledDirs.length; i++) {
+			
+			if(grid.canCarve(cell, shuffledDirs[i]))
+				return i;
+		}
+		
+		return -1;
+	}
+	
+	//carves straight on like PathGenerator.tryExpandSegment() and returns the new end of the path
+	private int tryExpandPath(CellGrid grid, int pathEnd, Directions facing, int maxPathLength) {
+		
+		if(!grid.canCarve(pathEnd, facing))
+			return pathEnd;
+		
+		pathEnd = grid.carve(pathEnd, facing);
+		
+		for(int i = 2; i < maxPathLength; i++) {
+			
+			if(grid.canCarve(pathEnd, facing))
+				pathEnd = grid.carve(pathEnd, facing);
+			else
+				break;
+		}
+		
+		return pathEnd;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import me.gorgeousone.tangledmazeapi.util.Directions;
+
+/**
+ * Randomized Kruskal's algorithm. It goes through all possible connections between neighboring cells in random order
+ * and carves each one that connects two cells which are not connected yet. Which cells are connected is tracked
+ * in a union-find structure of two int arrays, so each connection only takes nearly constant time.
+ * It creates mazes with many short dead ends and needs about 16 bytes of memory per cell.
+ * <p>
+ * A carved connection is continued straight on for a random number of cells up to the path length,
+ * as long as the cells ahead are not connected yet.
+ */
+public class KruskalAlgorithm implements MazeAlgorithm {
+	
+	@Override
+	public void carvePaths(CellGrid grid, int pathLength, Random rnd) {
+		
+		BitSet reachableCells = grid.findReachableCells();
+		
+		int[] parents = new int[grid.size()];
+		int[] treeSizes = new int[grid.size()];
+		
+		//a connection is stored as the cell times 2 plus 0 for the one to the east and 1 for the one to the south
+		int[] connections = new int[2 * reachableCells.cardinality()];
+		int connectionCount = 0;
+		
+		for(int cell = reachableCells.nextSetBit(0); cell != -1; cell = reachableCells.nextSetBit(cell + 1)) {
+			
+			parents[cell] = cell;
+			treeSizes[cell] = 1;
+			
+			if(grid.canConnect(cell, Directions.EAST))
+				connections[connectionCount++] = cell << 1;
+			
+			if(grid.canConnect(cell, Directions.SOUTH))
+				connections[connectionCount++] = cell << 1 | 1;
+		}
+		
+		for(int i = connectionCount - 1; i > 0; i--) {
+			
+			int k = rnd.nextInt(i + 1);
+			int temp = connections[i];
+			connections[i] = connections[k];
+			connections[k] = temp;
+		}
+		
+		for(int i = 0; i < connectionCount; i++) {
+			
+			int cell = connections[i] >>> 1;
+			Directions dir = (connections[i] & 1) == 0 ? Directions.EAST : Directions.SOUTH;
+			
+			if(!union(parents, treeSizes, cell, grid.getNeighbor(cell, dir)))
+				continue;
+			
+			cell = grid.carve(cell, dir);
+			int maxPathLength = pathLength > 1 ? rnd.nextInt(pathLength) : 0;
+			
+			for(int k = 1; k < maxPathLength && grid.canConnect(cell, dir); k++) {
+				
+				if(!union(parents, treeSizes, cell, grid.getNeighbor(cell, dir)))
+					break;
+				
+				cell = grid.carve(cell, dir);
+			}
+		}
+	}
+	
+	//uses path halving, so the trees stay flat without recursion
+	private static int find(int[] parents, int cell) {
+		
+		while(parents[cell] != cell) {
+			parents[cell] = parents[parents[cell]];
+			cell = parents[cell];
+		}
+		
+		return cell;
+	}
+	
+	//joins the trees of both cells and returns false if they already were the same tree
+	private static boolean union(int[] parents, int[] treeSizes, int cell, int otherCell) {
+		
+		int root = find(parents, cell),
+			otherRoot = find(parents, otherCell);
+		
+		if(root == otherRoot)
+			return false;
+		
+		if(treeSizes[root] < treeSizes[otherRoot]) {
+			int temp = root;
+			root = otherRoot;
+			otherRoot = temp;
+		}
+		
+		parents[otherRoot] = root;
+		treeSizes[root] += treeSizes[otherRoot];
+		return true;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import me.gorgeousone.tangledmazeapi.util.Directions;
+
+/**
+ * An interface for the data structure a BuildMap stores the type and heights of its locations in.
+ * Every location inside the map's area has an index. Types are stored as ordinals of MazeFillType.
+ * Locations that have never been set are of type NOT_MAZE (ordinal 0) and have the heights 0.
+ *
+ * @see DenseMapStorage
+ * @see TiledMapStorage
+ */
+public interface MapStorage {
+	
+	/**
+	 * Prepares the storage for the area between the passed minimum (inclusive) and maximum (exclusive).
+	 * This is called once by the BuildMap before anything else.
+	 */
+	void allocate(int minX, int minZ, int maxX, int maxZ);
+	
+	int indexOf(int x, int z);
+	
+	int getX(int index);
+	
+	int getZ(int index);
+	
+	/**
+	 * Returns the index of the first location of the area that might be part of the maze or -1.
+	 * Together with nextIndex() locations are visited in x-z-order.
+	 */
+	int firstIndex();
+	
+	/**
+	 * Returns the index of the location following the passed one in x-z-order or -1. Locations that are known
+	 * to be NOT_MAZE can be skipped.
+	 */
+	int nextIndex(int index);
+	
+	/**
+	 * Returns the index of the neighbor in the passed direction. The neighbor has to be inside of the area.
+	 */
+	int getNeighbor(int index, Directions dir);
+	
+	byte getType(int index);
+	
+	void setType(int index, byte type);
+	
+	int getGroundHeight(int index);
+	
+	void setGroundHeight(int index, int height);
+	
+	int getMazeHeight(int index);
+	
+	void setMazeHeight(int index, int height);
+	
+	/**
+	 * Returns the approximate number of bytes the storage occupies.
+	 */
+	long memoryUsage();
+	
+	/**
+	 * Frees resources the storage holds outside of the heap. The storage cannot be used afterwards.
+	 */
+	default void close() {}
+}
\ No newline at end of file
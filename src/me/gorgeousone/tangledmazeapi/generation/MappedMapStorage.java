@@ -0,0 +1,186 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import me.gorgeousone.tangledmazeapi.util.Directions;
+
+/**
+ * A map storage for very large mazes that keeps its data in a memory-mapped temporary file instead of the heap.
+ * The file is mapped in pages of a fixed number of locations, each location taking 5 bytes (the type and both heights).
+ * The operating system loads and writes back pages as they are accessed, so only the pages in use occupy memory.
+ * Indices are row-major like the ones of a DenseMapStorage.
+ * <p>
+ * The file is deleted when the storage is closed. Mapped pages are only unmapped by the garbage collector,
+ * so on systems that do not allow deleting mapped files the file might be left in the directory.
+ * <p>
+ * Indices are ints like with every MapStorage, so the area of the map must not have more than Integer.MAX_VALUE locations.
+ */
+public class MappedMapStorage implements MapStorage {
+	
+	private static final int BYTES_PER_LOCATION = 5;
+	private static final int PAGE_SHIFT = 20;
+	private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+	
+	private File directory;
+	private File file;
+	private RandomAccessFile randomAccessFile;
+	private MappedByteBuffer[] pages;
+	
+	private int minX, minZ;
+	private int depth;
+	private int size;
+	
+	//the differences of indices to the neighbors in every direction, by the ordinal of the direction
+	private int[] neighborOffsets;
+	
+	/**
+	 * Creates a storage with its file in the default temporary directory.
+	 */
+	public MappedMapStorage() {
+		this(null);
+	}
+	
+	public MappedMapStorage(File directory) {
+		this.directory = directory;
+	}
+	
+	@Override
+	public void allocate(int minX, int minZ, int maxX, int maxZ) {
+		
+		long area = (long) (maxX - minX) * (maxZ - minZ);
+		
+		if(area > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The area of " + area + " locations is too large to be indexed by a build map.");
+		
+		this.minX = minX;
+		this.minZ = minZ;
+		depth = maxZ - minZ;
+		size = (int) area;
+		
+		Directions[] dirs = Directions.values();
+		neighborOffsets = new int[dirs.length];
+		
+		for(Directions dir : dirs)
+			neighborOffsets[dir.ordinal()] = dir.getX() * depth + dir.getZ();
+		
+		try {
+			file = File.createTempFile("maze", ".map", directory);
+			
+			//the file is created sparse, so all locations start as NOT_MAZE with the heights 0
+			randomAccessFile = new RandomAccessFile(file, "rw");
+			randomAccessFile.setLength((long) size * BYTES_PER_LOCATION);
+			
+			FileChannel channel = randomAccessFile.getChannel();
+			pages = new MappedByteBuffer[(size + PAGE_MASK) >> PAGE_SHIFT];
+			
+			for(int i = 0; i < pages.length; i++) {
+				
+				long pageStart = (long) i << PAGE_SHIFT;
+				long pageSize = Math.min(PAGE_MASK + 1, size - pageStart);
+				pages[i] = channel.map(MapMode.READ_WRITE, pageStart * BYTES_PER_LOCATION, pageSize * BYTES_PER_LOCATION);
+			}
+			
+		}catch(IOException ex) {
+			close();
+			throw new UncheckedIOException("Could not create the file for the build map.", ex);
+		}
+	}
+	
+	@Override
+	public int indexOf(int x, int z) {
+		return (x - minX) * depth + z - minZ;
+	}
+	
+	@Override
+	public int getX(int index) {
+		return minX + index / depth;
+	}
+	
+	@Override
+	public int getZ(int index) {
+		return minZ + index % depth;
+	}
+	
+	@Override
+	public int firstIndex() {
+		return size > 0 ? 0 : -1;
+	}
+	
+	@Override
+	public int nextIndex(int index) {
+		return index + 1 < size ? index + 1 : -1;
+	}
+	
+	@Override
+	public int getNeighbor(int index, Directions dir) {
+		return index + neighborOffsets[dir.ordinal()];
+	}
+	
+	@Override
+	public byte getType(int index) {
+		return pages[index >> PAGE_SHIFT].get(positionOf(index));
+	}
+	
+	@Override
+	public void setType(int index, byte type) {
+		pages[index >> PAGE_SHIFT].put(positionOf(index), type);
+	}
+	
+	@Override
+	public int getGroundHeight(int index) {
+		return pages[index >> PAGE_SHIFT].getShort(positionOf(index) + 1);
+	}
+	
+	@Override
+	public void setGroundHeight(int index, int height) {
+		pages[index >> PAGE_SHIFT].putShort(positionOf(index) + 1, (short) height);
+	}
+	
+	@Override
+	public int getMazeHeight(int index) {
+		return pages[index >> PAGE_SHIFT].getShort(positionOf(index) + 3);
+	}
+	
+	@Override
+	public void setMazeHeight(int index, int height) {
+		pages[index >> PAGE_SHIFT].putShort(positionOf(index) + 3, (short) height);
+	}
+	
+	//the file lives outside of the heap
+	@Override
+	public long memoryUsage() {
+		return pages != null ? 8L * pages.length : 0;
+	}
+	
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * Closes and deletes the file. The storage cannot be used afterwards.
+	 */
+	@Override
+	public void close() {
+		
+		pages = null;
+		
+		try {
+			if(randomAccessFile != null)
+				randomAccessFile.close();
+			
+		}catch(IOException ignored) {}
+		
+		if(file != null)
+			file.delete();
+	}
+	
+	private static int positionOf(int index) {
+		return (index & PAGE_MASK) * BYTES_PER_LOCATION;
+	}
+}
\ No newline at end of file
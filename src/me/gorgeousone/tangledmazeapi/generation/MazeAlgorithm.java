@@ -0,0 +1,20 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.Random;
+
+/**
+ * An algorithm that carves the paths of a maze into a CellGrid. A CellPathGenerator maps the exits onto the BuildMap first,
+ * so the grid already knows which cells are free, where the paths start and which cells are exits.
+ * Implementations have to connect every cell reachable from the start cell to it without creating loops.
+ *
+ * @see GrowingTreeAlgorithm
+ * @see KruskalAlgorithm
+ * @see WilsonAlgorithm
+ */
+public interface MazeAlgorithm {
+	
+	/**
+	 * Carves the paths. The path length is the maximum number of cells a path may run straight on in one go.
+	 */
+	void carvePaths(CellGrid grid, int pathLength, Random rnd);
+}
\ No newline at end of file
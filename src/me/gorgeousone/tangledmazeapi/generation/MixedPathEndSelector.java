@@ -0,0 +1,47 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.Random;
+
+/**
+ * A PathEndSelector that continues from the newest path end until a number of paths has been linked to each other
+ * and then jumps to a random path end. Dead ends also reset the count, so the generator backtracks to the path end before.
+ * This is the default selector of the PathGenerator, linking 3 paths at once.
+ */
+public class MixedPathEndSelector implements PathEndSelector {
+	
+	private int maxLinkedPathsCount;
+	private int linkedPathsCount;
+	
+	public MixedPathEndSelector(int maxLinkedPathsCount) {
+		this.maxLinkedPathsCount = maxLinkedPathsCount;
+	}
+	
+	public int getMaxLinkedPathsCount() {
+		return maxLinkedPathsCount;
+	}
+	
+	@Override
+	public void reset() {
+		linkedPathsCount = 0;
+	}
+	
+	@Override
+	public int select(int pathEndCount, Random rnd) {
+		
+		if(linkedPathsCount < maxLinkedPathsCount)
+			return pathEndCount - 1;
+		
+		linkedPathsCount = 0;
+		return rnd.nextInt(pathEndCount);
+	}
+	
+	@Override
+	public void pathCarved() {
+		linkedPathsCount++;
+	}
+	
+	@Override
+	public void pathEndClosed() {
+		linkedPathsCount = 0;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.Random;
+
+/**
+ * A PathEndSelector that always continues from the path end added last, like a depth-first search.
+ * It creates mazes with long paths and few junctions.
+ */
+public class NewestPathEndSelector implements PathEndSelector {
+	
+	@Override
+	public void reset() {}
+	
+	@Override
+	public int select(int pathEndCount, Random rnd) {
+		return pathEndCount - 1;
+	}
+	
+	@Override
+	public void pathCarved() {}
+	
+	@Override
+	public void pathEndClosed() {}
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.Random;
+
+/**
+ * A strategy that picks the path end a PathGenerator continues the maze from in each step.
+ * Continuing from the newest path end leads to long winding paths, picking random ones to many short branches.
+ * Selectors are called once for every path segment, so they should not create any objects while doing so.
+ *
+ * @see NewestPathEndSelector
+ * @see RandomPathEndSelector
+ * @see MixedPathEndSelector
+ */
+public interface PathEndSelector {
+	
+	/**
+	 * Prepares the selector for the generation of a new maze.
+	 */
+	void reset();
+	
+	/**
+	 * Returns the index of the path end to continue from. The path end added last is at index pathEndCount - 1.
+	 * Removing another path end than the last one moves the second last one to its index, so the newest path end stays the last one.
+	 */
+	int select(int pathEndCount, Random rnd);
+	
+	/**
+	 * Is called after a path has been carved from the selected path end.
+	 */
+	void pathCarved();
+	
+	/**
+	 * Is called if no path could be carved from the selected path end, which gets removed then.
+	 */
+	void pathEndClosed();
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.Arrays;
+
+/**
+ * The open path ends of a maze during its generation, stored as packed locations or cell indices.
+ * Path ends are added at the end and removed by moving the second newest path end into their place
+ * and the newest one after it, so both only take constant time and the newest path end stays the last one.
+ */
+class PathEnds {
+	
+	private long[] pathEnds;
+	private int size;
+	
+	PathEnds() {
+		pathEnds = new long[16];
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	boolean isEmpty() {
+		return size == 0;
+	}
+	
+	long get(int index) {
+		return pathEnds[index];
+	}
+	
+	void add(long pathEnd) {
+		
+		if(size == pathEnds.length)
+			pathEnds = Arrays.copyOf(pathEnds, size * 2);
+		
+		pathEnds[size++] = pathEnd;
+	}
+	
+	void remove(int index) {
+		
+		if(index < size - 1) {
+			pathEnds[index] = pathEnds[size - 2];
+			pathEnds[size - 2] = pathEnds[size - 1];
+		}
+		
+		size--;
+	}
+}
\ No newline at end of file
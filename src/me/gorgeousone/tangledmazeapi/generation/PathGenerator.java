@@ -1,8 +1,5 @@
 package me.gorgeousone.tangledmazeapi.generation;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.Random;
 
 import me.gorgeousone.tangledmazeapi.core.Maze;
@@ -14,13 +11,41 @@ import me.gorgeousone.tangledmazeapi.util.Vec2;
  */
 public class PathGenerator {
 	
-	protected ArrayList<Directions> shuffledCardinalDirs;
+	private static final Directions[] CARDINAL_DIRS = Directions.cardinalValues();
+	private static final int[] CARDINAL_DIRS_X = new int[CARDINAL_DIRS.length];
+	private static final int[] CARDINAL_DIRS_Z = new int[CARDINAL_DIRS.length];
+	
+	static {
+		
+		for(int i = 0; i < CARDINAL_DIRS.length; i++) {
+			CARDINAL_DIRS_X[i] = CARDINAL_DIRS[i].toVec2().getX();
+			CARDINAL_DIRS_Z[i] = CARDINAL_DIRS[i].toVec2().getZ();
+		}
+	}
+	
+	//indices into CARDINAL_DIRS, of which createPathSegment() draws one after another in random order
+	protected int[] cardinalDirOrder;
+	//how many directions the last call of createPathSegment() had to draw to find a free one
+	protected int drawnDirsCount;
 	protected Random rnd;
+	protected PathEndSelector pathEndSelector;
 	
 	public PathGenerator() {
 		
-		shuffledCardinalDirs = new ArrayList<>(Arrays.asList(Directions.cardinalValues()));
+		cardinalDirOrder = new int[] {0, 1, 2, 3};
 		rnd = new Random();
+		pathEndSelector = new MixedPathEndSelector(3);
+	}
+	
+	public PathEndSelector getPathEndSelector() {
+		return pathEndSelector;
+	}
+	
+	/**
+	 * Sets the strategy which path end the generation continues from in each step.
+	 */
+	public void setPathEndSelector(PathEndSelector pathEndSelector) {
+		this.pathEndSelector = pathEndSelector;
 	}
 	
 	public void generateMazePaths(BuildMap buildMap) {
@@ -139,43 +164,33 @@ public class PathGenerator {
 		
 		Maze maze = buildMap.getMaze();
 		
-		ArrayList<Vec2> pathEnds = new ArrayList<>();
-		pathEnds.add(buildMap.getStart());
+		PathEnds pathEnds = new PathEnds();
+		pathEnds.add(buildMap.getStart().pack());
 		
 		int wallWidth  = maze.getWallWidth();
 		int	pathWidth  = maze.getPathWidth();
 		int pathLength = maze.getPathLength();
 		
-		int maxLinkedPathsCount = 3;
-		int linkedPathsCount = 0;
-		
-		Vec2 currentPathEnd;
-		
 		boolean lastSegmentWasExpanded = false;
+		pathEndSelector.reset();
 		
 		while(!pathEnds.isEmpty()) {
 			
-			if(linkedPathsCount < maxLinkedPathsCount) {
-				currentPathEnd = pathEnds.get(pathEnds.size()-1);
+			int endIndex = pathEndSelector.select(pathEnds.size(), rnd);
+			long currentPathEnd = pathEnds.get(endIndex);
 			
-			}else {
-				currentPathEnd = pathEnds.get(rnd.nextInt(pathEnds.size()));
-				linkedPathsCount = 0;
-			}
+			PathSegment newPath = createPathSegment(buildMap, Vec2.unpackX(currentPathEnd), Vec2.unpackZ(currentPathEnd), wallWidth, pathWidth, pathLength);
 			
-			Collections.shuffle(shuffledCardinalDirs);
-			PathSegment newPath = createPathSegment(buildMap, currentPathEnd, wallWidth, pathWidth, pathLength);
-
 			if(newPath == null) {
-			
-				pathEnds.remove(currentPathEnd);
-				linkedPathsCount = 0;
+				
+				pathEnds.remove(endIndex);
+				pathEndSelector.pathEndClosed();
 				continue;
 			
-			//if this cardinal direction is the last one in shuffledCardinals the path end cannot have further junctions
-			}else if(shuffledCardinalDirs.indexOf(newPath.getFacing()) == 3)
-				pathEnds.remove(currentPathEnd);
-
+			//if this cardinal direction was the last one left to draw the path end cannot have further junctions
+			}else if(drawnDirsCount == CARDINAL_DIRS.length)
+				pathEnds.remove(endIndex);
+			
 			if(pathLength > 1 && !lastSegmentWasExpanded)
 				lastSegmentWasExpanded = tryExpandSegment(buildMap, newPath, wallWidth, pathWidth, rnd.nextInt(pathLength));
 			else
@@ -183,43 +198,50 @@ public class PathGenerator {
 
 			buildMap.mapSegment(newPath, MazeFillType.PATH);
 			
-			pathEnds.add(newPath.getEnd());
-			linkedPathsCount++;
+			pathEnds.add(newPath.getEnd().pack());
+			pathEndSelector.pathCarved();
 		}
 	}
-
+	
+	//draws the directions one after another like a Fisher-Yates shuffle that stops at the first free one,
+	//the bounds of each possible segment are checked before a PathSegment is created for the free one
 	protected PathSegment createPathSegment(
 			BuildMap buildMap,
-			Vec2 lastPathEnd,
+			int lastPathEndX,
+			int lastPathEndZ,
 			int wallWidth,
 			int pathWidth,
 			int pathLength) {
 		
-		Collections.shuffle(shuffledCardinalDirs);
-		
-		PathSegment newPath = null;
+		int segmentLength = pathWidth + wallWidth;
 		
-		for(Directions dir : shuffledCardinalDirs) {
-
-			Vec2 facing = dir.toVec2();
-			Vec2 start  = new Vec2(
-					lastPathEnd.getX() + facing.getX() * pathWidth,
-					lastPathEnd.getZ() + facing.getZ() * pathWidth);
-		
-			PathSegment possiblePath = new PathSegment(
-					start,
-					pathWidth + wallWidth,
-					pathWidth,
-					dir,
-					false);
+		for(drawnDirsCount = 1; drawnDirsCount <= CARDINAL_DIRS.length; drawnDirsCount++) {
 			
-			if(segmentIsFree(buildMap, possiblePath)) {
-				newPath = possiblePath;
-				break;
-			}
+			int i = drawnDirsCount - 1;
+			int k = i + rnd.nextInt(CARDINAL_DIRS.length - i);
+			int dir = cardinalDirOrder[k];
+			
+			cardinalDirOrder[k] = cardinalDirOrder[i];
+			cardinalDirOrder[i] = dir;
+			
+			int facingX = CARDINAL_DIRS_X[dir],
+				facingZ = CARDINAL_DIRS_Z[dir];
+			
+			int startX = lastPathEndX + facingX * pathWidth,
+				startZ = lastPathEndZ + facingZ * pathWidth;
+			
+			//segments facing in negative direction reach from their end to their start
+			int minX = startX + Math.min(0, facingX * wallWidth),
+				minZ = startZ + Math.min(0, facingZ * wallWidth);
+			
+			int maxX = minX + (facingX != 0 ? segmentLength : pathWidth),
+				maxZ = minZ + (facingZ != 0 ? segmentLength : pathWidth);
+			
+			if(segmentIsFree(buildMap, minX, minZ, maxX, maxZ))
+				return new PathSegment(new Vec2(startX, startZ), segmentLength, pathWidth, CARDINAL_DIRS[dir], false);
 		}
 		
-		return newPath;
+		return null;
 	}
 	
 	protected boolean tryExpandSegment(
@@ -278,14 +300,29 @@ public class PathGenerator {
 	
 	protected boolean segmentIsFree(BuildMap buildMap, PathSegment segment) {
 		
-		for(Vec2 point : segment.getFill()) {
-			
-			if(!buildMap.contains(point))
-				return false;
-			
-			if(buildMap.getType(point) != MazeFillType.UNDEFINED &&
-			   buildMap.getType(point) != MazeFillType.EXIT) {
-				return false;
+		Vec2 min = segment.getMin();
+		Vec2 max = segment.getMax();
+		return segmentIsFree(buildMap, min.getX(), min.getZ(), max.getX(), max.getZ());
+	}
+	
+	/**
+	 * Checks the area from the min corner to the max corner (exclusive) like segmentIsFree(BuildMap, PathSegment).
+	 */
+	protected boolean segmentIsFree(BuildMap buildMap, int minX, int minZ, int maxX, int maxZ) {
+		
+		if(minX >= maxX || minZ >= maxZ)
+			return true;
+		
+		if(!buildMap.contains(minX, minZ) || !buildMap.contains(maxX - 1, maxZ - 1))
+			return false;
+		
+		for(int x = minX; x < maxX; x++) {
+			for(int z = minZ; z < maxZ; z++) {
+				
+				MazeFillType type = buildMap.getType(buildMap.indexOf(x, z));
+				
+				if(type != MazeFillType.UNDEFINED && type != MazeFillType.EXIT)
+					return false;
 			}
 		}
 		
@@ -36,13 +36,27 @@ public class PathSegment {
 		return facing;
 	}
 	
+	/**
+	 * Returns the corner of the segment with the lowest coordinates.
+	 */
+	public Vec2 getMin() {
+		return start.clone().add(relativeMin);
+	}
+	
+	/**
+	 * Returns the corner opposite to getMin(), which is not part of the segment anymore.
+	 */
+	public Vec2 getMax() {
+		return getMin().add(size);
+	}
+	
 	public Set<Vec2> getFill() {
 		
 		Set<Vec2> fill = new HashSet<>();
 		
-		Vec2 min = start.clone().add(relativeMin);
-		Vec2 max = min.clone().add(size);
-
+		Vec2 min = getMin();
+		Vec2 max = getMax();
+		
 		for(int x = min.getX(); x < max.getX(); x++) {
 			for(int z = min.getZ(); z < max.getZ(); z++) {
 				fill.add(new Vec2(x, z));
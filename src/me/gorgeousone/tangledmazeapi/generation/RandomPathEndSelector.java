@@ -0,0 +1,24 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.Random;
+
+/**
+ * A PathEndSelector that continues from a random path end, like Prim's algorithm.
+ * It creates mazes with many short dead ends.
+ */
+public class RandomPathEndSelector implements PathEndSelector {
+	
+	@Override
+	public void reset() {}
+	
+	@Override
+	public int select(int pathEndCount, Random rnd) {
+		return rnd.nextInt(pathEndCount);
+	}
+	
+	@Override
+	public void pathCarved() {}
+	
+	@Override
+	public void pathEndClosed() {}
+}
\ No newline at end of file
@@ -0,0 +1,204 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import me.gorgeousone.tangledmazeapi.util.Directions;
+
+/**
+ * A map storage that divides the area of the map into chunk-aligned tiles of 16x16 locations and only allocates
+ * the tiles in which a location is set. All other tiles are NOT_MAZE, so the memory follows the area of the maze
+ * instead of its bounding box, e.g. for thin diagonal or ring shaped mazes.
+ * <p>
+ * An index consists of the number of the tile in the grid of tiles and the position inside the tile.
+ * Locations of a tile with the same x follow each other in order of z.
+ */
+public class TiledMapStorage implements MapStorage {
+	
+	private static final int TILE_SHIFT = 4;
+	private static final int TILE_SIZE = 1 << TILE_SHIFT;
+	private static final int TILE_MASK = TILE_SIZE - 1;
+	private static final int TILE_AREA = TILE_SIZE * TILE_SIZE;
+	
+	//the arrays of a tile and the objects around them
+	private static final int BYTES_PER_TILE = 5 * TILE_AREA + 64;
+	
+	private Tile[] tiles;
+	private int tileCount;
+	
+	private int minX, minZ, maxX, maxZ;
+	private int minTileX, minTileZ;
+	private int tilesZ;
+	
+	@Override
+	public void allocate(int minX, int minZ, int maxX, int maxZ) {
+		
+		this.minX = minX;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxZ = maxZ;
+		
+		minTileX = minX >> TILE_SHIFT;
+		minTileZ = minZ >> TILE_SHIFT;
+		
+		int tilesX = maxX > minX ? ((maxX - 1) >> TILE_SHIFT) - minTileX + 1 : 0;
+		tilesZ = maxZ > minZ ? ((maxZ - 1) >> TILE_SHIFT) - minTileZ + 1 : 0;
+		tiles = new Tile[tilesX * tilesZ];
+	}
+	
+	@Override
+	public int indexOf(int x, int z) {
+		
+		int tile = ((x >> TILE_SHIFT) - minTileX) * tilesZ + (z >> TILE_SHIFT) - minTileZ;
+		return tile << 2 * TILE_SHIFT | (x & TILE_MASK) << TILE_SHIFT | z & TILE_MASK;
+	}
+	
+	@Override
+	public int getX(int index) {
+		return (minTileX + (index >> 2 * TILE_SHIFT) / tilesZ << TILE_SHIFT) + (index >> TILE_SHIFT & TILE_MASK);
+	}
+	
+	@Override
+	public int getZ(int index) {
+		return (minTileZ + (index >> 2 * TILE_SHIFT) % tilesZ << TILE_SHIFT) + (index & TILE_MASK);
+	}
+	
+	@Override
+	public int firstIndex() {
+		return seek(minX, minZ);
+	}
+	
+	@Override
+	public int nextIndex(int index) {
+		
+		int z = getZ(index);
+		
+		//the next location in the same row of the tile
+		if((index & TILE_MASK) != TILE_MASK && z + 1 < maxZ)
+			return index + 1;
+		
+		return seek(getX(index), z + 1);
+	}
+	
+	@Override
+	public int getNeighbor(int index, Directions dir) {
+		
+		int localX = (index >> TILE_SHIFT & TILE_MASK) + dir.getX(),
+			localZ = (index & TILE_MASK) + dir.getZ();
+		
+		if(localX >= 0 && localX < TILE_SIZE && localZ >= 0 && localZ < TILE_SIZE)
+			return index + (dir.getX() << TILE_SHIFT) + dir.getZ();
+		
+		return indexOf(getX(index) + dir.getX(), getZ(index) + dir.getZ());
+	}
+	
+	@Override
+	public byte getType(int index) {
+		
+		Tile tile = tiles[index >> 2 * TILE_SHIFT];
+		return tile != null ? tile.types[index & TILE_AREA - 1] : 0;
+	}
+	
+	@Override
+	public void setType(int index, byte type) {
+		
+		Tile tile = getTile(index, type != 0);
+		
+		if(tile != null)
+			tile.types[index & TILE_AREA - 1] = type;
+	}
+	
+	@Override
+	public int getGroundHeight(int index) {
+		
+		Tile tile = tiles[index >> 2 * TILE_SHIFT];
+		return tile != null ? tile.groundHeights[index & TILE_AREA - 1] : 0;
+	}
+	
+	@Override
+	public void setGroundHeight(int index, int height) {
+		
+		Tile tile = getTile(index, height != 0);
+		
+		if(tile != null)
+			tile.groundHeights[index & TILE_AREA - 1] = (short) height;
+	}
+	
+	@Override
+	public int getMazeHeight(int index) {
+		
+		Tile tile = tiles[index >> 2 * TILE_SHIFT];
+		return tile != null ? tile.mazeHeights[index & TILE_AREA - 1] : 0;
+	}
+	
+	@Override
+	public void setMazeHeight(int index, int height) {
+		
+		Tile tile = getTile(index, height != 0);
+		
+		if(tile != null)
+			tile.mazeHeights[index & TILE_AREA - 1] = (short) height;
+	}
+	
+	@Override
+	public long memoryUsage() {
+		return 4L * tiles.length + (long) BYTES_PER_TILE * tileCount;
+	}
+	
+	/**
+	 * Returns the approximate number of bytes a storage occupies for an area of the passed number of locations
+	 * once the passed number of tiles has been allocated.
+	 */
+	static long estimateMemoryUsage(long area, int tileCount) {
+		return 4L * (area / TILE_AREA) + (long) BYTES_PER_TILE * tileCount;
+	}
+	
+	/**
+	 * Returns the number of tiles that have been allocated.
+	 */
+	public int getTileCount() {
+		return tileCount;
+	}
+	
+	//values that equal the ones of an unallocated tile do not need a tile
+	private Tile getTile(int index, boolean allocate) {
+		
+		int tileIndex = index >> 2 * TILE_SHIFT;
+		Tile tile = tiles[tileIndex];
+		
+		if(tile == null && allocate) {
+			tile = new Tile();
+			tiles[tileIndex] = tile;
+			tileCount++;
+		}
+		
+		return tile;
+	}
+	
+	//returns the index of the first location at or after the passed one in x-z-order that lies in an allocated tile
+	private int seek(int x, int z) {
+		
+		while(x < maxX) {
+			
+			while(z < maxZ) {
+				
+				int index = indexOf(x, z);
+				
+				if(tiles[index >> 2 * TILE_SHIFT] != null)
+					return index;
+				
+				//continue at the start of the next tile in the row
+				z = (z & ~TILE_MASK) + TILE_SIZE;
+			}
+			
+			x++;
+			z = minZ;
+		}
+		
+		return -1;
+	}
+	
+	private static class Tile {
+		
+		final byte[] types = new byte[TILE_AREA];
+		final short[] groundHeights = new short[TILE_AREA];
+		final short[] mazeHeights = new short[TILE_AREA];
+	}
+}
\ No newline at end of file
@@ -0,0 +1,318 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import me.gorgeousone.tangledmazeapi.core.Maze;
+import me.gorgeousone.tangledmazeapi.util.Directions;
+
+/**
+ * A PathGenerator that splits the CellGrid of a maze into square tiles of cells and carves the paths of each tile
+ * as a task on a fork join pool. Every tile gets its own MazeAlgorithm from the supplier and its own Random
+ * seeded by the Random of the generator, so tiles do not share any state and the maze does not depend on the order the tasks run in.
+ * <p>
+ * Afterwards the trees of paths of the tiles are stitched together like in Kruskal's algorithm: the connections between them
+ * are gone through in random order and each one joining two trees that are not connected yet is carved.
+ * So the maze stays a single tree of paths that reaches every cell connected to the start.
+ * Looking up the free cells and painting the paths onto the BuildMap are not split up, only the algorithms run in parallel.
+ */
+public class TiledPathGenerator extends PathGenerator {
+	
+	private Supplier<MazeAlgorithm> algorithms;
+	private ForkJoinPool pool;
+	private int tileSize;
+	
+	/**
+	 * Creates a generator that uses a GrowingTreeAlgorithm for each tile of 64 x 64 cells.
+	 */
+	public TiledPathGenerator(ForkJoinPool pool) {
+		
+		this(new Supplier<MazeAlgorithm>() {
+			
+			@Override
+			public MazeAlgorithm get() {
+				return new GrowingTreeAlgorithm();
+			}
+		}, pool, 64);
+	}
+	
+	/**
+	 * Creates a generator with tiles of tileSize x tileSize cells.
+	 * The supplier is called once per tile and must return a new algorithm every time.
+	 */
+	public TiledPathGenerator(Supplier<MazeAlgorithm> algorithms, ForkJoinPool pool, int tileSize) {
+		
+		if(tileSize < 1)
+			throw new IllegalArgumentException("The tile size has to be at least 1.");
+		
+		this.algorithms = algorithms;
+		this.pool = pool;
+		this.tileSize = tileSize;
+	}
+	
+	public int getTileSize() {
+		return tileSize;
+	}
+	
+	@Override
+	protected void generatePathMap(BuildMap buildMap) {
+		
+		Maze maze = buildMap.getMaze();
+		CellGrid grid = new CellGrid(buildMap, maze.getPathWidth(), maze.getWallWidth());
+		
+		if(grid.getStartCell() == -1)
+			return;
+		
+		Tiling tiling = new Tiling(grid, maze.getPathLength());
+		
+		if(tiling.tiles.length > 0)
+			pool.invoke(new TileTask(tiling, 0, tiling.tiles.length));
+		
+		for(int tile = 0; tile < tiling.tiles.length; tile++)
+			grid.copyPaths(tiling.tiles[tile], tiling.getMinColumn(tile), tiling.getMinRow(tile));
+		
+		tiling.stitchTiles();
+		grid.paint(buildMap);
+	}
+	
+	//the tiles of one grid, their trees of paths are numbered per tile
+	private class Tiling {
+		
+		private CellGrid grid;
+		private BitSet reachableCells;
+		private int pathLength;
+		
+		private int tileColumns, tileRows;
+		private CellGrid[] tiles;
+		private long[] seeds;
+		
+		//the tree number of each carved cell within its tile and the number of trees of each tile
+		private int[] trees;
+		private int[] treeCounts;
+		
+		Tiling(CellGrid grid, int pathLength) {
+			
+			this.grid = grid;
+			this.pathLength = pathLength;
+			reachableCells = grid.findReachableCells();
+			
+			tileColumns = (grid.getColumns() + tileSize - 1) / tileSize;
+			tileRows = (grid.getRows() + tileSize - 1) / tileSize;
+			tiles = new CellGrid[tileColumns * tileRows];
+			seeds = new long[tiles.length];
+			
+			trees = new int[grid.size()];
+			treeCounts = new int[tiles.length];
+			
+			for(int tile = 0; tile < tiles.length; tile++)
+				seeds[tile] = rnd.nextLong();
+		}
+		
+		int getMinColumn(int tile) {
+			return tile / tileRows * tileSize;
+		}
+		
+		int getMinRow(int tile) {
+			return tile % tileRows * tileSize;
+		}
+		
+		int tileOf(int cell) {
+			return grid.getColumn(cell) / tileSize * tileRows + grid.getRow(cell) / tileSize;
+		}
+		
+		/*
+		 * Carves a tree into every part of the tile that is connected inside of it.
+		 * Cells an algorithm left out (like the growing tree does with longer paths) get trees of their own.
+		 */
+		void generateTile(int tileIndex) {
+			
+			int minColumn = getMinColumn(tileIndex),
+				minRow = getMinRow(tileIndex);
+			
+			CellGrid tile = new CellGrid(
+					grid,
+					reachableCells,
+					minColumn,
+					minRow,
+					Math.min(tileSize, grid.getColumns() - minColumn),
+					Math.min(tileSize, grid.getRows() - minRow));
+			
+			MazeAlgorithm algorithm = algorithms.get();
+			Random tileRnd = new Random(seeds[tileIndex]);
+			int[] queue = new int[tile.size()];
+			BitSet numberedCells = new BitSet(tile.size());
+			int treeCount = 0;
+			
+			for(int cell = 0; cell < tile.size(); cell++) {
+				
+				int gridCell = grid.cellOf(minColumn + tile.getColumn(cell), minRow + tile.getRow(cell));
+				
+				if(!reachableCells.get(gridCell) || tile.isPath(cell))
+					continue;
+				
+				tile.setStartCell(cell);
+				tile.markPath(cell);
+				algorithm.carvePaths(tile, pathLength, tileRnd);
+				
+				numberTree(tile, cell, minColumn, minRow, treeCount, queue, numberedCells);
+				treeCount++;
+			}
+			
+			tiles[tileIndex] = tile;
+			treeCounts[tileIndex] = treeCount;
+		}
+		
+		//walks along the carved gaps from the root and writes the tree number of each cell
+		private void numberTree(CellGrid tile, int root, int minColumn, int minRow, int tree, int[] queue, BitSet numberedCells) {
+			
+			int head = 0;
+			int tail = 0;
+			
+			queue[tail++] = root;
+			numberedCells.set(root);
+			
+			while(head < tail) {
+				
+				int cell = queue[head++];
+				trees[grid.cellOf(minColumn + tile.getColumn(cell), minRow + tile.getRow(cell))] = tree;
+				
+				for(Directions dir : Directions.cardinalValues()) {
+					
+					if(!tile.isCarved(cell, dir))
+						continue;
+					
+					int neighbor = tile.getNeighbor(cell, dir);
+					
+					if(!numberedCells.get(neighbor)) {
+						numberedCells.set(neighbor);
+						queue[tail++] = neighbor;
+					}
+				}
+			}
+		}
+		
+		/*
+		 * Joins the trees of all tiles to one. Only connections leaving a tile can join trees of different tiles,
+		 * so the cells inside of a tile are only looked at if it has more than one tree.
+		 */
+		void stitchTiles() {
+			
+			int[] firstTrees = new int[tiles.length + 1];
+			
+			for(int tile = 0; tile < tiles.length; tile++)
+				firstTrees[tile + 1] = firstTrees[tile] + treeCounts[tile];
+			
+			int[] parents = new int[firstTrees[tiles.length]];
+			
+			for(int tree = 0; tree < parents.length; tree++)
+				parents[tree] = tree;
+			
+			//a connection is stored as the cell times 2 plus 0 for the one to the east and 1 for the one to the south
+			int[] connections = new int[16];
+			int connectionCount = 0;
+			
+			for(int cell = 0; cell < grid.size(); cell++) {
+				
+				if(!grid.isPath(cell))
+					continue;
+				
+				int tile = tileOf(cell);
+				boolean hasOneTree = treeCounts[tile] < 2;
+				
+				for(int axis = 0; axis < 2; axis++) {
+					
+					Directions dir = axis == 0 ? Directions.EAST : Directions.SOUTH;
+					int position = axis == 0 ? grid.getColumn(cell) : grid.getRow(cell);
+					
+					if(hasOneTree && (position + 1) % tileSize != 0 || !grid.canConnect(cell, dir))
+						continue;
+					
+					int neighbor = grid.getNeighbor(cell, dir);
+					
+					if(!grid.isPath(neighbor) || treeOf(cell, firstTrees) == treeOf(neighbor, firstTrees))
+						continue;
+					
+					if(connectionCount == connections.length)
+						connections = Arrays.copyOf(connections, 2 * connectionCount);
+					
+					connections[connectionCount++] = cell << 1 | axis;
+				}
+			}
+			
+			for(int i = connectionCount - 1; i > 0; i--) {
+				
+				int k = rnd.nextInt(i + 1);
+				int temp = connections[i];
+				connections[i] = connections[k];
+				connections[k] = temp;
+			}
+			
+			for(int i = 0; i < connectionCount; i++) {
+				
+				int cell = connections[i] >>> 1;
+				Directions dir = (connections[i] & 1) == 0 ? Directions.EAST : Directions.SOUTH;
+				
+				int tree = find(parents, treeOf(cell, firstTrees)),
+					neighborTree = find(parents, treeOf(grid.getNeighbor(cell, dir), firstTrees));
+				
+				if(tree != neighborTree) {
+					parents[neighborTree] = tree;
+					grid.carve(cell, dir);
+				}
+			}
+		}
+		
+		private int treeOf(int cell, int[] firstTrees) {
+			return firstTrees[tileOf(cell)] + trees[cell];
+		}
+	}
+	
+	//uses path halving, so the trees stay flat without recursion
+	private static int find(int[] parents, int tree) {
+		
+		while(parents[tree] != tree) {
+			parents[tree] = parents[parents[tree]];
+			tree = parents[tree];
+		}
+		
+		return tree;
+	}
+	
+	/**
+	 * Splits a range of tiles in halves until a single tile is left to generate.
+	 */
+	private static class TileTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private Tiling tiling;
+		private int from;
+		private int to;
+		
+		TileTask(Tiling tiling, int from, int to) {
+			
+			this.tiling = tiling;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			
+			if(to - from == 1) {
+				tiling.generateTile(from);
+				return;
+			}
+			
+			int middle = (from + to) >>> 1;
+			
+			invokeAll(
+				new TileTask(tiling, from, middle),
+				new TileTask(tiling, middle, to));
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package me.gorgeousone.tangledmazeapi.generation;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import me.gorgeousone.tangledmazeapi.util.Directions;
+
+/**
+ * Wilson's algorithm. Starting with a maze of only the start cell, it walks randomly from each cell outside of the maze
+ * until it hits the maze and then carves the walk without the loops it made. With a path length of 1 every possible maze
+ * is equally likely, which gives a mix of long and short paths without the bias of the other algorithms.
+ * The random walks make it the slowest of the algorithms on big areas, especially the first ones that have to find the start cell.
+ * <p>
+ * With a longer path length the walks keep their direction for a random number of cells up to it.
+ */
+public class WilsonAlgorithm implements MazeAlgorithm {
+	
+	private static final Directions[] CARDINAL_DIRS = Directions.cardinalValues();
+	private static final Directions[] ALL_DIRS = Directions.values();
+	
+	@Override
+	public void carvePaths(CellGrid grid, int pathLength, Random rnd) {
+		
+		BitSet remainingCells = grid.findReachableCells();
+		
+		if(grid.getStartCell() == -1)
+			return;
+		
+		remainingCells.clear(grid.getStartCell());
+		
+		//the direction the last walk left each cell in, by ordinal
+		byte[] walkDirs = new byte[grid.size()];
+		
+		for(int firstCell = remainingCells.nextSetBit(0); firstCell != -1; firstCell = remainingCells.nextSetBit(firstCell + 1)) {
+			
+			int cell = firstCell;
+			Directions dir = null;
+			int straightCells = 0;
+			
+			//loops are erased by overwriting the direction cells were left in when the walk comes back to them
+			while(remainingCells.get(cell)) {
+				
+				if(straightCells > 0 && grid.canConnect(cell, dir)) {
+					straightCells--;
+					
+				}else {
+					
+					do {
+						dir = CARDINAL_DIRS[rnd.nextInt(CARDINAL_DIRS.length)];
+					}while(!grid.canConnect(cell, dir));
+					
+					straightCells = pathLength > 1 ? rnd.nextInt(pathLength) : 0;
+				}
+				
+				walkDirs[cell] = (byte) dir.ordinal();
+				cell = grid.getNeighbor(cell, dir);
+			}
+			
+			cell = firstCell;
+			
+			while(remainingCells.get(cell)) {
+				
+				remainingCells.clear(cell);
+				cell = grid.carve(cell, ALL_DIRS[walkDirs[cell]]);
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.material.MaterialData;
+
+/**
+ * Where the blocks of a maze are written to when it is built or unbuilt.
+ * A sink may keep writes back until it is flushed, placement jobs flush it at the end of every tick at the latest.
+ * Updates without physics do not call any events the SurfaceCache could notice,
+ * so sinks writing to a world invalidate it for every block at the moment the block is changed in the world.
+ */
+public interface BlockSink {
+	
+	/**
+	 * Writes the block without physics. Depending on the sink it might only be changed in the world on the next flush().
+	 */
+	void setBlock(World world, int x, int y, int z, MaterialData data);
+	
+	/**
+	 * Writes the block without physics with all states of the BlockData, which restores replaced blocks exactly.
+	 */
+	void setBlock(World world, int x, int y, int z, BlockData data);
+	
+	/**
+	 * Writes all blocks kept back so far to the world.
+	 */
+	void flush();
+}
\ No newline at end of file
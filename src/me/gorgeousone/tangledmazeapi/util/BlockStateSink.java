@@ -0,0 +1,36 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.material.MaterialData;
+
+/**
+ * A BlockSink updating a BlockState for every block right away.
+ * The server updates the lighting and sends the change to the players for each block on its own.
+ * The SurfaceCache is invalidated for each block as it is written.
+ */
+public class BlockStateSink implements BlockSink {
+	
+	@SuppressWarnings("deprecation")
+	@Override
+	public void setBlock(World world, int x, int y, int z, MaterialData data) {
+		
+		BlockState state = world.getBlockAt(x, y, z).getState();
+		state.setData(data);
+		state.update(true, false);
+		SurfaceCache.getInstance().invalidate(world, x, y, z);
+	}
+	
+	@Override
+	public void setBlock(World world, int x, int y, int z, BlockData data) {
+		
+		BlockState state = world.getBlockAt(x, y, z).getState();
+		state.setBlockData(data);
+		state.update(true, false);
+		SurfaceCache.getInstance().invalidate(world, x, y, z);
+	}
+	
+	@Override
+	public void flush() {}
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import java.util.Arrays;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.material.MaterialData;
+
+/**
+ * A BlockSink that keeps the writes back per chunk until it is flushed. Then each chunk is written
+ * in the order its sections are stored in, bottom up, without creating any BlockStates,
+ * and sent to the players as a whole once instead of as single block changes.
+ * The SurfaceCache is only invalidated for the blocks when they are written, so no surface found before is cached again in between.
+ * <p>
+ * The Bukkit API offers no way to write a whole section or to hold back the lighting,
+ * so the server still updates the light of each block when it is set.
+ */
+public class BulkBlockSink implements BlockSink {
+	
+	private World world;
+	private LongObjectHashMap<ChunkWrites> chunks;
+	private ChunkWrites lastChunk;
+	
+	//the last legacy MaterialData converted to BlockData, walls are mostly written with the same one over and over
+	private MaterialData lastMaterial;
+	private BlockData lastMaterialData;
+	
+	public BulkBlockSink() {
+		chunks = new LongObjectHashMap<>();
+	}
+	
+	@SuppressWarnings("deprecation")
+	@Override
+	public void setBlock(World world, int x, int y, int z, MaterialData data) {
+		
+		//keeps the legacy data value like wool colors or log axes, which setType would drop
+		if(!data.equals(lastMaterial)) {
+			lastMaterialData = Bukkit.getUnsafe().fromLegacy(data.getItemType(), data.getData());
+			lastMaterial = data.clone();
+		}
+		
+		setBlock(world, x, y, z, lastMaterialData);
+	}
+	
+	@Override
+	public void setBlock(World world, int x, int y, int z, BlockData data) {
+		
+		if(world != this.world) {
+			flush();
+			this.world = world;
+		}
+		
+		int chunkX = x >> 4,
+			chunkZ = z >> 4;
+		
+		if(lastChunk == null || lastChunk.chunkX != chunkX || lastChunk.chunkZ != chunkZ) {
+			
+			long chunkKey = Vec2.pack(chunkX, chunkZ);
+			lastChunk = chunks.get(chunkKey);
+			
+			if(lastChunk == null) {
+				lastChunk = new ChunkWrites(chunkX, chunkZ);
+				chunks.put(chunkKey, lastChunk);
+			}
+		}
+		
+		lastChunk.add(x & 0xF, y, z & 0xF, data);
+	}
+	
+	@Override
+	public void flush() {
+		
+		if(chunks.isEmpty())
+			return;
+		
+		for(ChunkWrites chunk : chunks.values())
+			chunk.write(world);
+		
+		chunks.clear();
+		lastChunk = null;
+	}
+	
+	/**
+	 * Returns the number of blocks kept back at the moment.
+	 */
+	public int getPendingCount() {
+		
+		int pending = 0;
+		
+		for(ChunkWrites chunk : chunks.values())
+			pending += chunk.size;
+		
+		return pending;
+	}
+	
+	private static class ChunkWrites {
+		
+		private int chunkX, chunkZ;
+		private int size;
+		
+		//the position y, z, x in the chunk in the upper half, so sorting orders the writes like the sections store blocks,
+		//and the index of the write in the lower half, so later writes to the same block stay last
+		private long[] writes;
+		private BlockData[] blocks;
+		
+		ChunkWrites(int chunkX, int chunkZ) {
+			
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+			writes = new long[64];
+			blocks = new BlockData[64];
+		}
+		
+		void add(int x, int y, int z, BlockData data) {
+			
+			if(size == writes.length) {
+				writes = Arrays.copyOf(writes, 2 * size);
+				blocks = Arrays.copyOf(blocks, 2 * size);
+			}
+			
+			int position = (y & 0xFFF) << 8 | z << 4 | x;
+			writes[size] = (long) position << 32 | size;
+			blocks[size] = data;
+			size++;
+		}
+		
+		void write(World world) {
+			
+			Arrays.sort(writes, 0, size);
+			Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+			
+			for(int i = 0; i < size; i++) {
+				
+				int position = (int) (writes[i] >>> 32);
+				Block block = chunk.getBlock(position & 0xF, position >>> 8, position >>> 4 & 0xF);
+				block.setBlockData(blocks[(int) writes[i]], false);
+				SurfaceCache.getInstance().invalidate(world, block.getX(), block.getY(), block.getZ());
+			}
+			
+			world.refreshChunk(chunkX, chunkZ);
+		}
+	}
+}
\ No newline at end of file
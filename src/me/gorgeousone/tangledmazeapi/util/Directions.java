@@ -5,19 +5,36 @@ import org.bukkit.util.Vector;
 public enum Directions {
 	
 	//putting opposite values next to each other can help quicken methods like Maze.sealsMaze();
-	EAST(      new Vec2( 1,  0)),
-	WEST(      new Vec2(-1,  0)),
-	SOUTH(     new Vec2( 0,  1)),
-	NORTH(     new Vec2( 0, -1)),
-	SOUTH_EAST(new Vec2( 1,  1)),
-	NORTH_WEST(new Vec2(-1, -1)),
-	SOUTH_WEST(new Vec2(-1,  1)),
-	NORTH_EAST(new Vec2( 1, -1));
-
+	EAST(       1,  0),
+	WEST(      -1,  0),
+	SOUTH(      0,  1),
+	NORTH(      0, -1),
+	SOUTH_EAST( 1,  1),
+	NORTH_WEST(-1, -1),
+	SOUTH_WEST(-1,  1),
+	NORTH_EAST( 1, -1);
+	
 	private Vec2 facing;
+	private int x, z;
+	
+	Directions(int x, int z) {
+		this.facing = new Vec2(x, z);
+		this.x = x;
+		this.z = z;
+	}
+	
+	/**
+	 * Returns the x coordinate of the direction's vector without cloning the vector like toVec2() does
+	 */
+	public int getX() {
+		return x;
+	}
 	
-	Directions(Vec2 facing) {
-		this.facing = facing;
+	/**
+	 * Returns the z coordinate of the direction's vector without cloning the vector like toVec2() does
+	 */
+	public int getZ() {
+		return z;
 	}
 	
 	/**
@@ -0,0 +1,477 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+/**
+ * An UndoLog that appends the blocks to a journal file instead of keeping them on the heap.
+ * Whenever the log is flushed, the blocks of the chunk logged since then are written as one record,
+ * so once the maze is built only the file is left. The file stays after the server stopped,
+ * so a maze can still be unbuilt after a restart, see Maze.setUndoJournalFile().
+ * Restoring reads one record at a time with a FileChannel, from the end of the file to the start.
+ * No part of the file is mapped into memory, so it can be deleted right after the restore.
+ * <p>
+ * The file starts with a header of a magic number, the version of the format and the UUID of the world.
+ * A record holds the coordinates of the chunk, a palette of the BlockData of the chunk as strings,
+ * the number of blocks and an int for each block with its position in the chunk in the upper 20 bits
+ * and its index in the palette in the lower 12 bits. It ends with its own length, so it can be found from the end of the file.
+ * BlockData is stored by its string form with all states, so the file stays readable when the server is updated.
+ */
+public class JournalUndoLog implements UndoLog {
+	
+	private static final int MAGIC = 0x544D554A;
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 24;
+	
+	private static final int MAX_PALETTE_SIZE = 1 << 12;
+	
+	private File file;
+	private UUID worldId;
+	private FileOutputStream out;
+	
+	//the blocks of the chunk logged since the last record was written
+	private int chunkX, chunkZ;
+	private int[] entries;
+	private int entryCount;
+	
+	//the different BlockData of the chunk logged since the last record
+	private BlockData[] palette;
+	private int paletteSize;
+	
+	/**
+	 * Creates a log appending to the journal file. If the file exists already, its blocks are restored as well.
+	 */
+	public JournalUndoLog(File file, World world) {
+		
+		this.file = file;
+		worldId = world.getUID();
+	}
+	
+	public File getFile() {
+		return file;
+	}
+	
+	@Override
+	public void add(int x, int y, int z, BlockData data) {
+		
+		int chunkX = x >> 4,
+			chunkZ = z >> 4;
+		
+		if(entries == null) {
+			entries = new int[256];
+			palette = new BlockData[16];
+			
+		}else if(entryCount > 0 && (chunkX != this.chunkX || chunkZ != this.chunkZ))
+			writeRecord();
+		
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+		
+		int paletteIndex = paletteIndexOf(data);
+		
+		if(paletteIndex == -1) {
+			writeRecord();
+			paletteIndex = paletteIndexOf(data);
+		}
+		
+		if(entryCount == entries.length)
+			entries = Arrays.copyOf(entries, 2 * entryCount);
+		
+		entries[entryCount++] = ((x & 0xF) << 16 | (z & 0xF) << 12 | y & 0xFFF) << 12 | paletteIndex;
+	}
+	
+	@Override
+	public void flush() {
+		writeRecord();
+	}
+	
+	/**
+	 * Writes the last blocks and closes the file, the log does not occupy any heap afterwards.
+	 */
+	@Override
+	public void close() {
+		
+		writeRecord();
+		entries = null;
+		palette = null;
+		
+		try {
+			if(out != null)
+				out.close();
+			
+		}catch(IOException ignored) {}
+		
+		out = null;
+	}
+	
+	/**
+	 * Returns true if no blocks are waiting to be written and the file holds no records of the world.
+	 * A file without the header of an undo journal of this version counts as empty, it is overwritten by the next build.
+	 */
+	@Override
+	public boolean isEmpty() {
+		
+		if(entryCount > 0)
+			return false;
+		
+		if(file.length() <= HEADER_SIZE)
+			return true;
+		
+		try {
+			ByteBuffer header = readHeader();
+			return header == null || !isOfWorld(header);
+			
+		}catch(IOException ex) {
+			throw new UncheckedIOException("Could not read the undo journal " + file + ".", ex);
+		}
+	}
+	
+	/**
+	 * Closes and deletes the file. If the file cannot be deleted, it is truncated instead,
+	 * so its blocks are not restored a second time.
+	 */
+	@Override
+	public void clear() {
+		
+		entryCount = 0;
+		paletteSize = 0;
+		close();
+		
+		if(!file.exists() || file.delete())
+			return;
+		
+		RandomAccessFile randomAccessFile = null;
+		
+		try {
+			randomAccessFile = new RandomAccessFile(file, "rw");
+			randomAccessFile.setLength(0);
+			
+		}catch(IOException ex) {
+			throw new UncheckedIOException("Could not delete or truncate the undo journal " + file + ".", ex);
+			
+		}finally {
+			closeQuietly(randomAccessFile);
+		}
+	}
+	
+	@Override
+	public PlacementScheduler.PlacementJob createRestoreJob(World world, BlockSink sink) {
+		
+		writeRecord();
+		return new RestoreJob(world, sink);
+	}
+	
+	private int paletteIndexOf(BlockData blockData) {
+		
+		for(int i = 0; i < paletteSize; i++) {
+			
+			if(palette[i].equals(blockData))
+				return i;
+		}
+		
+		if(paletteSize == MAX_PALETTE_SIZE)
+			return -1;
+		
+		if(paletteSize == palette.length)
+			palette = Arrays.copyOf(palette, 2 * paletteSize);
+		
+		palette[paletteSize] = blockData;
+		return paletteSize++;
+	}
+	
+	//appends the blocks logged since the last record in one write
+	private void writeRecord() {
+		
+		if(entryCount == 0)
+			return;
+		
+		byte[][] names = new byte[paletteSize][];
+		int recordLength = 14 + 4 * entryCount;
+		
+		for(int i = 0; i < paletteSize; i++) {
+			names[i] = palette[i].getAsString().getBytes(StandardCharsets.UTF_8);
+			recordLength += 2 + names[i].length;
+		}
+		
+		ByteBuffer record = ByteBuffer.allocate(recordLength + 4);
+		record.putInt(chunkX).putInt(chunkZ).putShort((short) paletteSize);
+		
+		for(int i = 0; i < paletteSize; i++)
+			record.putShort((short) names[i].length).put(names[i]);
+		
+		record.putInt(entryCount);
+		
+		for(int i = 0; i < entryCount; i++)
+			record.putInt(entries[i]);
+		
+		record.putInt(recordLength);
+		
+		try {
+			if(out == null)
+				openJournal();
+			
+			out.write(record.array());
+			
+		}catch(IOException ex) {
+			throw new UncheckedIOException("Could not write the undo journal " + file + ".", ex);
+		}
+		
+		entryCount = 0;
+		paletteSize = 0;
+	}
+	
+	private void openJournal() throws IOException {
+		
+		File directory = file.getAbsoluteFile().getParentFile();
+		
+		if(directory != null)
+			directory.mkdirs();
+		
+		ByteBuffer oldHeader = readHeader();
+		
+		if(oldHeader != null && !isOfWorld(oldHeader))
+			throw new IllegalStateException("The undo journal " + file + " belongs to another world.");
+		
+		//a file that is not an undo journal of this version is overwritten
+		boolean isNew = oldHeader == null;
+		out = new FileOutputStream(file, !isNew);
+		
+		if(isNew) {
+			
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION);
+			header.putLong(worldId.getMostSignificantBits()).putLong(worldId.getLeastSignificantBits());
+			out.write(header.array());
+		}
+	}
+	
+	//returns the header of the file or null if the file is no undo journal of this version
+	private ByteBuffer readHeader() throws IOException {
+		
+		if(file.length() < HEADER_SIZE)
+			return null;
+		
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		
+		try {
+			readFully(randomAccessFile.getChannel(), header, 0);
+			
+		}finally {
+			closeQuietly(randomAccessFile);
+		}
+		
+		return header.getInt(0) == MAGIC && header.getInt(4) == VERSION ? header : null;
+	}
+	
+	private boolean isOfWorld(ByteBuffer header) {
+		return header.getLong(8) == worldId.getMostSignificantBits() && header.getLong(16) == worldId.getLeastSignificantBits();
+	}
+	
+	//reads bytes from the position in the file until the buffer is full
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		
+		while(buffer.hasRemaining()) {
+			
+			if(channel.read(buffer, position + buffer.position()) == -1)
+				throw new EOFException();
+		}
+		
+		buffer.flip();
+	}
+	
+	private static void closeQuietly(RandomAccessFile randomAccessFile) {
+		
+		try {
+			if(randomAccessFile != null)
+				randomAccessFile.close();
+			
+		}catch(IOException ignored) {}
+	}
+	
+	/**
+	 * Restores the records from the last one to the first one and the blocks of each record from the last one to the first one.
+	 */
+	private class RestoreJob implements PlacementScheduler.PlacementJob {
+		
+		private World world;
+		private BlockSink sink;
+		private FileChannel channel;
+		
+		//the record being restored, the records before its start are left to restore
+		private ByteBuffer record;
+		private long recordStart;
+		private int recordChunkX, recordChunkZ;
+		private BlockData[] blockData;
+		private int entriesStart;
+		private int recordEntryCount;
+		private int nextEntry;
+		
+		RestoreJob(World world, BlockSink sink) {
+			
+			this.world = world;
+			this.sink = sink;
+			recordStart = HEADER_SIZE;
+			
+			if(file.length() <= HEADER_SIZE)
+				return;
+			
+			ByteBuffer header;
+			
+			try {
+				header = readHeader();
+				
+			}catch(IOException ex) {
+				throw new UncheckedIOException("Could not read the undo journal " + file + ".", ex);
+			}
+			
+			if(header == null)
+				throw new IllegalStateException("The file " + file + " is not an undo journal of this version.");
+			
+			if(!isOfWorld(header))
+				throw new IllegalArgumentException("The undo journal " + file + " belongs to another world.");
+			
+			try {
+				channel = new RandomAccessFile(file, "r").getChannel();
+				recordStart = channel.size();
+				
+			}catch(IOException ex) {
+				closeFile();
+				throw new UncheckedIOException("Could not read the undo journal " + file + ".", ex);
+			}
+			
+			record = ByteBuffer.allocate(1 << 12);
+		}
+		
+		@Override
+		public boolean placeNext() {
+			
+			while(nextEntry == recordEntryCount) {
+				
+				if(recordStart <= HEADER_SIZE)
+					return false;
+				
+				if(recordEntryCount > 0)
+					sink.flush();
+				
+				readPreviousRecord();
+			}
+			
+			int entryIndex = recordEntryCount - 1 - nextEntry++;
+			int entry = record.getInt(entriesStart + 4 * entryIndex);
+			BlockData data = blockData[entry & MAX_PALETTE_SIZE - 1];
+			
+			//blocks of BlockData the server cannot read anymore are left as they are
+			if(data == null)
+				return true;
+			
+			int position = entry >>> 12;
+			
+			int x = recordChunkX << 4 | position >>> 16,
+				y = position & 0xFFF,
+				z = recordChunkZ << 4 | position >>> 12 & 0xF;
+			
+			sink.setBlock(world, x, y, z, data);
+			return true;
+		}
+		
+		//an estimate from the number of bytes left, which are mostly one int per block
+		@Override
+		public int getRemaining() {
+			return (int) Math.min(Integer.MAX_VALUE, (recordStart - HEADER_SIZE) / 4 + recordEntryCount - nextEntry);
+		}
+		
+		@Override
+		public boolean isDone() {
+			return recordStart <= HEADER_SIZE && nextEntry == recordEntryCount;
+		}
+		
+		@Override
+		public void flush() {
+			sink.flush();
+		}
+		
+		private void readPreviousRecord() {
+			
+			long recordEnd = recordStart;
+			read(recordEnd - 4, 4);
+			
+			int recordLength = record.getInt(0);
+			recordStart = recordEnd - 4 - recordLength;
+			
+			if(recordLength < 14 || recordStart < HEADER_SIZE) {
+				closeFile();
+				throw new IllegalStateException("The undo journal " + file + " is damaged.");
+			}
+			
+			read(recordStart, recordLength);
+			
+			recordChunkX = record.getInt();
+			recordChunkZ = record.getInt();
+			blockData = new BlockData[record.getShort() & 0xFFFF];
+			
+			for(int i = 0; i < blockData.length; i++) {
+				
+				byte[] name = new byte[record.getShort() & 0xFFFF];
+				record.get(name);
+				
+				try {
+					blockData[i] = Bukkit.createBlockData(new String(name, StandardCharsets.UTF_8));
+					
+				}catch(IllegalArgumentException ex) {
+					blockData[i] = null;
+				}
+			}
+			
+			recordEntryCount = record.getInt();
+			entriesStart = record.position();
+			nextEntry = 0;
+			
+			//the record stays in the buffer after the file is closed
+			if(recordStart <= HEADER_SIZE)
+				closeFile();
+		}
+		
+		//reads the bytes of the range into the record buffer, which grows for records of more blocks
+		private void read(long position, int length) {
+			
+			if(record.capacity() < length)
+				record = ByteBuffer.allocate(Math.max(length, 2 * record.capacity()));
+			
+			record.clear();
+			record.limit(length);
+			
+			try {
+				readFully(channel, record, position);
+				
+			}catch(IOException ex) {
+				closeFile();
+				throw new UncheckedIOException("Could not read the undo journal " + file + ".", ex);
+			}
+		}
+		
+		private void closeFile() {
+			
+			try {
+				if(channel != null)
+					channel.close();
+				
+			}catch(IOException ignored) {}
+			
+			channel = null;
+		}
+	}
+}
\ No newline at end of file
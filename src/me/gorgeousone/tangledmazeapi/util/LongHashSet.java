@@ -0,0 +1,223 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash set of primitive long values using open addressing with linear probing.
+ * Long.MIN_VALUE is reserved to mark free slots and cannot be added.
+ *
+ * @see LongIntHashMap
+ */
+public class LongHashSet {
+	
+	private static final long FREE = Long.MIN_VALUE;
+	private static final float MAX_LOAD = 0.75f;
+	
+	private long[] keys;
+	private int size;
+	private int mask;
+	private int resizeThreshold;
+	
+	public LongHashSet() {
+		this(16);
+	}
+	
+	public LongHashSet(int expectedSize) {
+		allocate(LongIntHashMap.capacityFor(expectedSize));
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public boolean contains(long key) {
+		
+		if(key == FREE)
+			return false;
+		
+		int slot = LongIntHashMap.hash(key) & mask;
+		
+		while(keys[slot] != FREE) {
+			
+			if(keys[slot] == key)
+				return true;
+			
+			slot = (slot + 1) & mask;
+		}
+		
+		return false;
+	}
+	
+	public boolean add(long key) {
+		
+		if(key == FREE)
+			throw new IllegalArgumentException("Long.MIN_VALUE cannot be added.");
+		
+		int slot = LongIntHashMap.hash(key) & mask;
+		
+		while(keys[slot] != FREE) {
+			
+			if(keys[slot] == key)
+				return false;
+			
+			slot = (slot + 1) & mask;
+		}
+		
+		keys[slot] = key;
+		
+		if(++size > resizeThreshold)
+			rehash(keys.length * 2);
+		
+		return true;
+	}
+	
+	public boolean remove(long key) {
+		
+		if(key == FREE)
+			return false;
+		
+		int slot = LongIntHashMap.hash(key) & mask;
+		
+		while(keys[slot] != FREE) {
+			
+			if(keys[slot] == key) {
+				
+				shiftBack(slot);
+				size--;
+				return true;
+			}
+			
+			slot = (slot + 1) & mask;
+		}
+		
+		return false;
+	}
+	
+	public void clear() {
+		
+		Arrays.fill(keys, FREE);
+		size = 0;
+	}
+	
+	public void ensureCapacity(int expectedSize) {
+		
+		int capacity = LongIntHashMap.capacityFor(expectedSize);
+		
+		if(capacity > keys.length)
+			rehash(capacity);
+	}
+	
+	/**
+	 * Returns a copy of all values in no particular order.
+	 */
+	public long[] toArray() {
+		
+		long[] copy = new long[size];
+		int i = 0;
+		
+		for(long key : keys) {
+			
+			if(key != FREE)
+				copy[i++] = key;
+		}
+		
+		return copy;
+	}
+	
+	/**
+	 * Returns a copy of all values sorted ascending.
+	 */
+	public long[] toSortedArray() {
+		
+		long[] copy = toArray();
+		Arrays.sort(copy);
+		return copy;
+	}
+	
+	public long memoryUsage() {
+		return 8L * keys.length;
+	}
+	
+	public Cursor cursor() {
+		return new Cursor();
+	}
+	
+	/**
+	 * A cursor that steps over the values of the set. The set must not be changed during iteration.
+	 */
+	public class Cursor {
+		
+		private int slot = -1;
+		
+		public boolean next() {
+			
+			while(++slot < keys.length) {
+				
+				if(keys[slot] != FREE)
+					return true;
+			}
+			
+			return false;
+		}
+		
+		public long value() {
+			return keys[slot];
+		}
+	}
+	
+	private void shiftBack(int gap) {
+		
+		int slot = gap;
+		
+		while(true) {
+			
+			slot = (slot + 1) & mask;
+			long key = keys[slot];
+			
+			if(key == FREE)
+				break;
+			
+			int home = LongIntHashMap.hash(key) & mask;
+			
+			if(gap <= slot ? gap < home && home <= slot : gap < home || home <= slot)
+				continue;
+			
+			keys[gap] = key;
+			gap = slot;
+		}
+		
+		keys[gap] = FREE;
+	}
+	
+	private void rehash(int capacity) {
+		
+		long[] oldKeys = keys;
+		allocate(capacity);
+		
+		for(long key : oldKeys) {
+			
+			if(key == FREE)
+				continue;
+			
+			int slot = LongIntHashMap.hash(key) & mask;
+			
+			while(keys[slot] != FREE)
+				slot = (slot + 1) & mask;
+			
+			keys[slot] = key;
+		}
+	}
+	
+	private void allocate(int capacity) {
+		
+		keys = new long[capacity];
+		Arrays.fill(keys, FREE);
+		
+		mask = capacity - 1;
+		resizeThreshold = (int) (capacity * MAX_LOAD);
+	}
+}
\ No newline at end of file
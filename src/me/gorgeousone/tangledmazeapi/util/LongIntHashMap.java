@@ -0,0 +1,275 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from primitive long keys to primitive int values.
+ * It uses open addressing with linear probing and keeps keys and values in two parallel arrays,
+ * so an entry costs 12 bytes plus the free slots instead of several boxed objects and a tree node.
+ * Long.MIN_VALUE is reserved to mark free slots and cannot be used as key.
+ *
+ * @see Vec2#pack(int, int)
+ */
+public class LongIntHashMap {
+	
+	private static final long FREE = Long.MIN_VALUE;
+	private static final float MAX_LOAD = 0.75f;
+	
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+	private int resizeThreshold;
+	
+	public LongIntHashMap() {
+		this(16);
+	}
+	
+	public LongIntHashMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public boolean containsKey(long key) {
+		return slotOf(key) >= 0;
+	}
+	
+	/**
+	 * Returns the value mapped to the key or the passed default value if the key is not contained.
+	 */
+	public int get(long key, int defaultValue) {
+		
+		int slot = slotOf(key);
+		return slot >= 0 ? values[slot] : defaultValue;
+	}
+	
+	/**
+	 * Maps the value to the key and returns true if the key has not been contained before.
+	 */
+	public boolean put(long key, int value) {
+		
+		if(key == FREE)
+			throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as key.");
+		
+		int slot = hash(key) & mask;
+		
+		while(keys[slot] != FREE) {
+			
+			if(keys[slot] == key) {
+				values[slot] = value;
+				return false;
+			}
+			
+			slot = (slot + 1) & mask;
+		}
+		
+		keys[slot] = key;
+		values[slot] = value;
+		
+		if(++size > resizeThreshold)
+			rehash(keys.length * 2);
+		
+		return true;
+	}
+	
+	public boolean remove(long key) {
+		
+		int slot = slotOf(key);
+		
+		if(slot < 0)
+			return false;
+		
+		shiftBack(slot);
+		size--;
+		return true;
+	}
+	
+	public void clear() {
+		
+		Arrays.fill(keys, FREE);
+		size = 0;
+	}
+	
+	/**
+	 * Grows the map in advance so that the given number of entries fits without rehashing.
+	 */
+	public void ensureCapacity(int expectedSize) {
+		
+		int capacity = capacityFor(expectedSize);
+		
+		if(capacity > keys.length)
+			rehash(capacity);
+	}
+	
+	/**
+	 * Returns a copy of all keys in no particular order.
+	 */
+	public long[] keys() {
+		
+		long[] copy = new long[size];
+		int i = 0;
+		
+		for(long key : keys) {
+			
+			if(key != FREE)
+				copy[i++] = key;
+		}
+		
+		return copy;
+	}
+	
+	/**
+	 * Returns a copy of all keys sorted ascending. For keys created with Vec2.pack() this is the order of Vec2.compareTo().
+	 */
+	public long[] sortedKeys() {
+		
+		long[] copy = keys();
+		Arrays.sort(copy);
+		return copy;
+	}
+	
+	/**
+	 * Returns the approximate number of bytes the arrays of this map occupy.
+	 */
+	public long memoryUsage() {
+		return 12L * keys.length;
+	}
+	
+	public Cursor cursor() {
+		return new Cursor();
+	}
+	
+	/**
+	 * A cursor that steps over the entries of the map without creating an object per entry.
+	 * Values may be changed during iteration but keys must not be added or removed.
+	 */
+	public class Cursor {
+		
+		private int slot = -1;
+		
+		public boolean next() {
+			
+			while(++slot < keys.length) {
+				
+				if(keys[slot] != FREE)
+					return true;
+			}
+			
+			return false;
+		}
+		
+		public long key() {
+			return keys[slot];
+		}
+		
+		public int value() {
+			return values[slot];
+		}
+		
+		public void setValue(int value) {
+			values[slot] = value;
+		}
+	}
+	
+	private int slotOf(long key) {
+		
+		if(key == FREE)
+			return -1;
+		
+		int slot = hash(key) & mask;
+		
+		while(keys[slot] != FREE) {
+			
+			if(keys[slot] == key)
+				return slot;
+			
+			slot = (slot + 1) & mask;
+		}
+		
+		return -1;
+	}
+	
+	//closes the gap of a removed entry so that no probe sequence is interrupted
+	private void shiftBack(int gap) {
+		
+		int slot = gap;
+		
+		while(true) {
+			
+			slot = (slot + 1) & mask;
+			long key = keys[slot];
+			
+			if(key == FREE)
+				break;
+			
+			int home = hash(key) & mask;
+			
+			//move the entry only if its home slot does not lie cyclically between the gap and its current slot
+			if(gap <= slot ? gap < home && home <= slot : gap < home || home <= slot)
+				continue;
+			
+			keys[gap] = key;
+			values[gap] = values[slot];
+			gap = slot;
+		}
+		
+		keys[gap] = FREE;
+	}
+	
+	private void rehash(int capacity) {
+		
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		
+		allocate(capacity);
+		
+		for(int i = 0; i < oldKeys.length; i++) {
+			
+			long key = oldKeys[i];
+			
+			if(key == FREE)
+				continue;
+			
+			int slot = hash(key) & mask;
+			
+			while(keys[slot] != FREE)
+				slot = (slot + 1) & mask;
+			
+			keys[slot] = key;
+			values[slot] = oldValues[i];
+		}
+	}
+	
+	private void allocate(int capacity) {
+		
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, FREE);
+		
+		mask = capacity - 1;
+		resizeThreshold = (int) (capacity * MAX_LOAD);
+	}
+	
+	static int capacityFor(int expectedSize) {
+		
+		int capacity = 16;
+		
+		while(capacity * MAX_LOAD < expectedSize)
+			capacity <<= 1;
+		
+		return capacity;
+	}
+	
+	static int hash(long key) {
+		
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ h >>> 32);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hash map from primitive long keys to objects using open addressing with linear probing.
+ * Long.MIN_VALUE is reserved to mark free slots and cannot be used as key.
+ *
+ * @see LongIntHashMap
+ */
+public class LongObjectHashMap<V> {
+	
+	private static final long FREE = Long.MIN_VALUE;
+	private static final float MAX_LOAD = 0.75f;
+	
+	private long[] keys;
+	private Object[] values;
+	private int size;
+	private int mask;
+	private int resizeThreshold;
+	
+	public LongObjectHashMap() {
+		this(16);
+	}
+	
+	public LongObjectHashMap(int expectedSize) {
+		allocate(LongIntHashMap.capacityFor(expectedSize));
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public boolean containsKey(long key) {
+		return slotOf(key) >= 0;
+	}
+	
+	/**
+	 * Returns the value mapped to the key or null if the key is not contained.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		
+		int slot = slotOf(key);
+		return slot >= 0 ? (V) values[slot] : null;
+	}
+	
+	/**
+	 * Maps the value to the key and returns the value previously mapped to it or null.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		
+		if(key == FREE)
+			throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as key.");
+		
+		int slot = LongIntHashMap.hash(key) & mask;
+		
+		while(keys[slot] != FREE) {
+			
+			if(keys[slot] == key) {
+				
+				V previous = (V) values[slot];
+				values[slot] = value;
+				return previous;
+			}
+			
+			slot = (slot + 1) & mask;
+		}
+		
+		keys[slot] = key;
+		values[slot] = value;
+		
+		if(++size > resizeThreshold)
+			rehash(keys.length * 2);
+		
+		return null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		
+		int slot = slotOf(key);
+		
+		if(slot < 0)
+			return null;
+		
+		V removed = (V) values[slot];
+		
+		shiftBack(slot);
+		size--;
+		return removed;
+	}
+	
+	public void clear() {
+		
+		Arrays.fill(keys, FREE);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+	
+	/**
+	 * Returns a list of all values in no particular order.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		
+		List<V> copy = new ArrayList<>(size);
+		
+		for(int slot = 0; slot < keys.length; slot++) {
+			
+			if(keys[slot] != FREE)
+				copy.add((V) values[slot]);
+		}
+		
+		return copy;
+	}
+	
+	/**
+	 * Returns the approximate number of bytes the arrays of this map occupy, not counting the values themselves.
+	 */
+	public long memoryUsage() {
+		return 12L * keys.length;
+	}
+	
+	private int slotOf(long key) {
+		
+		if(key == FREE)
+			return -1;
+		
+		int slot = LongIntHashMap.hash(key) & mask;
+		
+		while(keys[slot] != FREE) {
+			
+			if(keys[slot] == key)
+				return slot;
+			
+			slot = (slot + 1) & mask;
+		}
+		
+		return -1;
+	}
+	
+	private void shiftBack(int gap) {
+		
+		int slot = gap;
+		
+		while(true) {
+			
+			slot = (slot + 1) & mask;
+			long key = keys[slot];
+			
+			if(key == FREE)
+				break;
+			
+			int home = LongIntHashMap.hash(key) & mask;
+			
+			if(gap <= slot ? gap < home && home <= slot : gap < home || home <= slot)
+				continue;
+			
+			keys[gap] = key;
+			values[gap] = values[slot];
+			gap = slot;
+		}
+		
+		keys[gap] = FREE;
+		values[gap] = null;
+	}
+	
+	private void rehash(int capacity) {
+		
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		
+		allocate(capacity);
+		
+		for(int i = 0; i < oldKeys.length; i++) {
+			
+			long key = oldKeys[i];
+			
+			if(key == FREE)
+				continue;
+			
+			int slot = LongIntHashMap.hash(key) & mask;
+			
+			while(keys[slot] != FREE)
+				slot = (slot + 1) & mask;
+			
+			keys[slot] = key;
+			values[slot] = oldValues[i];
+		}
+	}
+	
+	private void allocate(int capacity) {
+		
+		keys = new long[capacity];
+		values = new Object[capacity];
+		Arrays.fill(keys, FREE);
+		
+		mask = capacity - 1;
+		resizeThreshold = (int) (capacity * MAX_LOAD);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.material.MaterialData;
+
+/**
+ * A BlockSink that only remembers the blocks written to it without touching any world,
+ * to check or measure placements outside of a server.
+ */
+public class MemoryBlockSink implements BlockSink {
+	
+	//MaterialData or BlockData, whichever was written last
+	private LongObjectHashMap<Object> blocks;
+	private long writeCount;
+	private int flushCount;
+	
+	public MemoryBlockSink() {
+		blocks = new LongObjectHashMap<>();
+	}
+	
+	@Override
+	public void setBlock(World world, int x, int y, int z, MaterialData data) {
+		
+		blocks.put(pack(x, y, z), data);
+		writeCount++;
+	}
+	
+	@Override
+	public void setBlock(World world, int x, int y, int z, BlockData data) {
+		
+		blocks.put(pack(x, y, z), data);
+		writeCount++;
+	}
+	
+	@Override
+	public void flush() {
+		flushCount++;
+	}
+	
+	/**
+	 * Returns the material last written to the location or null if none or BlockData was written there.
+	 */
+	public MaterialData getMaterial(int x, int y, int z) {
+		
+		Object block = blocks.get(pack(x, y, z));
+		return block instanceof MaterialData ? (MaterialData) block : null;
+	}
+	
+	/**
+	 * Returns the BlockData last written to the location or null if none or MaterialData was written there.
+	 */
+	public BlockData getBlockData(int x, int y, int z) {
+		
+		Object block = blocks.get(pack(x, y, z));
+		return block instanceof BlockData ? (BlockData) block : null;
+	}
+	
+	/**
+	 * Returns the number of different locations written to.
+	 */
+	public int size() {
+		return blocks.size();
+	}
+	
+	public long getWriteCount() {
+		return writeCount;
+	}
+	
+	public int getFlushCount() {
+		return flushCount;
+	}
+	
+	public void clear() {
+		
+		blocks.clear();
+		writeCount = 0;
+		flushCount = 0;
+	}
+	
+	//x and z with 26 bits each and y with 12 bits, worlds are not told apart
+	private static long pack(int x, int y, int z) {
+		return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | y & 0xFFF;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,264 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+/**
+ * An UndoLog keeping the blocks on the heap. Blocks are logged per chunk with their position in the chunk and an index into a palette of the different
+ * BlockData of the chunk. The indices are packed into longs with only as many bits as the palette needs,
+ * so a block takes about 4 bytes plus a few bits.
+ * <p>
+ * The BlockData keeps all states of a block, like the facing of stairs or if it is waterlogged, but not the contents of tile entities.
+ */
+public class MemoryUndoLog implements UndoLog {
+	
+	//the chunks in the order they were logged first, the same chunk is logged into the same ChunkLog again
+	private List<ChunkLog> chunkList;
+	private LongObjectHashMap<ChunkLog> chunks;
+	private ChunkLog lastChunk;
+	private int size;
+	
+	public MemoryUndoLog() {
+		
+		chunkList = new ArrayList<>();
+		chunks = new LongObjectHashMap<>();
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	@Override
+	public void add(int x, int y, int z, BlockData data) {
+		
+		int chunkX = x >> 4,
+			chunkZ = z >> 4;
+		
+		if(lastChunk == null || lastChunk.chunkX != chunkX || lastChunk.chunkZ != chunkZ) {
+			
+			long chunkKey = Vec2.pack(chunkX, chunkZ);
+			lastChunk = chunks.get(chunkKey);
+			
+			if(lastChunk == null) {
+				lastChunk = new ChunkLog(chunkX, chunkZ);
+				chunks.put(chunkKey, lastChunk);
+				chunkList.add(lastChunk);
+			}
+		}
+		
+		lastChunk.add(x & 0xF, y, z & 0xF, data);
+		size++;
+	}
+	
+	//the chunks are kept together in the heap anyway
+	@Override
+	public void flush() {}
+	
+	@Override
+	public void close() {
+		trimToSize();
+	}
+	
+	@Override
+	public void clear() {
+		
+		chunkList.clear();
+		chunks.clear();
+		lastChunk = null;
+		size = 0;
+	}
+	
+	/**
+	 * Shrinks the arrays of the log to the blocks logged so far, once no more blocks are going to be added for a while.
+	 */
+	public void trimToSize() {
+		
+		for(ChunkLog chunk : chunkList)
+			chunk.trimToSize();
+	}
+	
+	/**
+	 * Returns the approximate number of bytes the log occupies.
+	 */
+	public long memoryUsage() {
+		
+		long usage = chunks.memoryUsage();
+		
+		for(ChunkLog chunk : chunkList)
+			usage += chunk.memoryUsage();
+		
+		return usage;
+	}
+	
+	@Override
+	public PlacementScheduler.PlacementJob createRestoreJob(World world, BlockSink sink) {
+		
+		return new PlacementScheduler.PlacementJob() {
+			
+			int chunkIndex = chunkList.size() - 1;
+			int nextBlock = chunkIndex >= 0 ? chunkList.get(chunkIndex).size - 1 : -1;
+			int remaining = size;
+			
+			@Override
+			public boolean placeNext() {
+				
+				while(nextBlock < 0) {
+					
+					if(chunkIndex <= 0)
+						return false;
+					
+					sink.flush();
+					chunkIndex--;
+					nextBlock = chunkList.get(chunkIndex).size - 1;
+				}
+				
+				ChunkLog chunk = chunkList.get(chunkIndex);
+				int position = chunk.positions[nextBlock];
+				
+				int x = chunk.chunkX << 4 | position >>> 16,
+					y = position & 0xFFF,
+					z = chunk.chunkZ << 4 | position >>> 12 & 0xF;
+				
+				sink.setBlock(world, x, y, z, chunk.getBlockData(nextBlock));
+				
+				nextBlock--;
+				remaining--;
+				return true;
+			}
+			
+			@Override
+			public int getRemaining() {
+				return remaining;
+			}
+			
+			@Override
+			public boolean isDone() {
+				return remaining == 0;
+			}
+			
+			@Override
+			public void flush() {
+				sink.flush();
+			}
+		};
+	}
+	
+	private static class ChunkLog {
+		
+		private int chunkX, chunkZ;
+		private int size;
+		
+		//x and z inside of the chunk with 4 bits each and y with 12 bits
+		private int[] positions;
+		
+		//palette indices with bitsPerEntry bits each, an index never reaches over two longs
+		private long[] indices;
+		private int bitsPerEntry;
+		
+		//the different BlockData of the chunk, compared with equals because the server creates a new instance for each block
+		private BlockData[] palette;
+		private int paletteSize;
+		
+		ChunkLog(int chunkX, int chunkZ) {
+			
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+			
+			positions = new int[16];
+			bitsPerEntry = 1;
+			indices = new long[1];
+			palette = new BlockData[2];
+		}
+		
+		void add(int x, int y, int z, BlockData blockData) {
+			
+			if(size == positions.length)
+				positions = Arrays.copyOf(positions, 2 * size);
+			
+			positions[size] = x << 16 | z << 12 | y & 0xFFF;
+			setIndex(size, paletteIndexOf(blockData));
+			size++;
+		}
+		
+		int getIndex(int i) {
+			
+			int entriesPerLong = 64 / bitsPerEntry;
+			long word = indices[i / entriesPerLong];
+			return (int) (word >>> i % entriesPerLong * bitsPerEntry) & (1 << bitsPerEntry) - 1;
+		}
+		
+		//entries are only appended, so the bits of the index are still 0
+		private void setIndex(int i, int index) {
+			
+			int entriesPerLong = 64 / bitsPerEntry;
+			int word = i / entriesPerLong;
+			
+			if(word == indices.length)
+				indices = Arrays.copyOf(indices, 2 * indices.length);
+			
+			indices[word] |= (long) index << i % entriesPerLong * bitsPerEntry;
+		}
+		
+		BlockData getBlockData(int i) {
+			return palette[getIndex(i)];
+		}
+		
+		private int paletteIndexOf(BlockData blockData) {
+			
+			for(int i = 0; i < paletteSize; i++) {
+				
+				if(palette[i].equals(blockData))
+					return i;
+			}
+			
+			if(paletteSize == palette.length)
+				palette = Arrays.copyOf(palette, 2 * paletteSize);
+			
+			if(paletteSize == 1 << bitsPerEntry)
+				repack(bitsPerEntry + 1);
+			
+			palette[paletteSize] = blockData;
+			return paletteSize++;
+		}
+		
+		private void repack(int newBitsPerEntry) {
+			
+			long[] oldIndices = indices;
+			int oldBitsPerEntry = bitsPerEntry;
+			int oldEntriesPerLong = 64 / oldBitsPerEntry;
+			int entriesPerLong = 64 / newBitsPerEntry;
+			
+			indices = new long[Math.max(1, (oldIndices.length * oldEntriesPerLong + entriesPerLong - 1) / entriesPerLong)];
+			bitsPerEntry = newBitsPerEntry;
+			
+			for(int i = 0; i < size; i++) {
+				
+				long word = oldIndices[i / oldEntriesPerLong];
+				int index = (int) (word >>> i % oldEntriesPerLong * oldBitsPerEntry) & (1 << oldBitsPerEntry) - 1;
+				setIndex(i, index);
+			}
+		}
+		
+		void trimToSize() {
+			
+			int entriesPerLong = 64 / bitsPerEntry;
+			positions = Arrays.copyOf(positions, Math.max(1, size));
+			indices = Arrays.copyOf(indices, Math.max(1, (size + entriesPerLong - 1) / entriesPerLong));
+			palette = Arrays.copyOf(palette, Math.max(1, paletteSize));
+		}
+		
+		//a reference and about 32 bytes for each BlockData of the palette
+		long memoryUsage() {
+			return 4L * positions.length + 8L * indices.length + 40L * palette.length + 64;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import java.awt.event.ActionListener;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * A task that places blocks on the main thread over many ticks, as many per tick as the tick can take.
+ * <p>
+ * Bukkit does not tell how long the rest of a tick takes, so the scheduler measures the time between two of its runs.
+ * A tick that took longer than 50 ms shows how much time the rest of the server needed besides the placement.
+ * The budget for the next tick is what is left of the target tick time after that. While ticks stay shorter,
+ * the estimate of the rest of the server decays slowly, so the budget grows until the target is reached again.
+ */
+public class PlacementScheduler extends BukkitRunnable {
+	
+	/**
+	 * The total tick time in milliseconds schedulers try to stay under if not set otherwise.
+	 */
+	public static final int DEFAULT_TARGET_TICK_MILLIS = 45;
+	
+	private static final long TICK_NANOS = 50_000_000;
+	private static final long MIN_BUDGET_NANOS = 1_000_000;
+	
+	//how fast the estimate of the rest of the tick follows new measurements and decays while ticks are short
+	private static final double MEASURE_WEIGHT = 0.5;
+	private static final double DECAY = 0.95;
+	
+	/**
+	 * The blocks a scheduler places.
+	 */
+	public interface PlacementJob {
+		
+		/**
+		 * Places the next block and returns true or returns false if no block is ready to be placed at the moment.
+		 */
+		boolean placeNext();
+		
+		/**
+		 * Returns the number of blocks known to be left to place.
+		 */
+		int getRemaining();
+		
+		/**
+		 * Returns true if all blocks have been placed and no more will come.
+		 */
+		boolean isDone();
+		
+		/**
+		 * Is called at the end of every tick the job ran in, so blocks kept back by a BlockSink are written.
+		 */
+		void flush();
+	}
+	
+	private PlacementJob job;
+	private ActionListener callback;
+	private long targetTickNanos;
+	
+	private long lastRunStart;
+	private long lastRunNanos;
+	private double restOfTickNanos;
+	private long budgetNanos;
+	
+	private long placedCount;
+	private double blocksPerSecond;
+	
+	public PlacementScheduler(PlacementJob job, ActionListener callback) {
+		
+		this.job = job;
+		this.callback = callback;
+		setTargetTickMillis(DEFAULT_TARGET_TICK_MILLIS);
+		
+		//start carefully until the first ticks were measured
+		restOfTickNanos = TICK_NANOS / 2;
+		budgetNanos = MIN_BUDGET_NANOS;
+	}
+	
+	public int getTargetTickMillis() {
+		return (int) (targetTickNanos / 1_000_000);
+	}
+	
+	/**
+	 * Sets the total tick time including the rest of the server the placement tries to stay under.
+	 */
+	public void setTargetTickMillis(int millis) {
+		targetTickNanos = Math.max(1, millis) * 1_000_000L;
+	}
+	
+	/**
+	 * Returns the time in milliseconds the scheduler may spend placing blocks in the next tick.
+	 */
+	public double getBudgetMillis() {
+		return budgetNanos / 1e6;
+	}
+	
+	public long getPlacedCount() {
+		return placedCount;
+	}
+	
+	/**
+	 * Returns the number of blocks known to be left to place.
+	 */
+	public int getRemaining() {
+		return job.getRemaining();
+	}
+	
+	/**
+	 * Returns the average number of blocks placed per second over the last ticks.
+	 */
+	public double getBlocksPerSecond() {
+		return blocksPerSecond;
+	}
+	
+	/**
+	 * Starts placing blocks in every tick from the next one on.
+	 */
+	public PlacementScheduler start(Plugin plugin) {
+		
+		runTaskTimer(plugin, 0, 1);
+		return this;
+	}
+	
+	@Override
+	public void run() {
+		
+		long runStart = System.nanoTime();
+		
+		if(lastRunStart != 0)
+			adaptBudget(runStart - lastRunStart);
+		
+		int placed = 0;
+		
+		while(System.nanoTime() - runStart < budgetNanos && job.placeNext())
+			placed++;
+		
+		job.flush();
+		placedCount += placed;
+		lastRunNanos = System.nanoTime() - runStart;
+		
+		if(lastRunStart != 0) {
+			
+			double secondsSinceLastRun = (runStart - lastRunStart) / 1e9;
+			blocksPerSecond = blocksPerSecond * (1 - MEASURE_WEIGHT) + placed / secondsSinceLastRun * MEASURE_WEIGHT;
+		}
+		
+		lastRunStart = runStart;
+		
+		if(job.isDone()) {
+			
+			this.cancel();
+			
+			if(callback != null)
+				callback.actionPerformed(null);
+		}
+	}
+	
+	//the time between two runs is the whole last tick, at least 50 ms when the server waits for the next tick
+	private void adaptBudget(long tickNanos) {
+		
+		if(tickNanos > TICK_NANOS) {
+			
+			long restNanos = Math.max(0, tickNanos - lastRunNanos);
+			restOfTickNanos = restOfTickNanos * (1 - MEASURE_WEIGHT) + restNanos * MEASURE_WEIGHT;
+		
+		//a shorter tick only tells that the rest of the server took less than the time beside the placement
+		}else
+			restOfTickNanos = Math.min(restOfTickNanos * DECAY, tickNanos - lastRunNanos);
+		
+		budgetNanos = Math.max(MIN_BUDGET_NANOS, targetTickNanos - (long) restOfTickNanos);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,408 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPhysicsEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * A cache for the surfaces Utils.nearestSurfaceY() and SurfaceSampler find. For every column it stores the surface found
+ * and the range of start heights which lead to the same surface, so searches from other heights inside that range
+ * do not need to look at any block. Only the blocks inside the range decide about the surface,
+ * so block changes in a column only invalidate the entry if they happen inside its range.
+ * <p>
+ * Every world has its own cache. Columns are stored chunk by chunk and the least recently used chunks are evicted
+ * when a cache exceeds the memory budget. The cache is meant to be used on the main thread.
+ * <p>
+ * Block changes are counted, so a SurfaceSampler can tell if the world changed since it captured its chunks
+ * and its surfaces would be outdated in the cache.
+ */
+public class SurfaceCache implements Listener {
+	
+	/**
+	 * The value get() returns if the column is not cached for the passed height.
+	 */
+	public static final int NOT_CACHED = Integer.MIN_VALUE;
+	
+	/**
+	 * The surface to put() for columns without any ground below the start height. Searches in them return the start height.
+	 */
+	public static final int NO_SURFACE = Short.MIN_VALUE;
+	
+	/**
+	 * The lower end of a range to put() that reaches down infinitely.
+	 */
+	public static final int UNBOUNDED = Short.MIN_VALUE;
+	
+	private static final long PRESENT = 1L << 48;
+	
+	//the column array of a chunk and the linked map entry around it
+	private static final long BYTES_PER_CHUNK = 8 * 256 + 80;
+	
+	private static final SurfaceCache instance = new SurfaceCache();
+	
+	private Map<UUID, WorldCache> worldCaches;
+	private long memoryBudget;
+	
+	//the number of world caches containing each chunk, so most block changes are dismissed without looking up a world cache
+	private LongIntHashMap cachedChunks;
+	private long changeCount;
+	
+	private long hits;
+	private long misses;
+	private long invalidations;
+	
+	private SurfaceCache() {
+		
+		worldCaches = new HashMap<>();
+		cachedChunks = new LongIntHashMap();
+		memoryBudget = 8 * 1024 * 1024;
+	}
+	
+	public static SurfaceCache getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * Returns the cached surface of the column for a search starting at the passed height or NOT_CACHED.
+	 */
+	public int get(World world, int x, int z, int height) {
+		
+		WorldCache worldCache = worldCaches.get(world.getUID());
+		long[] columns = worldCache != null ? worldCache.get(Vec2.pack(x >> 4, z >> 4)) : null;
+		long entry = columns != null ? columns[indexOf(x, z)] : 0;
+		
+		if(entry == 0 || height < getFrom(entry) && getFrom(entry) != UNBOUNDED || height > getTo(entry)) {
+			misses++;
+			return NOT_CACHED;
+		}
+		
+		hits++;
+		return getSurface(entry) == NO_SURFACE ? height : getSurface(entry);
+	}
+	
+	/**
+	 * Caches the surface found for all searches starting between from and to (inclusive).
+	 * If the column already has an entry with the same surface and a touching range, both ranges are joined.
+	 */
+	public void put(World world, int x, int z, int surfaceY, int from, int to) {
+		
+		if(!fitsShort(surfaceY) || !fitsShort(from) || !fitsShort(to) || from > to && from != UNBOUNDED)
+			return;
+		
+		WorldCache worldCache = worldCaches.get(world.getUID());
+		
+		if(worldCache == null) {
+			worldCache = new WorldCache();
+			worldCaches.put(world.getUID(), worldCache);
+		}
+		
+		long chunkKey = Vec2.pack(x >> 4, z >> 4);
+		long[] columns = worldCache.get(chunkKey);
+		
+		if(columns == null) {
+			columns = new long[256];
+			worldCache.put(chunkKey, columns);
+			cachedChunks.put(chunkKey, cachedChunks.get(chunkKey, 0) + 1);
+		}
+		
+		int index = indexOf(x, z);
+		long oldEntry = columns[index];
+		
+		if(oldEntry != 0 && getSurface(oldEntry) == surfaceY && rangesTouch(getFrom(oldEntry), getTo(oldEntry), from, to)) {
+			
+			from = getFrom(oldEntry) == UNBOUNDED || from == UNBOUNDED ? UNBOUNDED : Math.min(from, getFrom(oldEntry));
+			to = Math.max(to, getTo(oldEntry));
+		}
+		
+		columns[index] = PRESENT | (surfaceY & 0xFFFFL) << 32 | (from & 0xFFFFL) << 16 | to & 0xFFFFL;
+	}
+	
+	/**
+	 * Removes the entry of the column if the block at the passed height can change its surface.
+	 * This has to be called for every block that changes, even if its column is not cached.
+	 */
+	public void invalidate(World world, int x, int y, int z) {
+		
+		changeCount++;
+		
+		//a primitive look up that does not reorder the least recently used chunks like the world caches do
+		if(!cachedChunks.containsKey(Vec2.pack(x >> 4, z >> 4)))
+			return;
+		
+		WorldCache worldCache = worldCaches.get(world.getUID());
+		
+		if(worldCache == null)
+			return;
+		
+		long[] columns = worldCache.get(Vec2.pack(x >> 4, z >> 4));
+		
+		if(columns == null)
+			return;
+		
+		int index = indexOf(x, z);
+		long entry = columns[index];
+		
+		if(entry == 0 || y < getFrom(entry) && getFrom(entry) != UNBOUNDED || y > getTo(entry))
+			return;
+		
+		columns[index] = 0;
+		invalidations++;
+	}
+	
+	public void clear() {
+		
+		worldCaches.clear();
+		cachedChunks.clear();
+	}
+	
+	public void clear(World world) {
+		
+		WorldCache worldCache = worldCaches.remove(world.getUID());
+		
+		if(worldCache == null)
+			return;
+		
+		for(long chunkKey : worldCache.keySet())
+			removeCachedChunk(chunkKey);
+	}
+	
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+	
+	/**
+	 * Sets how many bytes the cache of each world may occupy. Caches above the budget are shrunk immediately.
+	 */
+	public void setMemoryBudget(long bytes) {
+		
+		memoryBudget = Math.max(0, bytes);
+		
+		for(WorldCache worldCache : worldCaches.values())
+			worldCache.shrink();
+	}
+	
+	/**
+	 * Returns the approximate number of bytes all world caches occupy.
+	 */
+	public long getMemoryUsage() {
+		
+		long chunkCount = 0;
+		
+		for(WorldCache worldCache : worldCaches.values())
+			chunkCount += worldCache.size();
+		
+		return chunkCount * BYTES_PER_CHUNK;
+	}
+	
+	public long getHitCount() {
+		return hits;
+	}
+	
+	public long getMissCount() {
+		return misses;
+	}
+	
+	public long getInvalidationCount() {
+		return invalidations;
+	}
+	
+	/**
+	 * Returns the number of block changes in all worlds the cache has been notified about so far.
+	 */
+	public long getChangeCount() {
+		return changeCount;
+	}
+	
+	public double getHitRate() {
+		return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+	
+	public void resetCounters() {
+		hits = misses = invalidations = 0;
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockPlace(BlockPlaceEvent event) {
+		invalidate(event.getBlock());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockBreak(BlockBreakEvent event) {
+		invalidate(event.getBlock());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockPhysics(BlockPhysicsEvent event) {
+		invalidate(event.getBlock());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockBurn(BlockBurnEvent event) {
+		invalidate(event.getBlock());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockFade(BlockFadeEvent event) {
+		invalidate(event.getBlock());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockForm(BlockFormEvent event) {
+		invalidate(event.getBlock());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onEntityExplode(EntityExplodeEvent event) {
+		
+		for(Block block : event.blockList())
+			invalidate(block);
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockExplode(BlockExplodeEvent event) {
+		
+		invalidate(event.getBlock());
+		
+		for(Block block : event.blockList())
+			invalidate(block);
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onStructureGrow(StructureGrowEvent event) {
+		
+		for(BlockState state : event.getBlocks())
+			invalidate(event.getWorld(), state.getX(), state.getY(), state.getZ());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+		invalidate(event.getBlock());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockFromTo(BlockFromToEvent event) {
+		invalidate(event.getToBlock());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPistonExtend(BlockPistonExtendEvent event) {
+		invalidateMoved(event.getBlock(), event.getBlocks(), event.getDirection());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPistonRetract(BlockPistonRetractEvent event) {
+		invalidateMoved(event.getBlock(), event.getBlocks(), event.getDirection());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onWorldUnload(WorldUnloadEvent event) {
+		clear(event.getWorld());
+	}
+	
+	private void invalidate(Block block) {
+		invalidate(block.getWorld(), block.getX(), block.getY(), block.getZ());
+	}
+	
+	//the piston head and the moved blocks leave their places and appear next to them,
+	//both neighbors are invalidated so it does not matter which way the direction of a retraction points
+	private void invalidateMoved(Block piston, List<Block> blocks, BlockFace direction) {
+		
+		invalidate(piston.getRelative(direction));
+		invalidate(piston.getRelative(direction.getOppositeFace()));
+		
+		for(Block block : blocks) {
+			
+			invalidate(block);
+			invalidate(block.getRelative(direction));
+			invalidate(block.getRelative(direction.getOppositeFace()));
+		}
+	}
+	
+	private void removeCachedChunk(long chunkKey) {
+		
+		int count = cachedChunks.get(chunkKey, 0);
+		
+		if(count > 1)
+			cachedChunks.put(chunkKey, count - 1);
+		else
+			cachedChunks.remove(chunkKey);
+	}
+	
+	private static int indexOf(int x, int z) {
+		return (x & 15) << 4 | z & 15;
+	}
+	
+	private static int getSurface(long entry) {
+		return (short) (entry >>> 32);
+	}
+	
+	private static int getFrom(long entry) {
+		return (short) (entry >>> 16);
+	}
+	
+	private static int getTo(long entry) {
+		return (short) entry;
+	}
+	
+	private static boolean fitsShort(int value) {
+		return value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+	}
+	
+	private static boolean rangesTouch(int from0, int to0, int from1, int to1) {
+		return (from0 == UNBOUNDED || from0 <= to1 + 1) && (from1 == UNBOUNDED || from1 <= to0 + 1);
+	}
+	
+	//a map of chunks to their columns which iterates the least recently used chunk first
+	private class WorldCache extends LinkedHashMap<Long, long[]> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		WorldCache() {
+			super(16, 0.75f, true);
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+			
+			if(size() * BYTES_PER_CHUNK <= memoryBudget)
+				return false;
+			
+			removeCachedChunk(eldest.getKey());
+			return true;
+		}
+		
+		void shrink() {
+			
+			while(!isEmpty() && size() * BYTES_PER_CHUNK > memoryBudget) {
+				
+				long chunkKey = keySet().iterator().next();
+				remove(chunkKey);
+				removeCachedChunk(chunkKey);
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,227 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+/**
+ * A class that finds the surface of many columns at once without touching the world for every block.
+ * It takes a snapshot of every chunk once, which has to be done on the main thread,
+ * and then searches the columns in the snapshots, which can be done on any thread.
+ * The surfaces found are the same ones Utils.nearestSurfaceY() finds.
+ * <p>
+ * Searches on the main thread look up the SurfaceCache first and add the surfaces they find to it,
+ * unless any block changed since the first chunk was captured. Searches on other threads only use the snapshots.
+ */
+public class SurfaceSampler {
+	
+	private static final int MAX_Y = 255;
+	
+	private World world;
+	private LongObjectHashMap<ChunkSnapshot> snapshots;
+	
+	//the change count of the SurfaceCache when the first chunk was captured
+	private long cacheChangeCount;
+	
+	public SurfaceSampler(World world) {
+		
+		this.world = world;
+		snapshots = new LongObjectHashMap<>();
+	}
+	
+	public World getWorld() {
+		return world;
+	}
+	
+	/**
+	 * Takes snapshots of all chunks touching the area between the passed corners (inclusive) that have not been captured yet.
+	 * This has to be called on the main thread.
+	 */
+	public void captureArea(int minX, int minZ, int maxX, int maxZ) {
+		
+		for(int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+			for(int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++)
+				captureChunk(chunkX, chunkZ);
+		}
+	}
+	
+	/**
+	 * Takes a snapshot of the chunk if it has not been captured yet. This has to be called on the main thread.
+	 */
+	public void captureChunk(int chunkX, int chunkZ) {
+		
+		long key = Vec2.pack(chunkX, chunkZ);
+		
+		if(snapshots.get(key) != null)
+			return;
+		
+		if(snapshots.isEmpty())
+			cacheChangeCount = SurfaceCache.getInstance().getChangeCount();
+		
+		snapshots.put(key, world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+	}
+	
+	public boolean hasCaptured(int chunkX, int chunkZ) {
+		return snapshots.containsKey(Vec2.pack(chunkX, chunkZ));
+	}
+	
+	/**
+	 * Removes all snapshots so that the next capture sees the current state of the world.
+	 */
+	public void clear() {
+		snapshots.clear();
+	}
+	
+	/**
+	 * Returns the type of the block in the snapshot of its chunk, locations above or below the world count as air.
+	 * The chunk of the block must have been captured before.
+	 */
+	public Material getType(int x, int y, int z) {
+		
+		if(y < 0 || y > MAX_Y)
+			return Material.AIR;
+		
+		ChunkSnapshot snapshot = snapshots.get(Vec2.pack(x >> 4, z >> 4));
+		
+		if(snapshot == null)
+			throw new IllegalStateException("The chunk at " + (x >> 4) + ", " + (z >> 4) + " has not been captured.");
+		
+		return snapshot.getBlockType(x & 15, y, z & 15);
+	}
+	
+	/**
+	 * Returns the y of the nearest ground block to the passed height like Utils.nearestSurfaceY() does.
+	 * The chunk of the column must have been captured before.
+	 */
+	public int nearestSurfaceY(int x, int z, int height) {
+		
+		ChunkSnapshot snapshot = snapshots.get(Vec2.pack(x >> 4, z >> 4));
+		
+		if(snapshot == null)
+			throw new IllegalStateException("The chunk at " + (x >> 4) + ", " + (z >> 4) + " has not been captured.");
+		
+		return nearestSurfaceY(snapshot, x, z, height, getCache());
+	}
+	
+	/**
+	 * Replaces every passed height with the nearest surface to it. The locations are packed Vec2s.
+	 * Locations of the same chunk should follow each other, so that every snapshot is only looked up once.
+	 */
+	public void nearestSurfaceYs(long[] locs, int[] heights, int from, int to) {
+		
+		long chunkKey = 0;
+		ChunkSnapshot snapshot = null;
+		SurfaceCache cache = getCache();
+		
+		for(int i = from; i < to; i++) {
+			
+			int x = Vec2.unpackX(locs[i]),
+				z = Vec2.unpackZ(locs[i]);
+			
+			long locChunkKey = Vec2.pack(x >> 4, z >> 4);
+			
+			if(snapshot == null || locChunkKey != chunkKey) {
+				
+				snapshot = snapshots.get(locChunkKey);
+				chunkKey = locChunkKey;
+				
+				if(snapshot == null)
+					throw new IllegalStateException("The chunk at " + (x >> 4) + ", " + (z >> 4) + " has not been captured.");
+			}
+			
+			heights[i] = nearestSurfaceY(snapshot, x, z, heights[i], cache);
+		}
+	}
+	
+	//returns the cache if it can be used on the current thread or null
+	private SurfaceCache getCache() {
+		return Bukkit.isPrimaryThread() ? SurfaceCache.getInstance() : null;
+	}
+	
+	//searches the column like Utils.nearestSurfaceY() and caches the surface with the same range of start heights
+	private int nearestSurfaceY(ChunkSnapshot snapshot, int x, int z, int height, SurfaceCache cache) {
+		
+		if(cache != null) {
+			
+			int cachedY = cache.get(world, x, z, height);
+			
+			if(cachedY != SurfaceCache.NOT_CACHED)
+				return cachedY;
+			
+			//surfaces of snapshots taken before a block changed could be outdated
+			if(cache.getChangeCount() != cacheChangeCount)
+				cache = null;
+		}
+		
+		int localX = x & 15,
+			localZ = z & 15;
+		
+		if(isGround(snapshot, localX, height, localZ)) {
+			
+			for(int y = height + 1; y <= MAX_Y + 1; y++) {
+				
+				if(!isGround(snapshot, localX, y, localZ)) {
+					
+					if(cache != null)
+						cache.put(world, x, z, y - 1, height, y);
+					
+					return y - 1;
+				}
+			}
+			
+			return height;
+		}
+		
+		int y = Math.min(height, MAX_Y + 1) - 1;
+		
+		while(y >= 0) {
+			
+			//sections without any blocks cannot contain ground
+			if(snapshot.isSectionEmpty(y >> 4)) {
+				y = (y & ~15) - 1;
+				continue;
+			}
+			
+			if(isGround(snapshot, localX, y, localZ)) {
+				
+				if(cache != null)
+					cache.put(world, x, z, y, y, height);
+				
+				return y;
+			}
+			
+			y--;
+		}
+		
+		if(cache != null)
+			cache.put(world, x, z, SurfaceCache.NO_SURFACE, SurfaceCache.UNBOUNDED, height);
+		
+		return height;
+	}
+	
+	//locations outside of the world count as air
+	private boolean isGround(ChunkSnapshot snapshot, int x, int y, int z) {
+		return y >= 0 && y <= MAX_Y && GroundTable.IS_GROUND[snapshot.getBlockType(x, y, z).ordinal()];
+	}
+	
+	/**
+	 * Utils.isLikeGround() of every material by its ordinal, so that scans do not look up the material lists for every block.
+	 * The table is shared by all samplers and created when the first sampler searches a column, after the material lists are loaded.
+	 */
+	private static class GroundTable {
+		
+		static final boolean[] IS_GROUND = createTable();
+		
+		private static boolean[] createTable() {
+			
+			Material[] materials = Material.values();
+			boolean[] isGround = new boolean[materials.length];
+			
+			for(Material mat : materials)
+				isGround[mat.ordinal()] = Utils.isLikeGround(mat);
+			
+			return isGround;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package me.gorgeousone.tangledmazeapi.util;
+
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+/**
+ * The blocks a maze replaced while it was built, kept to restore them when it is unbuilt.
+ *
+ * @see MemoryUndoLog
+ * @see JournalUndoLog
+ */
+public interface UndoLog {
+	
+	/**
+	 * Logs the BlockData a block had before it was replaced, with all of its states.
+	 */
+	void add(int x, int y, int z, BlockData data);
+	
+	/**
+	 * Is called whenever the blocks of a chunk or of a tick have been logged.
+	 */
+	void flush();
+	
+	/**
+	 * Is called when the maze is built completely and no more blocks are going to be logged until it is unbuilt.
+	 */
+	void close();
+	
+	boolean isEmpty();
+	
+	/**
+	 * Removes all logged blocks after the maze was unbuilt.
+	 */
+	void clear();
+	
+	/**
+	 * Returns a job for a PlacementScheduler that writes the logged blocks back to the sink in the reverse order they were logged in,
+	 * chunk by chunk. The sink is flushed after each chunk. The log must not be changed while the job runs.
+	 */
+	PlacementScheduler.PlacementJob createRestoreJob(World world, BlockSink sink);
+}
\ No newline at end of file
@@ -4,6 +4,8 @@ import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -12,6 +14,7 @@ import org.bukkit.block.BlockState;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitRunnable;
 
+import me.gorgeousone.tangledmazeapi.clip.Clip;
 import me.gorgeousone.tangledmazeapi.data.Constants;
 
 public abstract class Utils {
@@ -53,8 +56,18 @@ public abstract class Utils {
 		return loc;
 	}
 	
+	/**
+	 * Returns the y of the nearest ground block to the passed height. Surfaces found are cached in the SurfaceCache,
+	 * together with the range of heights the same surface would be found from.
+	 */
 	public static int nearestSurfaceY(Vec2 loc, int height, World world) {
 		
+		SurfaceCache cache = SurfaceCache.getInstance();
+		int cachedY = cache.get(world, loc.getX(), loc.getZ(), height);
+		
+		if(cachedY != SurfaceCache.NOT_CACHED)
+			return cachedY;
+		
 		Location iter = new Location(world, loc.getX(), height, loc.getZ());
 		
 		if(isLikeGround(iter.getBlock().getType())) {
@@ -64,7 +77,10 @@ public abstract class Utils {
 				iter.add(0, 1, 0);
 				
 				if(!isLikeGround(iter.getBlock().getType())) {
+					
 					iter.add(0, -1, 0);
+					//every height from the start up to the air above the surface leads to it
+					cache.put(world, loc.getX(), loc.getZ(), iter.getBlockY(), height, iter.getBlockY() + 1);
 					return iter.getBlockY();
 				}
 			}
@@ -76,9 +92,13 @@ public abstract class Utils {
 				iter.add(0, -1, 0);
 				
 				if(isLikeGround(iter.getBlock().getType())) {
+					//every height from the surface up to the start leads to it
+					cache.put(world, loc.getX(), loc.getZ(), iter.getBlockY(), iter.getBlockY(), height);
 					return iter.getBlockY();
 				}
 			}
+			
+			cache.put(world, loc.getX(), loc.getZ(), SurfaceCache.NO_SURFACE, SurfaceCache.UNBOUNDED, height);
 		}
 		
 		return height;
@@ -118,30 +138,100 @@ public abstract class Utils {
 		return vertices;
 	}
 	
-	public static void updateBlocksContinuously(List<BlockState> blocksToUpdate, Plugin plugin, ActionListener callback) {
+	/**
+	 * Captures the chunks of the rectangle between the first and the third of the vertices in a SurfaceSampler.
+	 * This has to be called on the main thread.
+	 */
+	public static SurfaceSampler captureArea(List<Location> vertices) {
+		
+		SurfaceSampler sampler = new SurfaceSampler(vertices.get(0).getWorld());
+		
+		sampler.captureArea(
+				vertices.get(0).getBlockX(),
+				vertices.get(0).getBlockZ(),
+				vertices.get(2).getBlockX(),
+				vertices.get(2).getBlockZ());
+		
+		return sampler;
+	}
+	
+	/**
+	 * Creates a clip of the area of the vertices on another thread. Only the chunks of the area are captured on the main thread,
+	 * then the factory creates the clip with their sampler and the callback receives it on the main thread again.
+	 */
+	public static void createClipAsync(List<Location> vertices, Function<SurfaceSampler, Clip> clipFactory, Plugin plugin, Consumer<Clip> callback) {
 		
-		BukkitRunnable builder = new BukkitRunnable() {
+		SurfaceSampler sampler = captureArea(vertices);
+		
+		new BukkitRunnable() {
+			
 			@Override
 			public void run() {
 				
-				long timer = System.currentTimeMillis();
+				Clip clip = clipFactory.apply(sampler);
 				
-				while(!blocksToUpdate.isEmpty()) {
+				new BukkitRunnable() {
 					
-					blocksToUpdate.get(0).update(true, false);
-					blocksToUpdate.remove(0);
+					@Override
+					public void run() {
+						callback.accept(clip);
+					}
+				}.runTask(plugin);
+			}
+		}.runTaskAsynchronously(plugin);
+	}
+	
+	/**
+	 * Updates the BlockStates without physics over several ticks with a PlacementScheduler and returns it.
+	 */
+	public static PlacementScheduler updateBlocksContinuously(List<BlockState> blocksToUpdate, Plugin plugin, ActionListener callback) {
+		return new PlacementScheduler(createUpdateJob(blocksToUpdate, new BlockStateSink()), callback).start(plugin);
+	}
+	
+	/**
+	 * Returns a job for a PlacementScheduler that writes the BlockStates one after another to the sink.
+	 * The sink is flushed whenever the next block lies in another chunk.
+	 */
+	public static PlacementScheduler.PlacementJob createUpdateJob(List<BlockState> blocksToUpdate, BlockSink sink) {
+		
+		return new PlacementScheduler.PlacementJob() {
+			
+			int nextBlock = 0;
+			
+			@Override
+			public boolean placeNext() {
+				
+				if(nextBlock == blocksToUpdate.size())
+					return false;
+				
+				BlockState block = blocksToUpdate.get(nextBlock++);
+				
+				if(nextBlock > 1) {
 					
-					if(System.currentTimeMillis() - timer >= 49)
-						return;
+					BlockState lastBlock = blocksToUpdate.get(nextBlock - 2);
+					
+					if(lastBlock.getX() >> 4 != block.getX() >> 4 || lastBlock.getZ() >> 4 != block.getZ() >> 4)
+						sink.flush();
 				}
 				
-				this.cancel();
-				
-				if(callback != null)
-					callback.actionPerformed(null);
+				sink.setBlock(block.getWorld(), block.getX(), block.getY(), block.getZ(), block.getBlockData());
+				return true;
+			}
+			
+			@Override
+			public int getRemaining() {
+				return blocksToUpdate.size() - nextBlock;
+			}
+			
+			@Override
+			public boolean isDone() {
+				return nextBlock == blocksToUpdate.size();
+			}
+			
+			@Override
+			public void flush() {
+				sink.flush();
 			}
 		};
-		
-		builder.runTaskTimer(plugin, 0, 1);
 	}
 }
\ No newline at end of file
@@ -160,6 +160,29 @@ public class Vec2 implements Comparable<Vec2>, ConfigurationSerializable {
 		return data;
 	}
 	
+	public long pack() {
+		return pack(x, z);
+	}
+	
+	/**
+	 * Packs an x and a z coordinate into one long. Packed values sort in the same order as Vec2.compareTo() would sort them.
+	 */
+	public static long pack(int x, int z) {
+		return (long) x << 32 | (z ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+	}
+	
+	public static int unpackX(long packed) {
+		return (int) (packed >> 32);
+	}
+	
+	public static int unpackZ(long packed) {
+		return (int) packed ^ Integer.MIN_VALUE;
+	}
+	
+	public static Vec2 unpack(long packed) {
+		return new Vec2(unpackX(packed), unpackZ(packed));
+	}
+	
 	public static Vec2 desrialize(Map<String, Object> data) {
 		
 		return new Vec2(